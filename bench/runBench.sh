@@ -0,0 +1,10 @@
+#!/bin/bash
+# Compiles the client and the benchmarks and runs them with the GC profiler
+# (allocation rate), saving the results in bench/results.json. JMH and its
+# dependencies (jmh-core, jmh-generator-annprocess, jopt-simple,
+# commons-math3) must be in bench/lib. Arguments are passed to JMH, e.g.
+#   bench/runBench.sh NavigationBenchmark -p nodes=1000,100000
+cd "$(dirname "$0")/.."
+rm -rf bench/classes && mkdir -p bench/classes
+javac -source 1.8 -target 1.8 -cp "lib/*:bench/lib/*" -d bench/classes $(find src bench/src -name '*.java') || exit 1
+java -Xmx12g -cp "bench/classes:lib/*:bench/lib/*" org.openjdk.jmh.Main -prof gc -rf json -rff bench/results.json "$@"
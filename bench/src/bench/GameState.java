@@ -0,0 +1,69 @@
+package bench;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.SplittableRandom;
+
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import gametree.GameNode;
+import gametree.GameTree;
+import play.local.SyntheticGame;
+
+/**
+ * A synthetic game of the requested size, with the GameTree built from it
+ * and random node indexes and root to leaf paths to look up.
+ */
+@State(Scope.Benchmark)
+public class GameState {
+
+	/** Number of precomputed lookups; a power of two. */
+	static final int SAMPLES = 1 << 12;
+
+	@Param({ "1000", "10000", "100000", "1000000", "10000000" })
+	public long nodes;
+
+	@Param({ "10" })
+	public int branching;
+
+	@Param({ "0.2" })
+	public double natureRatio;
+
+	public SyntheticGame game;
+	public GameTree tree;
+	/** Random node indexes. */
+	public int[] indexes;
+	/** Random terminal node indexes. */
+	public int[] leaves;
+	/** Edge labels from the root to each of leaves. */
+	public String[][] paths;
+
+	@Setup
+	public void setUp() {
+		this.game = new SyntheticGame(SyntheticGame.depthFor(this.nodes, this.branching), this.branching, this.natureRatio, 42);
+		this.tree = GameTree.fromGameTreeClass(this.game);
+		SplittableRandom random = new SplittableRandom(7);
+		this.indexes = new int[SAMPLES];
+		this.leaves = new int[SAMPLES];
+		this.paths = new String[SAMPLES][];
+		for(int i = 0; i < SAMPLES; i++) {
+			this.indexes[i] = 1 + random.nextInt(this.game.size());
+			GameNode n = this.tree.getRootNode();
+			String[] path = new String[this.tree.getHeight()];
+			int length = 0;
+			while(n.numberOfChildren() > 0) {
+				int k = random.nextInt(n.numberOfChildren());
+				Iterator<GameNode> children = n.getChildren();
+				for(int j = 0; j < k; j++)
+					children.next();
+				n = children.next();
+				path[length++] = n.getLabel();
+			}
+			this.leaves[i] = n.getValue();
+			this.paths[i] = Arrays.copyOf(path, length);
+		}
+	}
+}
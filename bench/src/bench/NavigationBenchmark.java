@@ -0,0 +1,98 @@
+package bench;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import gametree.GameNode;
+import gametree.GameNodeDoesNotExistException;
+import gametree.GameTreeCursor;
+
+/**
+ * Walking a GameTree: cursor moves, index lookups and the paths from the
+ * terminal nodes of a round back to the root.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NavigationBenchmark {
+
+	/**
+	 * Per thread position in the precomputed samples, the buffer of
+	 * fillPathToRoot and the cursor that walks the shared tree.
+	 */
+	@State(Scope.Thread)
+	public static class Cursor {
+
+		int next;
+		int[] path;
+		GameTreeCursor walk;
+
+		@Setup
+		public void setUp(GameState s) {
+			this.path = new int[s.tree.getHeight() + 1];
+			this.walk = s.tree.newCursor();
+		}
+
+		int next() {
+			return this.next++ & (GameState.SAMPLES - 1);
+		}
+	}
+
+	@Benchmark
+	public boolean goDownGoUp(GameState s, Cursor c) {
+		GameTreeCursor t = c.walk;
+		t.reset();
+		for(String label: s.paths[c.next()])
+			t.goDown(label);
+		boolean moved = true;
+		while(moved)
+			moved = t.goUp();
+		return t.getCurrentNode().isRoot();
+	}
+
+	@Benchmark
+	public GameNode getNodeByIndex(GameState s, Cursor c) {
+		return s.tree.getNodeByIndex(s.indexes[c.next()]);
+	}
+
+	@Benchmark
+	public int fillPathToRoot(GameState s, Cursor c) {
+		return s.tree.fillPathToRoot(s.leaves[c.next()], c.path);
+	}
+
+	/**
+	 * The recursive path reconstruction MimicStrategy used before
+	 * fillPathToRoot, kept as a baseline.
+	 */
+	@Benchmark
+	public List<GameNode> reversePath(GameState s, Cursor c) {
+		return reversePath(s.tree.getNodeByIndex(s.leaves[c.next()]));
+	}
+
+	private static List<GameNode> reversePath(GameNode current) {
+		try {
+			GameNode n = current.getAncestor();
+			List<GameNode> l = reversePath(n);
+			l.add(current);
+			return l;
+		} catch (GameNodeDoesNotExistException e) {
+			List<GameNode> l = new ArrayList<GameNode>();
+			l.add(current);
+			return l;
+		}
+	}
+}
@@ -0,0 +1,81 @@
+package bench;
+
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import play.StrategyKeys;
+import play.StrategySampler;
+
+/**
+ * StrategySampler against the rejection loop RandomStrategy and
+ * MimicStrategy used before it, as the number of moves per group grows.
+ * The expected number of draws of the rejection loop grows so fast with
+ * the group size (millions per group of 9) that larger games cannot be
+ * measured with it at all.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SamplingBenchmark {
+
+	private static final int GROUPS = 1024;
+
+	@Param({ "2", "4", "6" })
+	public int moves;
+
+	private StrategyKeys keys;
+	private StrategySampler sampler;
+	private SecureRandom secureRandom;
+	private double[] strategy;
+
+	@Setup
+	public void setUp() {
+		List<String> k = new ArrayList<String>();
+		for(int i = 0; i < GROUPS * this.moves; i++)
+			k.add("k" + i);
+		this.keys = new StrategyKeys(Collections.nCopies(GROUPS, this.moves), k.iterator());
+		this.sampler = new StrategySampler(this.keys, 42);
+		this.secureRandom = new SecureRandom();
+		this.strategy = new double[this.keys.keyCount()];
+	}
+
+	@Benchmark
+	public double[] simplex() {
+		this.sampler.sample(this.strategy);
+		return this.strategy;
+	}
+
+	@Benchmark
+	public double[] rejection() {
+		for(int g = 0; g < this.keys.groupCount(); g++) {
+			int first = this.keys.groupOffset(g);
+			int end = this.keys.groupOffset(g + 1);
+			double sum = 0;
+			for(int k = first; k < end - 1; k++) {
+				this.strategy[k] = this.secureRandom.nextDouble();
+				while(sum + this.strategy[k] >= 1) this.strategy[k] = this.secureRandom.nextDouble();
+				sum = sum + this.strategy[k];
+			}
+			this.strategy[end - 1] = 1 - sum;
+		}
+		return this.strategy;
+	}
+}
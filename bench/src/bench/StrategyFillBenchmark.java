@@ -0,0 +1,86 @@
+package bench;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import play.StrategyKeys;
+import play.StrategySampler;
+
+/**
+ * Filling the strategy of a round as RandomStrategy and MimicStrategy do.
+ * A PlayStrategy can only be created by the game engine, so these measure
+ * the strategy array up to StrategyKeys.write(), including its validation.
+ * The rejection sampling these strategies used before StrategySampler is
+ * compared in SamplingBenchmark.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StrategyFillBenchmark {
+
+	@State(Scope.Thread)
+	public static class Fill {
+
+		StrategyKeys keys;
+		StrategySampler sampler;
+		double[] strategy;
+		//Moves of the opponent in the previous round, as MimicStrategy sees them
+		Set<String> oponentMoves;
+
+		@Setup
+		public void setUp(GameState s) {
+			this.keys = new StrategyKeys(s.tree.getValidationSet(), s.game.getKeys());
+			this.sampler = new StrategySampler(this.keys, 42);
+			this.strategy = new double[this.keys.keyCount()];
+			this.oponentMoves = new HashSet<String>();
+			for(String[] path: s.paths)
+				for(String label: path)
+					this.oponentMoves.add(label);
+		}
+	}
+
+	@Benchmark
+	public int randomStrategy(Fill f) {
+		f.sampler.sample(f.strategy);
+		return f.keys.invalidGroup(f.strategy);
+	}
+
+	@Benchmark
+	public int randomStrategyParallel(Fill f) {
+		f.sampler.sample(f.strategy, ForkJoinPool.commonPool());
+		return f.keys.invalidGroup(f.strategy);
+	}
+
+	/**
+	 * MimicStrategy after the first round: play the opponent's moves and
+	 * draw the groups it did not reach.
+	 */
+	@Benchmark
+	public int mimicStrategy(Fill f) {
+		for(int k = 0; k < f.keys.keyCount(); k++)
+			f.strategy[k] = f.oponentMoves.contains(f.keys.key(k)) ? 1 : 0;
+		for(int g = 0; g < f.keys.groupCount(); g++) {
+			double sum = 0;
+			for(int k = f.keys.groupOffset(g); k < f.keys.groupOffset(g + 1); k++)
+				sum += f.strategy[k];
+			if(sum != 1)
+				f.sampler.sampleGroup(g, f.strategy);
+		}
+		return f.keys.invalidGroup(f.strategy);
+	}
+}
@@ -0,0 +1,40 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import gametree.CompactGameTree;
+import gametree.GameTree;
+
+/**
+ * Building the trees the strategies work on from the engine's tree.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TreeBuildBenchmark {
+
+	@Benchmark
+	public GameTree fromGameTreeClass(GameState s) {
+		return GameTree.fromGameTreeClass(s.game);
+	}
+
+	@Benchmark
+	public GameTree lazyFromGameTreeClass(GameState s) {
+		return GameTree.lazyFromGameTreeClass(s.game);
+	}
+
+	@Benchmark
+	public CompactGameTree compactFromGameTreeClass(GameState s) {
+		return CompactGameTree.fromGameTreeClass(s.game);
+	}
+}
@@ -0,0 +1 @@
+java -cp bin\;lib\* play.local.LocalEngine %*
\ No newline at end of file
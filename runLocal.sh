@@ -0,0 +1,2 @@
+#!/bin/bash
+java -cp bin/:lib/* play.local.LocalEngine "$@"
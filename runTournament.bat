@@ -0,0 +1 @@
+java -cp bin\;lib\* play.local.Tournament %*
\ No newline at end of file
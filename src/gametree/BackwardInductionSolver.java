@@ -0,0 +1,222 @@
+package gametree;
+
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Computes the subgame-perfect values of a game tree by backward
+ * induction. Every node gets the expected payoff of both players under
+ * the subgame-perfect play below it: a terminal node holds its payoffs,
+ * a player node takes the child that maximizes the payoff of the player
+ * who moves there, and a nature node averages its children using their
+ * weights (GameNode.getWeight()). Nodes of an unknown type are treated
+ * like nature nodes. Ties are broken in favour of the first child.
+ *
+ * The computation treats every node as its own decision point, i.e. it
+ * assumes that the player moving at a node knows where he is.
+ *
+ * Independent subtrees are solved in parallel on a ForkJoinPool. The
+ * results are kept in primitive arrays indexed by the CompactGameTree
+ * node id, and can also be looked up by the engine index used by
+ * GameTree.getNodeByIndex().
+ *
+ * On a DagGameTree the values only depend on the subtree below a node,
+ * so they are computed once per class, in a single pass over the
+ * classes, and kept per class; every node reads the values of its class.
+ */
+public final class BackwardInductionSolver {
+
+	private final CompactGameTree tree;
+	//Indexed by node id, or by class when solved on a DagGameTree
+	private final DagGameTree dag;
+	private final double[] valueP1;
+	private final double[] valueP2;
+	//The chosen child, as a node id or, on a DagGameTree, as a position
+	//among the children
+	private final int[] choice;
+
+	private BackwardInductionSolver(CompactGameTree tree, DagGameTree dag) {
+		this.tree = tree;
+		this.dag = dag;
+		int n = dag == null ? tree.size() : dag.classCount();
+		this.valueP1 = new double[n];
+		this.valueP2 = new double[n];
+		this.choice = new int[n];
+	}
+
+	/**
+	 * Solves the given tree using the common ForkJoinPool.
+	 * @param tree the tree to solve.
+	 * @return the solution.
+	 */
+	public static BackwardInductionSolver solve(CompactGameTree tree) {
+		return solve(tree, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Solves the given tree on the given pool.
+	 * @param tree the tree to solve.
+	 * @param pool the pool that will run the computation.
+	 * @return the solution.
+	 */
+	public static BackwardInductionSolver solve(CompactGameTree tree, ForkJoinPool pool) {
+		final BackwardInductionSolver s = new BackwardInductionSolver(tree, null);
+		new ParallelTreeWalker(tree, pool).bottomUp(new ParallelTreeWalker.Visitor() {
+			@Override
+			public void visit(int node) {
+				s.solveNode(node);
+			}
+		});
+		return s;
+	}
+
+	/**
+	 * Solves the tree of dag once per class of identical subtrees.
+	 * @param dag the compressed tree.
+	 * @return the solution, for the nodes of dag.getTree().
+	 */
+	public static BackwardInductionSolver solve(DagGameTree dag) {
+		BackwardInductionSolver s = new BackwardInductionSolver(dag.getTree(), dag);
+		//Classes come after the classes of their children
+		for(int c = 0; c < dag.classCount(); c++)
+			s.solveClass(c);
+		return s;
+	}
+
+	private void solveClass(int c) {
+		DagGameTree d = this.dag;
+		int count = d.childCount(c);
+		if(count == 0) {
+			this.valueP1[c] = d.payoffP1(c);
+			this.valueP2[c] = d.payoffP2(c);
+			this.choice[c] = CompactGameTree.NONE;
+			return;
+		}
+		byte kind = d.kind(c);
+		if(kind == CompactGameTree.KIND_PLAYER1 || kind == CompactGameTree.KIND_PLAYER2) {
+			double[] own = kind == CompactGameTree.KIND_PLAYER1 ? this.valueP1 : this.valueP2;
+			int best = 0;
+			for(int i = 1; i < count; i++)
+				if(own[d.child(c, i)] > own[d.child(c, best)])
+					best = i;
+			this.valueP1[c] = this.valueP1[d.child(c, best)];
+			this.valueP2[c] = this.valueP2[d.child(c, best)];
+			this.choice[c] = best;
+		} else {
+			double v1 = 0;
+			double v2 = 0;
+			for(int i = 0; i < count; i++) {
+				double w = d.weight(c, i);
+				v1 += w * this.valueP1[d.child(c, i)];
+				v2 += w * this.valueP2[d.child(c, i)];
+			}
+			this.valueP1[c] = v1;
+			this.valueP2[c] = v2;
+			this.choice[c] = CompactGameTree.NONE;
+		}
+	}
+
+	private void solveNode(int node) {
+		int count = this.tree.childCount(node);
+		if(count == 0) {
+			this.valueP1[node] = this.tree.payoffP1(node);
+			this.valueP2[node] = this.tree.payoffP2(node);
+			this.choice[node] = CompactGameTree.NONE;
+			return;
+		}
+		int first = this.tree.firstChild(node);
+		int end = first + count;
+		byte kind = this.tree.kind(node);
+		if(kind == CompactGameTree.KIND_PLAYER1 || kind == CompactGameTree.KIND_PLAYER2) {
+			double[] own = kind == CompactGameTree.KIND_PLAYER1 ? this.valueP1 : this.valueP2;
+			int best = first;
+			for(int c = first + 1; c < end; c++)
+				if(own[c] > own[best])
+					best = c;
+			this.valueP1[node] = this.valueP1[best];
+			this.valueP2[node] = this.valueP2[best];
+			this.choice[node] = best;
+		} else {
+			double v1 = 0;
+			double v2 = 0;
+			for(int c = first; c < end; c++) {
+				double w = this.tree.weight(c);
+				v1 += w * this.valueP1[c];
+				v2 += w * this.valueP2[c];
+			}
+			this.valueP1[node] = v1;
+			this.valueP2[node] = v2;
+			this.choice[node] = CompactGameTree.NONE;
+		}
+	}
+
+	/**
+	 * @return the tree this solution refers to.
+	 */
+	public CompactGameTree getTree() {
+		return this.tree;
+	}
+
+	/**
+	 * @param node a CompactGameTree node id.
+	 * @return the expected payoff of player 1 at node.
+	 */
+	public double getValueP1(int node) {
+		return this.valueP1[slot(node)];
+	}
+
+	/**
+	 * @param node a CompactGameTree node id.
+	 * @return the expected payoff of player 2 at node.
+	 */
+	public double getValueP2(int node) {
+		return this.valueP2[slot(node)];
+	}
+
+	/**
+	 * @param node a CompactGameTree node id.
+	 * @return the id of the child chosen at node, CompactGameTree.NONE if
+	 * nobody decides at node.
+	 */
+	public int getChoice(int node) {
+		if(this.dag == null)
+			return this.choice[node];
+		int i = this.choice[this.dag.classOf(node)];
+		return i == CompactGameTree.NONE ? CompactGameTree.NONE : this.tree.firstChild(node) + i;
+	}
+
+	private int slot(int node) {
+		return this.dag == null ? node : this.dag.classOf(node);
+	}
+
+	/**
+	 * @param index the engine index of a node (GameNode.getValue()).
+	 * @return the expected payoff of player 1 at that node, NaN if the
+	 * tree has no such node.
+	 */
+	public double getValueP1ByIndex(int index) {
+		int id = this.tree.idOf(index);
+		return id == CompactGameTree.NONE ? Double.NaN : this.valueP1[slot(id)];
+	}
+
+	/**
+	 * @param index the engine index of a node (GameNode.getValue()).
+	 * @return the expected payoff of player 2 at that node, NaN if the
+	 * tree has no such node.
+	 */
+	public double getValueP2ByIndex(int index) {
+		int id = this.tree.idOf(index);
+		return id == CompactGameTree.NONE ? Double.NaN : this.valueP2[slot(id)];
+	}
+
+	/**
+	 * @param index the engine index of a node (GameNode.getValue()).
+	 * @return the label of the move chosen at that node, null if the tree
+	 * has no such node or nobody decides there.
+	 */
+	public String getChoiceLabelByIndex(int index) {
+		int id = this.tree.idOf(index);
+		if(id == CompactGameTree.NONE || getChoice(id) == CompactGameTree.NONE)
+			return null;
+		return this.tree.label(this.tree.labelId(getChoice(id)));
+	}
+}
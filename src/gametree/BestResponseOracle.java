@@ -0,0 +1,249 @@
+package gametree;
+
+import java.util.Arrays;
+
+/**
+ * Computes pure best responses against a behavioral strategy, and the
+ * exploitability of a strategy, in time linear in the number of nodes.
+ *
+ * Strategies are double[] in StrategyLayout order. A best response is
+ * computed for both seats at once: the P1 groups of the result answer
+ * the P2 part of the opponent strategy and the P2 groups answer its P1
+ * part, so the result is a complete strategy that can be written into a
+ * PlayStrategy as it is.
+ *
+ * A group of the validation set is treated as one information set: the
+ * same move is chosen at every node whose moves belong to that group.
+ * The choice is made from the counterfactual values of all nodes of the
+ * group found at the deepest level where the group occurs, which is
+ * exact whenever a group lies at a single depth of the tree.
+ *
+ * All per-node and per-key buffers are allocated by the constructor and
+ * reused by every call. An instance is not thread-safe.
+ */
+public final class BestResponseOracle {
+
+	private final CompactGameTree tree;
+	private final StrategyLayout layout;
+	private final StrategyProfileEvaluator evaluator;
+
+	private final int[] levelStart;
+	private final int[] nodeGroup;
+
+	private final double[] reach;
+	private final double[] value;
+	private final double[] actionValue;
+	private final int[] keyStamp;
+	private final int[] groupChoice;
+	private final int[] groupStamp;
+	private final int[] touched;
+	private final double[] profile;
+	private int stamp;
+
+	private double valueAsP1;
+	private double valueAsP2;
+
+	public BestResponseOracle(StrategyLayout layout) {
+		this.tree = layout.getTree();
+		this.layout = layout;
+		this.evaluator = new StrategyProfileEvaluator(layout);
+
+		int n = this.tree.size();
+		//Breadth-first ids keep every depth in a contiguous range.
+		int[] depth = new int[n];
+		int maxDepth = 0;
+		for(int c = 1; c < n; c++) {
+			depth[c] = depth[this.tree.parent(c)] + 1;
+			maxDepth = Math.max(maxDepth, depth[c]);
+		}
+		this.levelStart = new int[maxDepth + 2];
+		for(int c = 0; c < n; c++)
+			this.levelStart[depth[c] + 1] = c + 1;
+
+		this.nodeGroup = new int[n];
+		for(int c = 0; c < n; c++) {
+			int k = this.tree.childCount(c) == 0 ? StrategyLayout.NO_KEY : layout.edgeKey(this.tree.firstChild(c));
+			this.nodeGroup[c] = k == StrategyLayout.NO_KEY ? -1 : layout.groupOf(k);
+		}
+
+		this.reach = new double[n];
+		this.value = new double[n];
+		this.actionValue = new double[layout.keyCount()];
+		this.keyStamp = new int[layout.keyCount()];
+		this.groupChoice = new int[layout.groupCount()];
+		this.groupStamp = new int[layout.groupCount()];
+		this.touched = new int[layout.groupCount()];
+		this.profile = new double[StrategyProfileEvaluator.RESULTS];
+		this.stamp = 0;
+	}
+
+	public StrategyLayout getLayout() {
+		return this.layout;
+	}
+
+	/**
+	 * Computes the pure best response to opponent in both seats.
+	 * @param opponent the opponent strategy in layout order.
+	 * @param out receives the best response in layout order: 1 for the
+	 * chosen key of every group, 0 for the others. Groups that are never
+	 * reached get their first key. May be null if only the values are
+	 * needed.
+	 */
+	public void bestResponse(double[] opponent, double[] out) {
+		if(out != null)
+			Arrays.fill(out, 0);
+		this.valueAsP1 = solve(CompactGameTree.KIND_PLAYER1, opponent, out);
+		this.valueAsP2 = solve(CompactGameTree.KIND_PLAYER2, opponent, out);
+		if(out != null)
+			completeUntouchedGroups(out);
+	}
+
+	/**
+	 * @return the payoff of the last computed best response when playing
+	 * as P1.
+	 */
+	public double getValueAsP1() {
+		return this.valueAsP1;
+	}
+
+	/**
+	 * @return the payoff of the last computed best response when playing
+	 * as P2.
+	 */
+	public double getValueAsP2() {
+		return this.valueAsP2;
+	}
+
+	/**
+	 * Measures how much an opponent could gain against strategy by best
+	 * responding to it, when strategy plays both seats: the sum over the
+	 * two seats of the best response payoff minus the payoff the opponent
+	 * gets by playing strategy as well. It is zero exactly when strategy
+	 * against itself is an equilibrium.
+	 * @param strategy a strategy in layout order.
+	 * @return the exploitability of strategy.
+	 */
+	public double exploitability(double[] strategy) {
+		this.evaluator.evaluate(strategy, strategy, this.profile);
+		double p1 = solve(CompactGameTree.KIND_PLAYER1, strategy, null);
+		double p2 = solve(CompactGameTree.KIND_PLAYER2, strategy, null);
+		return (p1 - this.profile[StrategyProfileEvaluator.A_AS_P1])
+				+ (p2 - this.profile[StrategyProfileEvaluator.B_AS_P2]);
+	}
+
+	private double solve(byte seat, double[] opponent, double[] out) {
+		final CompactGameTree t = this.tree;
+		final StrategyLayout l = this.layout;
+		final double[] r = this.reach;
+		final double[] v = this.value;
+		final boolean p1 = seat == CompactGameTree.KIND_PLAYER1;
+		final int stamp = ++this.stamp;
+
+		//Forward pass: probability of reaching each node if our own moves
+		//always lead there (nature and opponent only).
+		r[0] = 1;
+		for(int n = 0, size = t.size(); n < size; n++) {
+			int first = t.firstChild(n);
+			int end = first + t.childCount(n);
+			if(t.kind(n) == seat) {
+				for(int c = first; c < end; c++)
+					r[c] = r[n];
+			} else {
+				double rn = r[n];
+				for(int c = first; c < end; c++) {
+					int k = l.edgeKey(c);
+					r[c] = rn * (k >= 0 ? opponent[k] : l.edgeProbability(c));
+				}
+			}
+		}
+
+		//Backward pass, one depth at a time.
+		for(int d = this.levelStart.length - 2; d >= 0; d--) {
+			int from = this.levelStart[d];
+			int to = this.levelStart[d + 1];
+
+			int touchedCount = 0;
+			for(int n = from; n < to; n++) {
+				int g = this.nodeGroup[n];
+				if(g < 0 || t.kind(n) != seat || this.groupStamp[g] == stamp)
+					continue;
+				if(this.groupStamp[g] != -stamp) {
+					this.groupStamp[g] = -stamp;
+					this.touched[touchedCount++] = g;
+				}
+				int first = t.firstChild(n);
+				int end = first + t.childCount(n);
+				for(int c = first; c < end; c++) {
+					int k = l.edgeKey(c);
+					if(k < 0) continue;
+					if(this.keyStamp[k] != stamp) {
+						this.keyStamp[k] = stamp;
+						this.actionValue[k] = 0;
+					}
+					this.actionValue[k] += r[n] * v[c];
+				}
+			}
+			for(int i = 0; i < touchedCount; i++) {
+				int g = this.touched[i];
+				int best = -1;
+				for(int k = l.groupOffset(g), end = l.groupOffset(g + 1); k < end; k++)
+					if(this.keyStamp[k] == stamp && (best < 0 || this.actionValue[k] > this.actionValue[best]))
+						best = k;
+				this.groupChoice[g] = best;
+				this.groupStamp[g] = stamp;
+			}
+
+			for(int n = from; n < to; n++) {
+				int count = t.childCount(n);
+				if(count == 0) {
+					v[n] = p1 ? t.payoffP1(n) : t.payoffP2(n);
+					continue;
+				}
+				int first = t.firstChild(n);
+				int end = first + count;
+				if(t.kind(n) == seat) {
+					int g = this.nodeGroup[n];
+					int chosen = -1;
+					if(g >= 0) {
+						int k = this.groupChoice[g];
+						for(int c = first; c < end && chosen < 0; c++)
+							if(l.edgeKey(c) == k)
+								chosen = c;
+					}
+					if(chosen < 0) {
+						chosen = first;
+						for(int c = first + 1; c < end; c++)
+							if(v[c] > v[chosen])
+								chosen = c;
+					}
+					v[n] = v[chosen];
+				} else {
+					double sum = 0;
+					for(int c = first; c < end; c++) {
+						int k = l.edgeKey(c);
+						sum += (k >= 0 ? opponent[k] : l.edgeProbability(c)) * v[c];
+					}
+					v[n] = sum;
+				}
+			}
+		}
+
+		if(out != null) {
+			for(int g = 0; g < l.groupCount(); g++) {
+				if(this.groupStamp[g] == stamp && this.groupChoice[g] >= 0)
+					out[this.groupChoice[g]] = 1;
+			}
+		}
+		return v[0];
+	}
+
+	private void completeUntouchedGroups(double[] out) {
+		for(int g = 0; g < this.layout.groupCount(); g++) {
+			double sum = 0;
+			for(int k = this.layout.groupOffset(g); k < this.layout.groupOffset(g + 1); k++)
+				sum += out[k];
+			if(sum == 0 && this.layout.groupSize(g) > 0)
+				out[this.layout.groupOffset(g)] = 1;
+		}
+	}
+}
@@ -0,0 +1,186 @@
+package gametree;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A read-only GameNode view over a node of a CompactGameTree. Views are
+ * created on demand and hold nothing but the tree and the node id, so
+ * two views of the same node are equal but not identical.
+ */
+final class CompactGameNode extends GameNode {
+
+	private final CompactGameTree tree;
+	private final int id;
+
+	CompactGameNode(CompactGameTree tree, int id) {
+		super();
+		this.tree = tree;
+		this.id = id;
+	}
+
+	/**
+	 * @return the id of this node in the backing CompactGameTree.
+	 */
+	int id() {
+		return this.id;
+	}
+
+	@Override
+	public boolean isRoot() {
+		return this.tree.isRoot(this.id);
+	}
+
+	@Override
+	public boolean isTerminal() {
+		return this.tree.isTerminal(this.id);
+	}
+
+	@Override
+	public boolean isNature() {
+		return this.tree.isNature(this.id);
+	}
+
+	@Override
+	public boolean isPlayer1() {
+		return this.tree.isPlayer1(this.id);
+	}
+
+	@Override
+	public boolean isPlayer2() {
+		return this.tree.isPlayer2(this.id);
+	}
+
+	@Override
+	public String getOutcome() {
+		return this.tree.label(this.tree.outcomeId(this.id));
+	}
+
+	@Override
+	public GameNode getAncestor() throws GameNodeDoesNotExistException {
+		int p = this.tree.parent(this.id);
+		if(p == CompactGameTree.NONE)
+			throw new GameNodeDoesNotExistException("Root node does not have an ancestor");
+		return new CompactGameNode(this.tree, p);
+	}
+
+	@Override
+	public GameNode getDescendant(String label) throws GameNodeDoesNotExistException {
+		int l = this.tree.labelIdOf(label);
+		int c = l == CompactGameTree.NONE ? CompactGameTree.NONE : this.tree.childByLabel(this.id, l);
+		if(c != CompactGameTree.NONE)
+			return new CompactGameNode(this.tree, c);
+		if(this.tree.childCount(this.id) > 0)
+			throw new GameNodeDoesNotExistException("Node with label '" + getLabel() + "' does not have a descendeant with label + '" + label + "'.");
+		else
+			throw new GameNodeDoesNotExistException("node with label '" + getLabel() + "' is terminal.");
+	}
+
+	@Override
+	public Iterator<String> getChildrenLabels() {
+		return new ChildIterator<String>() {
+			@Override
+			String element(int child) {
+				return tree.label(tree.labelId(child));
+			}
+		};
+	}
+
+	@Override
+	public Iterator<GameNode> getChildren() {
+		return new ChildIterator<GameNode>() {
+			@Override
+			GameNode element(int child) {
+				return new CompactGameNode(tree, child);
+			}
+		};
+	}
+
+	@Override
+	public int numberOfChildren() {
+		return this.tree.childCount(this.id);
+	}
+
+	@Override
+	public void addChild(GameNode child) {
+		throw new UnsupportedOperationException("Nodes of a CompactGameTree are read-only.");
+	}
+
+	@Override
+	public String getLabel() {
+		return this.tree.label(this.tree.labelId(this.id));
+	}
+
+	@Override
+	public double getWeight() {
+		return this.tree.weight(this.id);
+	}
+
+	@Override
+	public int getValue() {
+		return this.tree.nodeIndex(this.id);
+	}
+
+	@Override
+	public String toString() {
+		return getLabel() + " (" + getValue() + ")";
+	}
+
+	@Override
+	public void setPayoffP1(int payoff) {
+		throw new UnsupportedOperationException("Nodes of a CompactGameTree are read-only.");
+	}
+
+	@Override
+	public void setPayoffP2(int payoff) {
+		throw new UnsupportedOperationException("Nodes of a CompactGameTree are read-only.");
+	}
+
+	@Override
+	public int getPayoffP1() {
+		return this.tree.payoffP1(this.id);
+	}
+
+	@Override
+	public int getPayoffP2() {
+		return this.tree.payoffP2(this.id);
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if(!(o instanceof CompactGameNode))
+			return false;
+		CompactGameNode other = (CompactGameNode) o;
+		return other.tree == this.tree && other.id == this.id;
+	}
+
+	@Override
+	public int hashCode() {
+		return System.identityHashCode(this.tree) * 31 + this.id;
+	}
+
+	private abstract class ChildIterator<T> implements Iterator<T> {
+
+		private int next = tree.firstChild(id);
+		private final int end = this.next + tree.childCount(id);
+
+		abstract T element(int child);
+
+		@Override
+		public boolean hasNext() {
+			return this.next < this.end;
+		}
+
+		@Override
+		public T next() {
+			if(this.next >= this.end)
+				throw new NoSuchElementException();
+			return element(this.next++);
+		}
+
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+	}
+}
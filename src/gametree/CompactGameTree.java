@@ -0,0 +1,808 @@
+package gametree;
+
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+
+import trace.Tracing;
+import trace.TreeBuildEvent;
+import tree.GameTreeClass;
+import tree.Node;
+
+/**
+ * A GameTree backend that keeps every node in flat primitive arrays
+ * instead of one GameNode object per node.
+ *
+ * Nodes are identified by a dense id in breadth-first order, the root
+ * being id 0. Because of that order the children of a node occupy a
+ * contiguous range of ids (firstChild .. firstChild + childCount - 1)
+ * and every child has a larger id than its parent, so a forward loop
+ * over the ids visits parents before children and a backward loop
+ * visits children before parents.
+ *
+ * The int based cursor methods (parent, child, kind, weight, ...) never
+ * create objects. The GameTreeInterface methods are kept so that the
+ * existing strategies can navigate this tree as well; those hand out
+ * lightweight GameNode views that are created on demand.
+ *
+ * The columns are read through buffers: arrays wrapped when the tree is
+ * built in memory, read-only views of the file when it is loaded from a
+ * GameTreeSnapshot, so a loaded tree is used in place. The columns are
+ * never written after construction, so a tree can be read by any number
+ * of threads without synchronization.
+ *
+ * A compressed tree (see compress()) keeps only what differs between the
+ * positions of a DagGameTree class: the parent, first child, engine
+ * index and labels of every position, which getNodeByIndex(),
+ * setCurrentNode(), navigation and the keys of the game need, and its
+ * class. The kind, payoffs, child count and weights of a position are
+ * read through its class. The only
+ * position the tree keeps is the single cursor of the GameTreeInterface
+ * facade; threads walk it with an int id each, or with a Cursor each
+ * (see newCursor()).
+ */
+public final class CompactGameTree implements GameTreeInterface {
+
+	/** Id returned by the cursor methods when a node does not exist. */
+	public static final int NONE = -1;
+
+	public static final byte KIND_TERMINAL = 0;
+	public static final byte KIND_NATURE = 1;
+	public static final byte KIND_PLAYER1 = 2;
+	public static final byte KIND_PLAYER2 = 3;
+	public static final byte KIND_OTHER = 4;
+
+	private final int size;
+	private final IntBuffer parent;
+	private final IntBuffer firstChild;
+	//The columns up to payoffP2 are null in a compressed tree
+	private final IntBuffer childCount;
+	private final ByteBuffer kind;
+	private final DoubleBuffer weight;
+	private final IntBuffer payoffP1;
+	private final IntBuffer payoffP2;
+	private final IntBuffer labelId;
+	private final IntBuffer outcomeId;
+	private final IntBuffer nodeIndex;
+	private final String[] labels;
+	//Built on first use, a loaded tree may never look a label up
+	private volatile Map<String, Integer> labelIds;
+	private final IntIntHashMap idByIndex;
+	private final List<Integer> validationSet;
+	//The classes of a compressed tree, null otherwise
+	private final DagGameTree shared;
+	//What the weight column holds for the root, in a compressed tree
+	private final double rootWeight;
+
+	//The cursor of the GameTreeInterface facade
+	private final Cursor cursor;
+	private volatile int[] subtreeSize;
+	private volatile SubtreeBounds bounds;
+	private volatile DagGameTree dag;
+
+	/**
+	 * Creates a tree over the given arrays, which must all have size
+	 * positions and are not copied.
+	 * @param idByIndex the map from engine index to node id, or null to
+	 * compute it from nodeIndex.
+	 */
+	CompactGameTree(int size, int[] parent, int[] firstChild, int[] childCount, byte[] kind, double[] weight,
+			int[] payoffP1, int[] payoffP2, int[] labelId, int[] outcomeId, int[] nodeIndex,
+			String[] labels, IntIntHashMap idByIndex, List<Integer> validationSet) {
+		this(size, IntBuffer.wrap(parent), IntBuffer.wrap(firstChild), IntBuffer.wrap(childCount), ByteBuffer.wrap(kind),
+				DoubleBuffer.wrap(weight), IntBuffer.wrap(payoffP1), IntBuffer.wrap(payoffP2), IntBuffer.wrap(labelId),
+				IntBuffer.wrap(outcomeId), IntBuffer.wrap(nodeIndex), labels, idByIndex, validationSet);
+	}
+
+	/**
+	 * Creates a tree over the given columns, which must all have size
+	 * positions from index 0 and are read in place, e.g. views of a
+	 * mapped snapshot.
+	 * @param idByIndex the map from engine index to node id, or null to
+	 * compute it from nodeIndex.
+	 */
+	CompactGameTree(int size, IntBuffer parent, IntBuffer firstChild, IntBuffer childCount, ByteBuffer kind,
+			DoubleBuffer weight, IntBuffer payoffP1, IntBuffer payoffP2, IntBuffer labelId, IntBuffer outcomeId,
+			IntBuffer nodeIndex, String[] labels, IntIntHashMap idByIndex, List<Integer> validationSet) {
+		this.size = size;
+		this.parent = parent;
+		this.firstChild = firstChild;
+		this.childCount = childCount;
+		this.kind = kind;
+		this.weight = weight;
+		this.payoffP1 = payoffP1;
+		this.payoffP2 = payoffP2;
+		this.labelId = labelId;
+		this.outcomeId = outcomeId;
+		this.nodeIndex = nodeIndex;
+		this.labels = labels;
+		this.labelIds = null;
+		if(idByIndex == null) {
+			idByIndex = new IntIntHashMap(size);
+			for(int id = 0; id < size; id++)
+				idByIndex.put(nodeIndex.get(id), id);
+		}
+		this.idByIndex = idByIndex;
+		this.validationSet = Collections.unmodifiableList(new ArrayList<Integer>(validationSet));
+		this.shared = null;
+		this.rootWeight = 0;
+		this.cursor = new Cursor(this, 0);
+		if(Boolean.getBoolean(SubtreeBounds.BOUNDS_PROPERTY))
+			this.bounds = SubtreeBounds.compute(this);
+	}
+
+	/**
+	 * Creates the compressed form of t.
+	 * @param dag the classes of t.
+	 */
+	private CompactGameTree(CompactGameTree t, DagGameTree dag) {
+		this.size = t.size;
+		int[] parent = new int[t.size];
+		int[] firstChild = new int[t.size];
+		int[] nodeIndex = new int[t.size];
+		int[] labelId = new int[t.size];
+		int[] outcomeId = new int[t.size];
+		for(int id = 0; id < t.size; id++) {
+			parent[id] = t.parent(id);
+			firstChild[id] = t.firstChild(id);
+			nodeIndex[id] = t.nodeIndex(id);
+			labelId[id] = t.labelId(id);
+			outcomeId[id] = t.outcomeId(id);
+		}
+		this.parent = IntBuffer.wrap(parent);
+		this.firstChild = IntBuffer.wrap(firstChild);
+		this.nodeIndex = IntBuffer.wrap(nodeIndex);
+		this.labelId = IntBuffer.wrap(labelId);
+		this.outcomeId = IntBuffer.wrap(outcomeId);
+		this.childCount = null;
+		this.kind = null;
+		this.weight = null;
+		this.payoffP1 = null;
+		this.payoffP2 = null;
+		this.labels = t.labels;
+		this.labelIds = t.labelIds;
+		this.idByIndex = t.idByIndex;
+		this.validationSet = t.validationSet;
+		this.shared = dag.over(this);
+		this.dag = this.shared;
+		this.rootWeight = t.weight(0);
+		this.cursor = new Cursor(this, 0);
+		if(Boolean.getBoolean(SubtreeBounds.BOUNDS_PROPERTY))
+			this.bounds = SubtreeBounds.compute(this);
+	}
+
+	/**
+	 * Shares the identical subtrees of a tree: the result keeps six ints
+	 * per position (parent, first child, engine index, label, outcome and
+	 * class) and
+	 * the contents of every distinct subtree once (see DagGameTree), and
+	 * reads the same as t.
+	 * @param t a tree.
+	 * @return the compressed tree, t itself if it is compressed already.
+	 */
+	public static CompactGameTree compress(CompactGameTree t) {
+		if(t.shared != null)
+			return t;
+		return new CompactGameTree(t, DagGameTree.compress(t));
+	}
+
+	/**
+	 * @return true if the tree keeps its positions as DagGameTree classes
+	 * (see compress()).
+	 */
+	public boolean isCompressed() {
+		return this.shared != null;
+	}
+
+	/**
+	 * Builds the compact representation straight from the engine's tree,
+	 * without creating any intermediate GameNode.
+	 * @param gtc the game tree as received from the game engine.
+	 * @return a new CompactGameTree.
+	 */
+	public static CompactGameTree fromGameTreeClass(GameTreeClass gtc) {
+		TreeBuildEvent event = Tracing.AVAILABLE ? TreeBuildEvent.start("CompactGameTree") : null;
+		List<Integer> validationSet = new ArrayList<Integer>();
+		for(List<Integer> l: gtc.getPosibilities())
+			validationSet.addAll(l);
+
+		Builder b = new Builder(1024);
+		List<Node> pending = new ArrayList<Node>();
+		Node root = gtc.getCurrent();
+		b.add(NONE, root.getLabel(), "", 0, root.getValue(), kindOf(root.getType()));
+		pending.add(root);
+
+		//Ids are handed out in breadth-first order, so the node with id i
+		//is always the i-th node taken from the pending list.
+		for(int id = 0; id < pending.size(); id++) {
+			Node node = pending.get(id);
+			pending.set(id, null);
+			Node[] descendants = node.getChildren();
+			double[] descendantsWeight = node.getChildrenWeight();
+			String[] descendantsOutcome = node.getOutcome();
+			if(descendants.length == 0) { //Is a terminal node
+				b.setPayoffs(id, Integer.parseInt(descendantsOutcome[0]), Integer.parseInt(descendantsOutcome[1]));
+			}
+			for(int i = 0; i < descendants.length; i++) {
+				b.add(id, descendantsOutcome[i], descendants[i].getLabel(), descendantsWeight[i],
+						descendants[i].getValue(), kindOf(descendants[i].getType()));
+				pending.add(descendants[i]);
+			}
+		}
+		CompactGameTree t = b.build(validationSet);
+		if(event != null)
+			event.finish(t.size());
+		return t;
+	}
+
+	/**
+	 * Builds the compact representation from an already built tree, for
+	 * instance the GameTree that the engine hands to a Strategy.
+	 * @param t the tree to convert.
+	 * @return a new CompactGameTree.
+	 */
+	public static CompactGameTree fromGameTree(GameTreeInterface t) {
+		TreeBuildEvent event = Tracing.AVAILABLE ? TreeBuildEvent.start("CompactGameTree (from GameTree)") : null;
+		Builder b = new Builder(1024);
+		Queue<GameNode> queue = new ArrayDeque<GameNode>();
+		GameNode root = t.getRootNode();
+		b.add(NONE, root.getLabel(), root.getOutcome(), root.getWeight(), root.getValue(), kindOf(root));
+		b.setPayoffs(0, root.getPayoffP1(), root.getPayoffP2());
+		queue.add(root);
+
+		int id = 0;
+		while(!queue.isEmpty()) {
+			GameNode n = queue.remove();
+			Iterator<GameNode> children = n.getChildren();
+			while(children.hasNext()) {
+				GameNode child = children.next();
+				int c = b.add(id, child.getLabel(), child.getOutcome(), child.getWeight(), child.getValue(), kindOf(child));
+				b.setPayoffs(c, child.getPayoffP1(), child.getPayoffP2());
+				queue.add(child);
+			}
+			id++;
+		}
+		CompactGameTree compact = b.build(t.getValidationSet());
+		if(event != null)
+			event.finish(compact.size());
+		return compact;
+	}
+
+	static byte kindOf(String type) {
+		if(type.compareToIgnoreCase("t") == 0) return KIND_TERMINAL;
+		if(type.compareToIgnoreCase("c") == 0) return KIND_NATURE;
+		if(type.compareToIgnoreCase("P1") == 0) return KIND_PLAYER1;
+		if(type.compareToIgnoreCase("P2") == 0) return KIND_PLAYER2;
+		return KIND_OTHER;
+	}
+
+	static byte kindOf(GameNode n) {
+		if(n.isTerminal()) return KIND_TERMINAL;
+		if(n.isNature()) return KIND_NATURE;
+		if(n.isPlayer1()) return KIND_PLAYER1;
+		if(n.isPlayer2()) return KIND_PLAYER2;
+		return KIND_OTHER;
+	}
+
+	/*
+	 * Cursor API: every method below works on int node ids and does not
+	 * allocate.
+	 */
+
+	/**
+	 * @return the number of nodes in the tree; valid ids are 0 .. size() - 1.
+	 */
+	public int size() {
+		return this.size;
+	}
+
+	/**
+	 * @return the id of the root node (always 0).
+	 */
+	public int root() {
+		return 0;
+	}
+
+	public boolean isRoot(int node) {
+		return this.parent.get(node) == NONE;
+	}
+
+	/**
+	 * @return the id of the ancestor of node, NONE for the root.
+	 */
+	public int parent(int node) {
+		return this.parent.get(node);
+	}
+
+	/**
+	 * @return the id of the first child of node. Only meaningful if
+	 * childCount(node) > 0.
+	 */
+	public int firstChild(int node) {
+		return this.firstChild.get(node);
+	}
+
+	public int childCount(int node) {
+		if(this.shared == null)
+			return this.childCount.get(node);
+		return this.shared.childCount(this.shared.classOf(node));
+	}
+
+	/**
+	 * @return the id of the k-th child of node (0 based).
+	 */
+	public int child(int node, int k) {
+		return firstChild(node) + k;
+	}
+
+	/**
+	 * @return the id of the child of node reached through the edge with
+	 * the given label id, NONE if there is no such child.
+	 */
+	public int childByLabel(int node, int labelId) {
+		int first = firstChild(node);
+		int end = first + childCount(node);
+		for(int c = first; c < end; c++)
+			if(labelId(c) == labelId)
+				return c;
+		return NONE;
+	}
+
+	/**
+	 * @return one of the KIND_* constants.
+	 */
+	public byte kind(int node) {
+		if(this.shared == null)
+			return this.kind.get(node);
+		return this.shared.kind(this.shared.classOf(node));
+	}
+
+	public boolean isTerminal(int node) {
+		return kind(node) == KIND_TERMINAL;
+	}
+
+	public boolean isNature(int node) {
+		return kind(node) == KIND_NATURE;
+	}
+
+	public boolean isPlayer1(int node) {
+		return kind(node) == KIND_PLAYER1;
+	}
+
+	public boolean isPlayer2(int node) {
+		return kind(node) == KIND_PLAYER2;
+	}
+
+	/**
+	 * @return the probability of reaching node from its ancestor when the
+	 * ancestor is nature (see GameNode.getWeight()).
+	 */
+	public double weight(int node) {
+		if(this.shared == null)
+			return this.weight.get(node);
+		if(node == 0)
+			return this.rootWeight;
+		int p = this.parent.get(node);
+		return this.shared.weight(this.shared.classOf(p), node - this.firstChild.get(p));
+	}
+
+	public int payoffP1(int node) {
+		if(this.shared == null)
+			return this.payoffP1.get(node);
+		return this.shared.payoffP1(this.shared.classOf(node));
+	}
+
+	public int payoffP2(int node) {
+		if(this.shared == null)
+			return this.payoffP2.get(node);
+		return this.shared.payoffP2(this.shared.classOf(node));
+	}
+
+	/**
+	 * @return the id of the label of the edge that leads to node.
+	 */
+	public int labelId(int node) {
+		return this.labelId.get(node);
+	}
+
+	/**
+	 * @return the id of the outcome string of node (see GameNode.getOutcome()).
+	 */
+	public int outcomeId(int node) {
+		return this.outcomeId.get(node);
+	}
+
+	/**
+	 * @return the index used by the game engine for node (GameNode.getValue()).
+	 */
+	public int nodeIndex(int node) {
+		return this.nodeIndex.get(node);
+	}
+
+	/**
+	 * @return the id of the node with the given engine index, NONE if the
+	 * tree has no such node.
+	 */
+	public int idOf(int index) {
+		return this.idByIndex.get(index);
+	}
+
+	/**
+	 * @return the number of distinct label (and outcome) strings.
+	 */
+	public int labelCount() {
+		return this.labels.length;
+	}
+
+	public String label(int labelId) {
+		return this.labels[labelId];
+	}
+
+	/**
+	 * @return the id of the given label string, NONE if no edge in the tree
+	 * uses it.
+	 */
+	public int labelIdOf(String label) {
+		Map<String, Integer> ids = this.labelIds;
+		if(ids == null) {
+			ids = new HashMap<String, Integer>();
+			for(int l = 0; l < this.labels.length; l++)
+				ids.put(this.labels[l], l);
+			this.labelIds = ids;
+		}
+		Integer id = ids.get(label);
+		return id == null ? NONE : id.intValue();
+	}
+
+	/**
+	 * @return the map from engine index to node id.
+	 */
+	IntIntHashMap idByIndex() {
+		return this.idByIndex;
+	}
+
+	/**
+	 * @return the id of the current node of the GameTreeInterface facade.
+	 */
+	public int getCurrentId() {
+		return this.cursor.getId();
+	}
+
+	public boolean setCurrentId(int node) {
+		return this.cursor.setId(node);
+	}
+
+	/**
+	 * Returns the number of nodes in the subtree rooted at each node
+	 * (the node included), computed on first use. The array is shared
+	 * and must not be modified.
+	 */
+	int[] subtreeSizes() {
+		int[] sizes = this.subtreeSize;
+		if(sizes == null) {
+			sizes = new int[this.size];
+			for(int n = this.size - 1; n >= 0; n--) {
+				sizes[n] += 1;
+				if(this.parent.get(n) != NONE)
+					sizes[this.parent.get(n)] += sizes[n];
+			}
+			this.subtreeSize = sizes;
+		}
+		return sizes;
+	}
+
+	/**
+	 * @return the payoff bounds, sizes and depths of the subtrees of this
+	 * tree, computed on first use (see SubtreeBounds).
+	 */
+	public SubtreeBounds getBounds() {
+		SubtreeBounds b = this.bounds;
+		if(b == null) {
+			b = SubtreeBounds.compute(this);
+			this.bounds = b;
+		}
+		return b;
+	}
+
+	/**
+	 * @return the identical subtrees of this tree shared as a DAG, edge
+	 * labels aside, computed on first use (see DagGameTree); for a
+	 * compressed tree, the classes it is kept as.
+	 */
+	public DagGameTree getDag() {
+		DagGameTree d = this.dag;
+		if(d == null) {
+			d = DagGameTree.compress(this);
+			this.dag = d;
+		}
+		return d;
+	}
+
+	/**
+	 * @return a GameNode view of node, for code written against GameNode.
+	 */
+	public GameNode view(int node) {
+		return new CompactGameNode(this, node);
+	}
+
+	/*
+	 * GameTreeInterface facade.
+	 */
+
+	/* (non-Javadoc)
+	 * @see gametree.GameTreeInterface#getRootNode()
+	 */
+	public GameNode getRootNode() {
+		return view(0);
+	}
+
+	/* (non-Javadoc)
+	 * @see gametree.GameTreeInterface#getCurrentNode()
+	 */
+	public GameNode getCurrentNode() {
+		return this.cursor.getCurrentNode();
+	}
+
+	/* (non-Javadoc)
+	 * @see gametree.GameTreeInterface#reset()
+	 */
+	public void reset() {
+		this.cursor.reset();
+	}
+
+	/* (non-Javadoc)
+	 * @see gametree.GameTreeInterface#goUp()
+	 */
+	public boolean goUp() {
+		return this.cursor.goUp();
+	}
+
+	/* (non-Javadoc)
+	 * @see gametree.GameTreeInterface#numberOfChildren()
+	 */
+	public int numberOfChildren() {
+		return this.cursor.numberOfChildren();
+	}
+
+	/* (non-Javadoc)
+	 * @see gametree.GameTreeInterface#goDown(java.lang.String)
+	 */
+	public boolean goDown(String label) {
+		return this.cursor.goDown(label);
+	}
+
+	/* (non-Javadoc)
+	 * @see gametree.GameTreeInterface#setCurrentNode(int)
+	 */
+	public boolean setCurrentNode(int index) {
+		return this.cursor.setCurrentNode(index);
+	}
+
+	/* (non-Javadoc)
+	 * @see gametree.GameTreeInterface#newCursor()
+	 */
+	public Cursor newCursor() {
+		return new Cursor(this, 0);
+	}
+
+	/* (non-Javadoc)
+	 * @see gametree.GameTreeInterface#getNodeByIndex(int)
+	 */
+	public GameNode getNodeByIndex(int index) {
+		int id = idOf(index);
+		if(id == NONE)
+			return null;
+		return view(id);
+	}
+
+	/* (non-Javadoc)
+	 * @see gametree.GameTreeInterface#getValidationSet()
+	 */
+	public List<Integer> getValidationSet() {
+		return this.validationSet;
+	}
+
+	/**
+	 * A position of its own in the tree: a node id, moved with the int
+	 * based cursor methods of the tree. Besides GameTreeCursor it moves by
+	 * id and label id without creating objects.
+	 */
+	public static final class Cursor implements GameTreeCursor {
+
+		private final CompactGameTree tree;
+		private int current;
+
+		Cursor(CompactGameTree tree, int current) {
+			this.tree = tree;
+			this.current = current;
+		}
+
+		public CompactGameTree getTree() {
+			return this.tree;
+		}
+
+		/**
+		 * @return the id of the node the cursor is at.
+		 */
+		public int getId() {
+			return this.current;
+		}
+
+		/**
+		 * Moves the cursor to a node id.
+		 * @return false if the tree has no node with that id.
+		 */
+		public boolean setId(int node) {
+			if(node < 0 || node >= this.tree.size)
+				return false;
+			this.current = node;
+			return true;
+		}
+
+		/**
+		 * Moves the cursor to the child reached through the edge with the
+		 * given label id (see CompactGameTree.labelIdOf()).
+		 * @return false if there is no such child.
+		 */
+		public boolean goDown(int labelId) {
+			int c = this.tree.childByLabel(this.current, labelId);
+			if(c == NONE)
+				return false;
+			this.current = c;
+			return true;
+		}
+
+		public GameNode getCurrentNode() {
+			return this.tree.view(this.current);
+		}
+
+		public void reset() {
+			this.current = 0;
+		}
+
+		public boolean goUp() {
+			int p = this.tree.parent.get(this.current);
+			if(p == NONE)
+				return false;
+			this.current = p;
+			return true;
+		}
+
+		public int numberOfChildren() {
+			return this.tree.childCount(this.current);
+		}
+
+		public boolean goDown(String label) {
+			int l = this.tree.labelIdOf(label);
+			return l != NONE && goDown(l);
+		}
+
+		public boolean setCurrentNode(int index) {
+			int id = this.tree.idOf(index);
+			if(id == NONE)
+				return false;
+			this.current = id;
+			return true;
+		}
+
+		public Cursor copy() {
+			return new Cursor(this.tree, this.current);
+		}
+	}
+
+	/**
+	 * Accumulates nodes in breadth-first order. The children of a node
+	 * must be added consecutively so that they end up in a contiguous
+	 * id range.
+	 */
+	static final class Builder {
+
+		int size;
+		int[] parent;
+		int[] firstChild;
+		int[] childCount;
+		byte[] kind;
+		double[] weight;
+		int[] payoffP1;
+		int[] payoffP2;
+		int[] labelId;
+		int[] outcomeId;
+		int[] nodeIndex;
+		final List<String> labels;
+		final Map<String, Integer> labelIds;
+
+		Builder(int capacity) {
+			this.size = 0;
+			this.parent = new int[capacity];
+			this.firstChild = new int[capacity];
+			this.childCount = new int[capacity];
+			this.kind = new byte[capacity];
+			this.weight = new double[capacity];
+			this.payoffP1 = new int[capacity];
+			this.payoffP2 = new int[capacity];
+			this.labelId = new int[capacity];
+			this.outcomeId = new int[capacity];
+			this.nodeIndex = new int[capacity];
+			this.labels = new ArrayList<String>();
+			this.labelIds = new HashMap<String, Integer>();
+		}
+
+		int intern(String s) {
+			Integer id = this.labelIds.get(s);
+			if(id == null) {
+				id = this.labels.size();
+				this.labels.add(s);
+				this.labelIds.put(s, id);
+			}
+			return id;
+		}
+
+		/**
+		 * Appends a node and returns its id.
+		 */
+		int add(int parent, String label, String outcome, double weight, int index, byte kind) {
+			if(this.size == this.parent.length)
+				grow();
+			int id = this.size++;
+			if(parent != NONE) {
+				if(this.childCount[parent] == 0)
+					this.firstChild[parent] = id;
+				else if(this.firstChild[parent] + this.childCount[parent] != id)
+					throw new IllegalStateException("Children of node " + parent + " are not contiguous.");
+				this.childCount[parent]++;
+			}
+			this.parent[id] = parent;
+			this.firstChild[id] = id + 1;
+			this.childCount[id] = 0;
+			this.kind[id] = kind;
+			this.weight[id] = weight;
+			this.labelId[id] = intern(label);
+			this.outcomeId[id] = intern(outcome);
+			this.nodeIndex[id] = index;
+			return id;
+		}
+
+		void setPayoffs(int id, int p1, int p2) {
+			this.payoffP1[id] = p1;
+			this.payoffP2[id] = p2;
+		}
+
+		private void grow() {
+			int capacity = this.parent.length << 1;
+			this.parent = Arrays.copyOf(this.parent, capacity);
+			this.firstChild = Arrays.copyOf(this.firstChild, capacity);
+			this.childCount = Arrays.copyOf(this.childCount, capacity);
+			this.kind = Arrays.copyOf(this.kind, capacity);
+			this.weight = Arrays.copyOf(this.weight, capacity);
+			this.payoffP1 = Arrays.copyOf(this.payoffP1, capacity);
+			this.payoffP2 = Arrays.copyOf(this.payoffP2, capacity);
+			this.labelId = Arrays.copyOf(this.labelId, capacity);
+			this.outcomeId = Arrays.copyOf(this.outcomeId, capacity);
+			this.nodeIndex = Arrays.copyOf(this.nodeIndex, capacity);
+		}
+
+		/**
+		 * @return the tree, compressed if the system property DAG_PROPERTY
+		 * is set (see DagGameTree).
+		 */
+		CompactGameTree build(List<Integer> validationSet) {
+			int n = this.size;
+			CompactGameTree t = new CompactGameTree(n, Arrays.copyOf(this.parent, n), Arrays.copyOf(this.firstChild, n),
+					Arrays.copyOf(this.childCount, n), Arrays.copyOf(this.kind, n), Arrays.copyOf(this.weight, n),
+					Arrays.copyOf(this.payoffP1, n), Arrays.copyOf(this.payoffP2, n), Arrays.copyOf(this.labelId, n),
+					Arrays.copyOf(this.outcomeId, n), Arrays.copyOf(this.nodeIndex, n),
+					this.labels.toArray(new String[this.labels.size()]), null, validationSet);
+			return Boolean.getBoolean(DagGameTree.DAG_PROPERTY) ? compress(t) : t;
+		}
+	}
+
+}
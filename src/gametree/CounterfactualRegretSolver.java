@@ -0,0 +1,281 @@
+package gametree;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Counterfactual regret minimization with the CFR+ update rules
+ * (regrets floored at zero, linearly weighted average strategy).
+ *
+ * The solver plays a single strategy against itself: the P1 groups of
+ * the validation set are played when seated as P1 and the P2 groups
+ * when seated as P2, so the average strategy it produces is a complete
+ * PlayStrategy. Regrets and strategy sums are primitive arrays indexed
+ * by key position (StrategyLayout order); reach probabilities and
+ * utilities are primitive arrays indexed by node id.
+ *
+ * Every iteration walks the tree twice on a ForkJoinPool, splitting
+ * independent subtrees (and therefore nature branches) across workers,
+ * and then updates the regrets of both seats in parallel. Both seats
+ * are updated simultaneously from the same current strategy.
+ *
+ * An instance is not thread-safe: iterate() must not be called
+ * concurrently.
+ */
+public final class CounterfactualRegretSolver {
+
+	private final CompactGameTree tree;
+	private final StrategyLayout layout;
+	private final ForkJoinPool pool;
+	private final ParallelTreeWalker walker;
+
+	private final double[] regret;
+	private final double[] strategySum;
+	private final double[] current;
+
+	private final double[] reachP1;
+	private final double[] reachP2;
+	private final double[] reachChance;
+	private final double[] utilityP1;
+	private final double[] utilityP2;
+
+	private final int[] decisionNodesP1;
+	private final int[] decisionNodesP2;
+
+	private final ParallelTreeWalker.Visitor forward;
+	private final ParallelTreeWalker.Visitor backward;
+
+	private int iterations;
+
+	public CounterfactualRegretSolver(StrategyLayout layout) {
+		this(layout, ForkJoinPool.commonPool());
+	}
+
+	public CounterfactualRegretSolver(StrategyLayout layout, ForkJoinPool pool) {
+		this.tree = layout.getTree();
+		this.layout = layout;
+		this.pool = pool;
+		this.walker = new ParallelTreeWalker(this.tree, pool);
+
+		int keys = layout.keyCount();
+		this.regret = new double[keys];
+		this.strategySum = new double[keys];
+		this.current = new double[keys];
+
+		int n = this.tree.size();
+		this.reachP1 = new double[n];
+		this.reachP2 = new double[n];
+		this.reachChance = new double[n];
+		this.utilityP1 = new double[n];
+		this.utilityP2 = new double[n];
+
+		this.decisionNodesP1 = decisionNodes(CompactGameTree.KIND_PLAYER1);
+		this.decisionNodesP2 = decisionNodes(CompactGameTree.KIND_PLAYER2);
+
+		this.forward = new ParallelTreeWalker.Visitor() {
+			@Override
+			public void visit(int node) {
+				propagateReach(node);
+			}
+		};
+		this.backward = new ParallelTreeWalker.Visitor() {
+			@Override
+			public void visit(int node) {
+				computeUtility(node);
+			}
+		};
+		this.iterations = 0;
+	}
+
+	private int[] decisionNodes(byte seat) {
+		int count = 0;
+		for(int n = 0; n < this.tree.size(); n++)
+			if(this.tree.kind(n) == seat && this.tree.childCount(n) > 0)
+				count++;
+		int[] nodes = new int[count];
+		count = 0;
+		for(int n = 0; n < this.tree.size(); n++)
+			if(this.tree.kind(n) == seat && this.tree.childCount(n) > 0)
+				nodes[count++] = n;
+		return nodes;
+	}
+
+	public StrategyLayout getLayout() {
+		return this.layout;
+	}
+
+	/**
+	 * @return the number of iterations performed so far.
+	 */
+	public int getIterations() {
+		return this.iterations;
+	}
+
+	/**
+	 * Performs one CFR+ iteration.
+	 */
+	public void iterate() {
+		this.iterations++;
+		regretMatching();
+		this.walker.topDown(this.forward);
+		this.walker.bottomUp(this.backward);
+		final int weight = this.iterations;
+		this.pool.invoke(new RecursiveAction() {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected void compute() {
+				ForkJoinTask.invokeAll(new SeatUpdate(decisionNodesP1, true, weight),
+						new SeatUpdate(decisionNodesP2, false, weight));
+			}
+		});
+	}
+
+	/**
+	 * Writes the average strategy, normalized per group, into out.
+	 * @param out an array with layout.keyCount() positions.
+	 */
+	public void getAverageStrategy(double[] out) {
+		normalize(this.strategySum, out);
+	}
+
+	/**
+	 * Writes the strategy used by the last iteration into out.
+	 * @param out an array with layout.keyCount() positions.
+	 */
+	public void getCurrentStrategy(double[] out) {
+		System.arraycopy(this.current, 0, out, 0, this.current.length);
+	}
+
+	/**
+	 * Forgets all accumulated regrets and strategy sums.
+	 */
+	public void reset() {
+		Arrays.fill(this.regret, 0);
+		Arrays.fill(this.strategySum, 0);
+		this.iterations = 0;
+	}
+
+	private void regretMatching() {
+		normalize(this.regret, this.current);
+	}
+
+	/**
+	 * Normalizes every group of weights into out, using a uniform
+	 * distribution for groups whose weights add up to zero.
+	 */
+	private void normalize(double[] weights, double[] out) {
+		for(int g = 0, groups = this.layout.groupCount(); g < groups; g++) {
+			int from = this.layout.groupOffset(g);
+			int to = this.layout.groupOffset(g + 1);
+			double sum = 0;
+			for(int k = from; k < to; k++)
+				sum += weights[k];
+			if(sum > 0) {
+				for(int k = from; k < to; k++)
+					out[k] = weights[k] / sum;
+			} else {
+				double uniform = 1.0 / (to - from);
+				for(int k = from; k < to; k++)
+					out[k] = uniform;
+			}
+		}
+	}
+
+	private void propagateReach(int node) {
+		int p = this.tree.parent(node);
+		if(p == CompactGameTree.NONE) {
+			this.reachP1[node] = 1;
+			this.reachP2[node] = 1;
+			this.reachChance[node] = 1;
+			return;
+		}
+		double r1 = this.reachP1[p];
+		double r2 = this.reachP2[p];
+		double rc = this.reachChance[p];
+		int k = this.layout.edgeKey(node);
+		if(k < 0)
+			rc *= this.layout.edgeProbability(node);
+		else if(this.tree.isPlayer1(p))
+			r1 *= this.current[k];
+		else
+			r2 *= this.current[k];
+		this.reachP1[node] = r1;
+		this.reachP2[node] = r2;
+		this.reachChance[node] = rc;
+	}
+
+	private void computeUtility(int node) {
+		int count = this.tree.childCount(node);
+		if(count == 0) {
+			this.utilityP1[node] = this.tree.payoffP1(node);
+			this.utilityP2[node] = this.tree.payoffP2(node);
+			return;
+		}
+		int first = this.tree.firstChild(node);
+		int end = first + count;
+		double u1 = 0;
+		double u2 = 0;
+		for(int c = first; c < end; c++) {
+			int k = this.layout.edgeKey(c);
+			double pr = k < 0 ? this.layout.edgeProbability(c) : this.current[k];
+			u1 += pr * this.utilityP1[c];
+			u2 += pr * this.utilityP2[c];
+		}
+		this.utilityP1[node] = u1;
+		this.utilityP2[node] = u2;
+	}
+
+	/**
+	 * Accumulates the regrets and strategy sums of one seat. The two
+	 * seats own disjoint groups, so both updates can run concurrently.
+	 */
+	private final class SeatUpdate extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final int[] nodes;
+		private final boolean p1;
+		private final int weight;
+
+		SeatUpdate(int[] nodes, boolean p1, int weight) {
+			this.nodes = nodes;
+			this.p1 = p1;
+			this.weight = weight;
+		}
+
+		@Override
+		protected void compute() {
+			final double[] own = this.p1 ? utilityP1 : utilityP2;
+			final double[] ownReach = this.p1 ? reachP1 : reachP2;
+			final double[] otherReach = this.p1 ? reachP2 : reachP1;
+			for(int i = 0; i < this.nodes.length; i++) {
+				int n = this.nodes[i];
+				double counterfactual = otherReach[n] * reachChance[n];
+				double self = ownReach[n] * this.weight;
+				double base = own[n];
+				int first = tree.firstChild(n);
+				int end = first + tree.childCount(n);
+				for(int c = first; c < end; c++) {
+					int k = layout.edgeKey(c);
+					if(k < 0) continue;
+					regret[k] += counterfactual * (own[c] - base);
+					strategySum[k] += self * current[k];
+				}
+			}
+			//CFR+: negative regrets are discarded at the end of every iteration.
+			for(int i = 0; i < this.nodes.length; i++) {
+				int n = this.nodes[i];
+				int first = tree.firstChild(n);
+				int end = first + tree.childCount(n);
+				for(int c = first; c < end; c++) {
+					int k = layout.edgeKey(c);
+					if(k >= 0 && regret[k] < 0)
+						regret[k] = 0;
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,340 @@
+package gametree;
+
+import java.util.Arrays;
+
+import trace.Tracing;
+import trace.TreeBuildEvent;
+
+/**
+ * The subtrees of a CompactGameTree with identical contents, shared as a
+ * directed acyclic graph.
+ *
+ * Games often repeat the same subgame under different branches, for
+ * instance after every outcome of a nature node. Two nodes belong to the
+ * same class when they have the same kind and payoffs and their children,
+ * in order, have the same weights and belong to the same classes, and
+ * optionally the same edge labels; the classes are found bottom-up by
+ * hash-consing, so the whole compression costs one pass over the nodes.
+ * Every class keeps a single copy of its edges, and a solver whose result
+ * at a node only depends on the subtree below it can compute it once per
+ * class (see BackwardInductionSolver.solve(DagGameTree)).
+ *
+ * Positions are still the node ids of the CompactGameTree, with their
+ * own engine indices, so getNodeByIndex() and setCurrentNode() work as
+ * before, and classOf() maps a position to its class. Classes are
+ * numbered children first, so a forward loop over the classes visits
+ * every class after the classes of its children.
+ *
+ * CompactGameTree.getDag() compresses a tree once and keeps the tree as
+ * it is, for solvers that want the classes as well.
+ * CompactGameTree.compress() replaces the tree by the classes instead,
+ * keeping six ints per position instead of the full columns, so memory
+ * shrinks with the number of distinct subtrees; setting the system
+ * property DAG_PROPERTY builds every CompactGameTree that way (snapshots
+ * are loaded as stored).
+ */
+public final class DagGameTree {
+
+	/**
+	 * Name of the system property that, when set to true, has every
+	 * CompactGameTree built compressed (see CompactGameTree.compress()).
+	 */
+	public static final String DAG_PROPERTY = "gametree.dag";
+
+	private final CompactGameTree tree;
+	private final boolean labels;
+	private final int[] classOf;
+	private final int classCount;
+	//Per class: a node of the class and its contents
+	private final int[] representative;
+	private final byte[] kind;
+	private final int[] payoffP1;
+	private final int[] payoffP2;
+	private final int[] firstEdge;
+	//Per edge: the class of the child, its weight and its label
+	private final int[] edgeClass;
+	private final double[] edgeWeight;
+	private final int[] edgeLabel;
+
+	private DagGameTree(CompactGameTree tree, boolean labels) {
+		this.tree = tree;
+		this.labels = labels;
+		int n = tree.size();
+		this.classOf = new int[n];
+		int[] rep = new int[n];
+		int[] first = new int[n + 1];
+		int[] edges = new int[Math.max(0, n - 1)];
+		Table table = new Table();
+
+		//Children have larger ids than their parents
+		int classes = 0;
+		int edgeCount = 0;
+		for(int node = n - 1; node >= 0; node--) {
+			long h = hash(node);
+			int c = table.find(h, node, rep);
+			if(c == CompactGameTree.NONE) {
+				c = classes++;
+				rep[c] = node;
+				first[c] = edgeCount;
+				int f = tree.firstChild(node);
+				for(int e = 0; e < tree.childCount(node); e++)
+					edges[edgeCount++] = this.classOf[f + e];
+				first[c + 1] = edgeCount;
+				table.add(h, c);
+			}
+			this.classOf[node] = c;
+		}
+
+		this.classCount = classes;
+		this.representative = Arrays.copyOf(rep, classes);
+		this.firstEdge = Arrays.copyOf(first, classes + 1);
+		this.edgeClass = Arrays.copyOf(edges, edgeCount);
+		this.kind = new byte[classes];
+		this.payoffP1 = new int[classes];
+		this.payoffP2 = new int[classes];
+		this.edgeWeight = new double[edgeCount];
+		this.edgeLabel = new int[edgeCount];
+		for(int c = 0; c < classes; c++) {
+			int node = rep[c];
+			this.kind[c] = tree.kind(node);
+			this.payoffP1[c] = tree.payoffP1(node);
+			this.payoffP2[c] = tree.payoffP2(node);
+			int f = tree.firstChild(node);
+			for(int e = first[c]; e < first[c + 1]; e++) {
+				this.edgeWeight[e] = tree.weight(f + e - first[c]);
+				this.edgeLabel[e] = tree.labelId(f + e - first[c]);
+			}
+		}
+	}
+
+	/**
+	 * The classes of d, describing tree instead of the tree they were
+	 * computed from, which must have the same node ids.
+	 */
+	private DagGameTree(DagGameTree d, CompactGameTree tree) {
+		this.tree = tree;
+		this.labels = d.labels;
+		this.classOf = d.classOf;
+		this.classCount = d.classCount;
+		this.representative = d.representative;
+		this.kind = d.kind;
+		this.payoffP1 = d.payoffP1;
+		this.payoffP2 = d.payoffP2;
+		this.firstEdge = d.firstEdge;
+		this.edgeClass = d.edgeClass;
+		this.edgeWeight = d.edgeWeight;
+		this.edgeLabel = d.edgeLabel;
+	}
+
+	/**
+	 * @return these classes over the compressed form of their tree, so that
+	 * the tree they were computed from is not kept.
+	 */
+	DagGameTree over(CompactGameTree compressed) {
+		return new DagGameTree(this, compressed);
+	}
+
+	/**
+	 * Compresses tree, sharing subtrees that differ only in their edge
+	 * labels (and node indices).
+	 * @param tree the tree.
+	 * @return the compressed tree.
+	 */
+	public static DagGameTree compress(CompactGameTree tree) {
+		return compress(tree, false);
+	}
+
+	/**
+	 * Compresses tree.
+	 * @param tree the tree.
+	 * @param labels true to only share subtrees whose edge labels match as
+	 * well, as needed by results that refer to the keys of the game.
+	 * @return the compressed tree.
+	 */
+	public static DagGameTree compress(CompactGameTree tree, boolean labels) {
+		TreeBuildEvent event = Tracing.AVAILABLE ? TreeBuildEvent.start("DagGameTree") : null;
+		DagGameTree dag = new DagGameTree(tree, labels);
+		if(event != null)
+			event.finish(dag.classCount);
+		return dag;
+	}
+
+	private long hash(int node) {
+		long h = this.tree.kind(node);
+		h = h * 0x9E3779B97F4A7C15L + this.tree.payoffP1(node);
+		h = h * 0x9E3779B97F4A7C15L + this.tree.payoffP2(node);
+		int f = this.tree.firstChild(node);
+		for(int c = f; c < f + this.tree.childCount(node); c++) {
+			h = h * 0x9E3779B97F4A7C15L + this.classOf[c];
+			h = h * 0x9E3779B97F4A7C15L + Double.doubleToLongBits(this.tree.weight(c));
+			if(this.labels)
+				h = h * 0x9E3779B97F4A7C15L + this.tree.labelId(c);
+		}
+		return h ^ (h >>> 29);
+	}
+
+	/**
+	 * @return true if the subtrees of nodes a and b, whose children are
+	 * already classified, have the same contents.
+	 */
+	private boolean same(int a, int b) {
+		CompactGameTree t = this.tree;
+		int count = t.childCount(a);
+		if(t.kind(a) != t.kind(b) || t.payoffP1(a) != t.payoffP1(b) || t.payoffP2(a) != t.payoffP2(b)
+				|| count != t.childCount(b))
+			return false;
+		int fa = t.firstChild(a);
+		int fb = t.firstChild(b);
+		for(int i = 0; i < count; i++) {
+			if(this.classOf[fa + i] != this.classOf[fb + i]
+					|| Double.doubleToLongBits(t.weight(fa + i)) != Double.doubleToLongBits(t.weight(fb + i))
+					|| this.labels && t.labelId(fa + i) != t.labelId(fb + i))
+				return false;
+		}
+		return true;
+	}
+
+	public CompactGameTree getTree() {
+		return this.tree;
+	}
+
+	/**
+	 * @return true if shared subtrees also have the same edge labels.
+	 */
+	public boolean comparesLabels() {
+		return this.labels;
+	}
+
+	/**
+	 * @return the number of distinct subtrees.
+	 */
+	public int classCount() {
+		return this.classCount;
+	}
+
+	/**
+	 * @return the number of edges kept, one copy per class.
+	 */
+	public int edgeCount() {
+		return this.edgeClass.length;
+	}
+
+	/**
+	 * @param node a CompactGameTree node id.
+	 * @return the class of the subtree rooted at node.
+	 */
+	public int classOf(int node) {
+		return this.classOf[node];
+	}
+
+	/**
+	 * @return the class of the whole tree.
+	 */
+	public int rootClass() {
+		return this.classOf[this.tree.root()];
+	}
+
+	/**
+	 * @return the first node, in id order from the leaves up, whose
+	 * subtree belongs to class c.
+	 */
+	public int representative(int c) {
+		return this.representative[c];
+	}
+
+	public byte kind(int c) {
+		return this.kind[c];
+	}
+
+	public int payoffP1(int c) {
+		return this.payoffP1[c];
+	}
+
+	public int payoffP2(int c) {
+		return this.payoffP2[c];
+	}
+
+	/**
+	 * @return the number of children of the nodes of class c.
+	 */
+	public int childCount(int c) {
+		return this.firstEdge[c + 1] - this.firstEdge[c];
+	}
+
+	/**
+	 * @return the class of child i of the nodes of class c.
+	 */
+	public int child(int c, int i) {
+		return this.edgeClass[this.firstEdge[c] + i];
+	}
+
+	/**
+	 * @return the weight of the edge to child i of the nodes of class c
+	 * (see CompactGameTree.weight()).
+	 */
+	public double weight(int c, int i) {
+		return this.edgeWeight[this.firstEdge[c] + i];
+	}
+
+	/**
+	 * @return the label id of the edge to child i of the representative of
+	 * class c; the same for every node of the class only if
+	 * comparesLabels().
+	 */
+	public int labelId(int c, int i) {
+		return this.edgeLabel[this.firstEdge[c] + i];
+	}
+
+	/**
+	 * Open addressing table from content hash to class, comparing the
+	 * contents of the representatives on hash collisions.
+	 */
+	private final class Table {
+
+		private int[] slots;
+		private long[] hashes;
+		private int size;
+
+		Table() {
+			this.slots = new int[16];
+			this.hashes = new long[16];
+			Arrays.fill(this.slots, CompactGameTree.NONE);
+			this.size = 0;
+		}
+
+		int find(long h, int node, int[] representative) {
+			int mask = this.slots.length - 1;
+			for(int i = (int) h & mask; this.slots[i] != CompactGameTree.NONE; i = (i + 1) & mask)
+				if(this.hashes[i] == h && same(representative[this.slots[i]], node))
+					return this.slots[i];
+			return CompactGameTree.NONE;
+		}
+
+		void add(long h, int c) {
+			if(2 * (this.size + 1) > this.slots.length)
+				grow();
+			insert(h, c);
+			this.size++;
+		}
+
+		private void insert(long h, int c) {
+			int mask = this.slots.length - 1;
+			int i = (int) h & mask;
+			while(this.slots[i] != CompactGameTree.NONE)
+				i = (i + 1) & mask;
+			this.slots[i] = c;
+			this.hashes[i] = h;
+		}
+
+		private void grow() {
+			int[] oldSlots = this.slots;
+			long[] oldHashes = this.hashes;
+			this.slots = new int[oldSlots.length * 2];
+			this.hashes = new long[oldSlots.length * 2];
+			Arrays.fill(this.slots, CompactGameTree.NONE);
+			for(int i = 0; i < oldSlots.length; i++)
+				if(oldSlots[i] != CompactGameTree.NONE)
+					insert(oldHashes[i], oldSlots[i]);
+		}
+	}
+}
@@ -0,0 +1,194 @@
+package gametree;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Iterated elimination of strictly dominated pure strategies of a
+ * NormalForm.
+ *
+ * A pure strategy is strictly dominated when another pure strategy of the
+ * same player pays him more against every remaining strategy of the
+ * opponent; no rational player plays it, so it can be removed, which may
+ * in turn make strategies of the opponent dominated. Rounds alternate
+ * between the players until neither has a dominated strategy left. Every
+ * round tests all the remaining strategies of a player at once, in
+ * parallel on a ForkJoinPool, and removes all the dominated ones: strict
+ * dominance is transitive, so the strategies that dominate them are
+ * never removed in the same round, and the result does not depend on the
+ * order of the removals.
+ *
+ * A round first copies the payoffs of the player against the remaining
+ * strategies of the opponent into a dense array, a row per strategy, so
+ * the tests read contiguous memory, and only compares a strategy with the
+ * ones whose payoffs add up to at least as much, since a strategy can
+ * only be dominated by those.
+ */
+public final class DominanceEliminator {
+
+	//Strategies tested by the smallest task
+	private static final int STRATEGIES_PER_TASK = 8;
+
+	private final NormalForm form;
+	//Per player: the strategies still alive
+	private final boolean[][] alive;
+	private final int[][] survivors;
+	private int rounds;
+
+	private DominanceEliminator(NormalForm form) {
+		this.form = form;
+		this.alive = new boolean[2][];
+		this.survivors = new int[2][];
+		for(int p = 0; p < 2; p++) {
+			this.alive[p] = new boolean[form.strategyCount(p)];
+			this.survivors[p] = new int[form.strategyCount(p)];
+			for(int s = 0; s < this.alive[p].length; s++) {
+				this.alive[p][s] = true;
+				this.survivors[p][s] = s;
+			}
+		}
+		this.rounds = 0;
+	}
+
+	/**
+	 * Eliminates the dominated strategies of form using the common
+	 * ForkJoinPool.
+	 * @param form the normal form.
+	 * @return the strategies that survive.
+	 */
+	public static DominanceEliminator eliminate(NormalForm form) {
+		return eliminate(form, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Eliminates the dominated strategies of form.
+	 * @param form the normal form.
+	 * @param pool the pool that runs the tests.
+	 * @return the strategies that survive.
+	 */
+	public static DominanceEliminator eliminate(NormalForm form, ForkJoinPool pool) {
+		DominanceEliminator e = new DominanceEliminator(form);
+		int unchanged = 0;
+		int player = NormalForm.P1;
+		//Stop once both players went through a round without removals
+		while(unchanged < 2) {
+			int[] remaining = e.survivors[player];
+			boolean[] dominated = new boolean[remaining.length];
+			double[] payoffs = e.payoffs(player);
+			int width = e.survivors[1 - player].length;
+			double[] sum = new double[remaining.length];
+			for(int a = 0; a < remaining.length; a++)
+				for(int o = a * width; o < (a + 1) * width; o++)
+					sum[a] += payoffs[o];
+			pool.invoke(e.new Test(payoffs, width, sum, dominated, 0, remaining.length));
+			int count = 0;
+			for(int i = 0; i < remaining.length; i++) {
+				if(dominated[i])
+					e.alive[player][remaining[i]] = false;
+				else
+					remaining[count++] = remaining[i];
+			}
+			if(count < remaining.length) {
+				e.survivors[player] = Arrays.copyOf(remaining, count);
+				e.rounds++;
+				unchanged = 0;
+			}
+			unchanged++;
+			player = 1 - player;
+		}
+		return e;
+	}
+
+	public NormalForm getForm() {
+		return this.form;
+	}
+
+	/**
+	 * @param player NormalForm.P1 or NormalForm.P2.
+	 * @param strategy a pure strategy of player.
+	 * @return true if strategy survived the elimination.
+	 */
+	public boolean isAlive(int player, int strategy) {
+		return this.alive[player][strategy];
+	}
+
+	/**
+	 * @param player NormalForm.P1 or NormalForm.P2.
+	 * @return the pure strategies of player that survived, in increasing
+	 * order. The array is shared and must not be modified.
+	 */
+	public int[] survivors(int player) {
+		return this.survivors[player];
+	}
+
+	/**
+	 * @return the number of rounds that removed at least one strategy.
+	 */
+	public int rounds() {
+		return this.rounds;
+	}
+
+	/**
+	 * @return the payoffs of player against the remaining strategies of the
+	 * opponent, a row per remaining strategy of player.
+	 */
+	private double[] payoffs(int player) {
+		int[] mine = this.survivors[player];
+		int[] opponent = this.survivors[1 - player];
+		double[] m = new double[mine.length * opponent.length];
+		int i = 0;
+		for(int a: mine)
+			for(int o: opponent)
+				m[i++] = player == NormalForm.P1 ? this.form.payoffP1(a, o) : this.form.payoffP2(o, a);
+		return m;
+	}
+
+	/**
+	 * Tests a range of the remaining strategies of a player.
+	 */
+	private final class Test extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final double[] payoffs;
+		private final int width;
+		private final double[] sum;
+		private final boolean[] dominated;
+		private final int from;
+		private final int to;
+
+		Test(double[] payoffs, int width, double[] sum, boolean[] dominated, int from, int to) {
+			this.payoffs = payoffs;
+			this.width = width;
+			this.sum = sum;
+			this.dominated = dominated;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if(this.to - this.from > STRATEGIES_PER_TASK) {
+				int middle = (this.from + this.to) >>> 1;
+				invokeAll(new Test(this.payoffs, this.width, this.sum, this.dominated, this.from, middle),
+						new Test(this.payoffs, this.width, this.sum, this.dominated, middle, this.to));
+				return;
+			}
+			//Rounding may make the sum of a dominating strategy equal, not larger
+			for(int b = this.from; b < this.to; b++)
+				for(int a = 0; a < this.sum.length && !this.dominated[b]; a++)
+					if(a != b && this.sum[a] >= this.sum[b] && dominates(a, b))
+						this.dominated[b] = true;
+		}
+
+		private boolean dominates(int a, int b) {
+			int i = a * this.width;
+			int j = b * this.width;
+			for(int o = 0; o < this.width; o++)
+				if(this.payoffs[i + o] <= this.payoffs[j + o])
+					return false;
+			return true;
+		}
+	}
+}
@@ -4,6 +4,8 @@ import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
 
+import tree.Node;
+
 public class GameNode implements GameNodeInterface {
 
 	private GameNode ancestor;
@@ -16,6 +18,19 @@ public class GameNode implements GameNodeInterface {
 	private int terminalOutcomeP1;
 	private int terminalOutcomeP2;
 	
+	//Lazy nodes keep their engine node until their children are materialized
+	private Node source;
+	private GameTree owner;
+	private volatile boolean expanded;
+	
+	/**
+	 * Constructor for subclasses that keep the node data elsewhere and
+	 * override every accessor (see CompactGameNode).
+	 */
+	protected GameNode() {
+		this.expanded = true;
+	}
+	
 	public GameNode(String label, double weight, int value, String type, String outcome) {
 		this.ancestor = null;
 		this.label = label;
@@ -26,6 +41,7 @@ public class GameNode implements GameNodeInterface {
 		this.children = new HashMap<String,GameNode>();
 		this.terminalOutcomeP1 = 0;
 		this.terminalOutcomeP2 = 0;
+		this.expanded = true;
 	}
 	
 	public GameNode(GameNode ancestor, String label, double weight, int value, String type, String outcome) {
@@ -38,6 +54,46 @@ public class GameNode implements GameNodeInterface {
 		this.children = new HashMap<String,GameNode>();
 		this.terminalOutcomeP1 = 0;
 		this.terminalOutcomeP2 = 0;
+		this.expanded = true;
+	}
+	
+	/**
+	 * Creates a node whose children are only materialized, through owner,
+	 * the first time they are needed.
+	 */
+	GameNode(GameNode ancestor, String label, double weight, int value, String type, String outcome, Node source, GameTree owner) {
+		this(ancestor, label, weight, value, type, outcome);
+		this.children = null;
+		this.source = source;
+		this.owner = owner;
+		this.expanded = false;
+	}
+	
+	private Map<String,GameNode> children() {
+		if(!this.expanded)
+			expand();
+		return this.children;
+	}
+	
+	/*
+	 * The children map is fully built before the volatile write to expanded,
+	 * so threads that see expanded set also see the complete map.
+	 */
+	private synchronized void expand() {
+		if(this.expanded)
+			return;
+		Node[] descendants = this.source.getChildren();
+		double[] descendantsWeight = this.source.getChildrenWeight();
+		String[] descendantsOutcome = this.source.getOutcome();
+		Map<String,GameNode> map = new HashMap<String,GameNode>();
+		for(int i = 0; i < descendants.length; i++) {
+			GameNode child = this.owner.materialize(this, descendants[i], descendantsOutcome[i], descendantsWeight[i]);
+			map.put(child.getLabel(), child);
+		}
+		this.children = map;
+		this.source = null;
+		this.owner = null;
+		this.expanded = true;
 	}
 	
 	/* (non-Javadoc)
@@ -96,10 +152,11 @@ public class GameNode implements GameNodeInterface {
 	 * @see gametree.GameNodeInterface#getDescendant(java.lang.String)
 	 */
 	public GameNode getDescendant(String label) throws GameNodeDoesNotExistException {
-		if(this.children.containsKey(label)) 
-			return this.children.get(label);
+		Map<String,GameNode> children = children();
+		if(children.containsKey(label)) 
+			return children.get(label);
 		else
-			if(this.children.keySet().size() > 0)
+			if(children.keySet().size() > 0)
 				throw new GameNodeDoesNotExistException("Node with label '" + this.label + "' does not have a descendeant with label + '" + label + "'.");
 			else 
 				throw new GameNodeDoesNotExistException("node with label '" + this.label + "' is terminal.");
@@ -109,28 +166,31 @@ public class GameNode implements GameNodeInterface {
 	 * @see gametree.GameNodeInterface#getChildrenLabels()
 	 */
 	public Iterator<String> getChildrenLabels() {
-		return this.children.keySet().iterator();
+		return children().keySet().iterator();
 	}
 	
 	/* (non-Javadoc)
 	 * @see gametree.GameNodeInterface#getChildren()
 	 */
 	public Iterator<GameNode> getChildren() {
-		return this.children.values().iterator();
+		return children().values().iterator();
 	}
 
 	/* (non-Javadoc)
 	 * @see gametree.GameNodeInterface#numberOfChildren()
 	 */
 	public int numberOfChildren() {
-		return this.children.size();
+		Node s = this.source;
+		if(!this.expanded && s != null)
+			return s.getChildren().length;
+		return children().size();
 	}
 
 	/* (non-Javadoc)
 	 * @see gametree.GameNodeInterface#addChild(gametree.GameNode)
 	 */
 	public void addChild(GameNode child) {
-		this.children.put(child.getLabel(), child);
+		children().put(child.getLabel(), child);
 	}
 
 	/* (non-Javadoc)
@@ -1,30 +1,58 @@
 package gametree;
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.Map;
 import java.util.Queue;
 
+import trace.Tracing;
+import trace.TreeBuildEvent;
 import tree.GameTreeClass;
 import tree.Node;
 
+/**
+ * The game tree as GameNode objects.
+ *
+ * Once built the nodes never change (a lazy tree only adds the nodes it
+ * materializes, under the lock of their parent, and builds its node index
+ * under the lock of the tree), so a tree can be shared between threads as
+ * soon as it is returned. The GameTreeInterface navigation methods move a single cursor
+ * kept by the tree; threads that walk the tree at the same time should
+ * use a GameTreeCursor each (see newCursor()).
+ */
 public class GameTree implements GameTreeInterface {
 	
-	private GameNode root;
-	private GameNode current;
-	
-	private Map<Integer, GameNode> nodeIndex;
+	private final GameNode root;
+	//The engine's tree, kept by a lazy tree until its node index is built
+	private Node source;
+	private volatile NodeTable nodeIndex;
 	private final List<Integer> validationSet;
+	//The cursor of the GameTreeInterface navigation methods
+	private final Cursor cursor;
 	
-	private GameTree(List<List<Integer>> validationSet) { 
-		this.nodeIndex = new HashMap<Integer, GameNode>();
+	private GameTree(GameTreeClass gtc, boolean lazy) { 
+		List<List<Integer>> validationSet = gtc.getPosibilities();
 		this.validationSet = new ArrayList<Integer>();
 		for(int i = 0; i < validationSet.size(); i++) {
 			for(int j = 0; j < validationSet.get(i).size(); j++) 
 				this.validationSet.add(validationSet.get(i).get(j));
 		}
+		Node root = gtc.getCurrent();
+		if(!lazy) {
+			this.nodeIndex = new NodeTable(root);
+			this.root = build(root);
+			this.nodeIndex.setNode(0, this.root);
+		} else if(root.getChildren().length == 0) {
+			this.root = new GameNode(root.getLabel(), 0 , root.getValue(), root.getType(), "");
+			this.root.setPayoffP1(Integer.parseInt(root.getOutcome()[0]));
+			this.root.setPayoffP2(Integer.parseInt(root.getOutcome()[1]));
+		} else {
+			this.root = new GameNode(null, root.getLabel(), 0 , root.getValue(), root.getType(), "", root, this);
+		}
+		if(lazy)
+			this.source = root;
+		this.cursor = new Cursor(this, this.root);
 	}
 	
 	/* (non-Javadoc)
@@ -38,80 +66,211 @@ public class GameTree implements GameTreeInterface {
 	 * @see gametree.GameTreeInterface#getCurrentNode()
 	 */
 	public GameNode getCurrentNode() {
-		return this.current;
+		return this.cursor.getCurrentNode();
 	}
 	
 	/* (non-Javadoc)
 	 * @see gametree.GameTreeInterface#reset()
 	 */
 	public void reset() {
-		this.current = root;
+		this.cursor.reset();
 	}
 	
 	/* (non-Javadoc)
 	 * @see gametree.GameTreeInterface#goUp()
 	 */
 	public boolean goUp() {
-		GameNode temp = null;
-		try {
-			temp = this.current.getAncestor();
-		} catch (GameNodeDoesNotExistException e) {
-			return false;
-		}
-		this.current = temp;
-		return true;
+		return this.cursor.goUp();
 	}
 	
 	/* (non-Javadoc)
 	 * @see gametree.GameTreeInterface#numberOfChildren()
 	 */
 	public int numberOfChildren() {
-		return this.current.numberOfChildren();
+		return this.cursor.numberOfChildren();
 	}
 	
 	/* (non-Javadoc)
 	 * @see gametree.GameTreeInterface#goDown(java.lang.String)
 	 */
 	public boolean goDown(String label) {
-		GameNode temp = null;
-		try {
-			temp = this.current.getDescendant(label);
-		} catch (GameNodeDoesNotExistException e) {
-			return false;
-		}
-		this.current = temp;
-		return true;
+		return this.cursor.goDown(label);
 	}
 	
 	/* (non-Javadoc)
 	 * @see gametree.GameTreeInterface#setCurrentNode(int)
 	 */
 	public boolean setCurrentNode(int index) {
-		if(this.nodeIndex.containsKey(index)) {
-			this.current = this.nodeIndex.get(index);
-			return true;
-		}
-		return false;
+		return this.cursor.setCurrentNode(index);
+	}
+	
+	/* (non-Javadoc)
+	 * @see gametree.GameTreeInterface#newCursor()
+	 */
+	public GameTreeCursor newCursor() {
+		return new Cursor(this, this.root);
 	}
 	
 	/* (non-Javadoc)
 	 * @see gametree.GameTreeInterface#getNodeByIndex(int)
 	 */
 	public GameNode getNodeByIndex(int index) {
-		if(this.nodeIndex.containsKey(index)) {
-			return this.nodeIndex.get(index);
+		NodeTable t = table();
+		int slot = t.slotOf(index);
+		if(slot == -1)
+			return null;
+		GameNode n = t.node(slot);
+		if(n == null) //Lazy tree, the node is not materialized or not indexed yet
+			n = materialize(t, slot);
+		return n;
+	}
+	
+	/**
+	 * The node index of the tree. A lazy tree builds it on first use, which
+	 * walks the whole engine tree once; the nodes materialized before then
+	 * are indexed as they are looked up.
+	 */
+	private NodeTable table() {
+		NodeTable t = this.nodeIndex;
+		if(t == null) {
+			synchronized(this) {
+				t = this.nodeIndex;
+				if(t == null) {
+					t = new NodeTable(this.source);
+					t.setNode(0, this.root);
+					this.nodeIndex = t;
+					this.source = null;
+				}
+			}
 		}
-		return null;
+		return t;
+	}
+	
+	/**
+	 * @return the number of nodes in the tree, materialized or not.
+	 */
+	public int size() {
+		return table().size();
 	}
 	
-	private void build(GameTreeClass gtc) {
+	/**
+	 * @return size() if the tree is indexed already, 0 for a lazy tree that
+	 * is not: unlike size(), it never walks the tree.
+	 */
+	public int knownSize() {
+		NodeTable t = this.nodeIndex;
+		return t != null ? t.size() : 0;
+	}
+
+	/**
+	 * @return the depth of the deepest node (the root is at depth 0).
+	 */
+	public int getHeight() {
+		return table().height();
+	}
+	
+	/**
+	 * @param index the index of a node.
+	 * @return the depth of the node (the root is at depth 0), -1 if there is
+	 * no node with that index.
+	 */
+	public int getDepth(int index) {
+		NodeTable t = table();
+		int slot = t.slotOf(index);
+		return slot == -1 ? -1 : t.depth(slot);
+	}
+	
+	/**
+	 * Writes into path the indexes of the nodes from the given node up to
+	 * the root, both included. A buffer of getHeight() + 1 elements fits
+	 * any path, so it can be allocated once and reused.
+	 * @param index the index of a node.
+	 * @param path where the indexes are written, starting at position 0.
+	 * @return the number of indexes written, 0 if there is no node with
+	 * that index.
+	 */
+	public int fillPathToRoot(int index, int[] path) {
+		NodeTable t = table();
+		int slot = t.slotOf(index);
+		if(slot == -1)
+			return 0;
+		int length = t.depth(slot) + 1;
+		if(path.length < length)
+			throw new IllegalArgumentException("Path buffer of " + path.length + " holds less than " + length + " nodes.");
+		for(int i = 0; i < length; i++) {
+			path[i] = t.value(slot);
+			slot = t.parent(slot);
+		}
+		return length;
+	}
+	
+	/**
+	 * Lowest common ancestor of two nodes, answered in constant time (the
+	 * tables it uses are built by the first call).
+	 * @param a the index of a node.
+	 * @param b the index of a node.
+	 * @return the index of the deepest node that is an ancestor of both
+	 * (a node is its own ancestor), or -1 if a or b is not a node.
+	 */
+	public int lowestCommonAncestor(int a, int b) {
+		NodeTable t = table();
+		int sa = t.slotOf(a);
+		int sb = t.slotOf(b);
+		if(sa == -1 || sb == -1)
+			return -1;
+		return t.value(t.lowestCommonAncestor(sa, sb));
+	}
+	
+	/**
+	 * Materializes the path from the closest indexed ancestor down to the
+	 * node in slot, indexing the nodes on the way.
+	 */
+	private GameNode materialize(NodeTable t, int slot) {
+		int[] path = new int[t.depth(slot) + 1];
+		int length = 0;
+		GameNode n = null;
+		while(n == null) {
+			path[length++] = slot;
+			slot = t.parent(slot);
+			n = t.node(slot);
+		}
+		for(int i = length - 1; i >= 0; i--) {
+			int value = t.value(path[i]);
+			Iterator<GameNode> children = n.getChildren(); //Expands n
+			do {
+				n = children.next();
+			} while(n.getValue() != value);
+			t.setNode(path[i], n);
+		}
+		return n;
+	}
+	
+	/**
+	 * Creates the GameNode for the engine node descendant, child of parent
+	 * through the edge label. Called by GameNode when it expands.
+	 */
+	GameNode materialize(GameNode parent, Node descendant, String label, double weight) {
+		GameNode child;
+		if(descendant.getChildren().length == 0) { //Is a terminal node
+			child = new GameNode(parent, label, weight, descendant.getValue(), descendant.getType(), descendant.getLabel());
+			String[] payoffs = descendant.getOutcome();
+			child.setPayoffP1(Integer.parseInt(payoffs[0]));
+			child.setPayoffP2(Integer.parseInt(payoffs[1]));
+		} else {
+			child = new GameNode(parent, label, weight, descendant.getValue(), descendant.getType(), descendant.getLabel(), descendant, this);
+		}
+		NodeTable t = this.nodeIndex;
+		if(t != null)
+			t.setNode(t.slotOf(child.getValue()), child);
+		return child;
+	}
+	
+	private GameNode build(Node root) {
 		Queue<ProcessUnit> queue = new LinkedList<ProcessUnit>();
 		
-		Node root = gtc.getCurrent();
-		this.root = new GameNode(root.getLabel(), 0 , root.getValue(), root.getType(), "");
-		queue.add(new ProcessUnit(root, this.root));
+		GameNode rootNode = new GameNode(root.getLabel(), 0 , root.getValue(), root.getType(), "");
+		queue.add(new ProcessUnit(root, rootNode));
 		//System.out.println("Adding processing of node queue. ROOT");
-		this.nodeIndex.put(root.getValue(), this.root);
 		
 		while(!queue.isEmpty()) {
 			ProcessUnit pu = queue.remove();
@@ -126,17 +285,47 @@ public class GameTree implements GameTreeInterface {
 				//System.out.println("Adding processing of node queue. Outcome: " + descendantsOutcome[i] + " label: " + descendants[i].getLabel());
 				GameNode child = new GameNode(pu.n, descendantsOutcome[i], descendantsWeight[i], descendants[i].getValue(), descendants[i].getType(), descendants[i].getLabel());
 				pu.n.addChild(child);
-				this.nodeIndex.put(child.getValue(), child);
+				this.nodeIndex.setNode(this.nodeIndex.slotOf(child.getValue()), child);
 				queue.add(new ProcessUnit(descendants[i], child));
 			}
 		}
-		
+		return rootNode;
 	}
 	
 	
+	/**
+	 * Builds the whole tree. If the system property gametree.lazy is set to
+	 * true the tree is built as by lazyFromGameTreeClass instead.
+	 * @param gtc the game tree as received from the game engine.
+	 * @return the tree.
+	 */
 	public static GameTree fromGameTreeClass(GameTreeClass gtc) {
-		GameTree t = new GameTree(gtc.getPosibilities());
-		t.build(gtc);	
+		if(Boolean.getBoolean("gametree.lazy"))
+			return lazyFromGameTreeClass(gtc);
+		TreeBuildEvent event = Tracing.AVAILABLE ? TreeBuildEvent.start("GameTree") : null;
+		GameTree t = new GameTree(gtc, false);
+		if(event != null)
+			event.finish(t.size());
+		return t;
+	}
+	
+	/**
+	 * Builds a tree whose nodes are only created when they are first
+	 * reached, either by walking down from the root or by looking them up
+	 * by index. Subtrees that are never visited only cost their
+	 * entries in the node index (a few ints per node), so big games can be played without building
+	 * millions of GameNode objects up front. The node index itself is
+	 * built by the first lookup by index, size or depth query, which walks
+	 * the whole engine tree once. The tree is safe to read from several
+	 * threads.
+	 * @param gtc the game tree as received from the game engine.
+	 * @return the tree.
+	 */
+	public static GameTree lazyFromGameTreeClass(GameTreeClass gtc) {
+		TreeBuildEvent event = Tracing.AVAILABLE ? TreeBuildEvent.start("GameTree (lazy)") : null;
+		GameTree t = new GameTree(gtc, true);
+		if(event != null)
+			event.finish(1); //Only the root is built
 		return t;
 	}
 
@@ -147,6 +336,73 @@ public class GameTree implements GameTreeInterface {
 		return this.validationSet;
 	}
 	
+	/**
+	 * A position of its own in the tree. Moving down a lazy tree
+	 * materializes nodes, which GameNode does under the lock of the parent,
+	 * so cursors stay independent there as well.
+	 */
+	private static final class Cursor implements GameTreeCursor {
+
+		private final GameTree tree;
+		private GameNode current;
+
+		Cursor(GameTree tree, GameNode current) {
+			this.tree = tree;
+			this.current = current;
+		}
+
+		public GameTreeInterface getTree() {
+			return this.tree;
+		}
+
+		public GameNode getCurrentNode() {
+			return this.current;
+		}
+
+		public void reset() {
+			this.current = this.tree.root;
+		}
+
+		public boolean goUp() {
+			GameNode temp = null;
+			try {
+				temp = this.current.getAncestor();
+			} catch (GameNodeDoesNotExistException e) {
+				return false;
+			}
+			this.current = temp;
+			return true;
+		}
+
+		public int numberOfChildren() {
+			return this.current.numberOfChildren();
+		}
+
+		public boolean goDown(String label) {
+			GameNode temp = null;
+			try {
+				temp = this.current.getDescendant(label);
+			} catch (GameNodeDoesNotExistException e) {
+				return false;
+			}
+			this.current = temp;
+			return true;
+		}
+
+		public boolean setCurrentNode(int index) {
+			GameNode n = this.tree.getNodeByIndex(index);
+			if(n != null) {
+				this.current = n;
+				return true;
+			}
+			return false;
+		}
+
+		public GameTreeCursor copy() {
+			return new Cursor(this.tree, this.current);
+		}
+	}
+	
 	public class ProcessUnit {
 		Node node;
 		GameNode n;
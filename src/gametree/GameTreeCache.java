@@ -0,0 +1,199 @@
+package gametree;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import log.Log;
+import tree.GameTreeClass;
+
+/**
+ * The game trees of the games a process plays at the same time, shared
+ * by every game on the same tree and keyed by GameTreeFingerprint.
+ *
+ * acquire() returns the Entry of a game, building its GameTree the first
+ * time the game is seen, and counts a reference; release() drops it. N
+ * games on the same tree therefore hold a single GameTree and a single
+ * CompactGameTree, which their strategies read at the same time (see
+ * GameTreeCursor for navigation). An entry nobody references is kept, in
+ * case the game is played again, until more than capacity such entries
+ * exist; the one released longest ago is then dropped.
+ *
+ * A tree is built outside of the lock of the cache, once, by the first
+ * thread that needs it; other threads asking for the same game wait for
+ * it.
+ */
+public final class GameTreeCache {
+
+	private static final Log LOG = Log.get(GameTreeCache.class);
+
+	/** Default number of unreferenced trees kept. */
+	public static final int DEFAULT_CAPACITY = 4;
+
+	private final int capacity;
+	private final Map<Long, Entry> entries;
+	//Unreferenced entries, least recently released first
+	private final LinkedHashMap<Long, Entry> idle;
+	private long hits;
+	private long misses;
+
+	public GameTreeCache() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * @param capacity the number of unreferenced trees kept.
+	 */
+	public GameTreeCache(int capacity) {
+		if(capacity < 0)
+			throw new IllegalArgumentException("Negative capacity: " + capacity);
+		this.capacity = capacity;
+		this.entries = new HashMap<Long, Entry>();
+		this.idle = new LinkedHashMap<Long, Entry>();
+		this.hits = 0;
+		this.misses = 0;
+	}
+
+	/**
+	 * Returns the entry of a game received from the engine, counting a
+	 * reference that must be dropped with release().
+	 * @param gtc the game tree as received from the game engine.
+	 * @return the entry, whose tree is built.
+	 */
+	public Entry acquire(GameTreeClass gtc) {
+		return acquire(GameTreeFingerprint.of(gtc), gtc);
+	}
+
+	/**
+	 * Same as acquire(gtc), for a caller that already knows the
+	 * fingerprint of the game.
+	 * @param fingerprint GameTreeFingerprint.of(gtc).
+	 * @param gtc the game tree as received from the game engine, only read
+	 * if the tree has to be built.
+	 * @return the entry, whose tree is built.
+	 */
+	public Entry acquire(long fingerprint, GameTreeClass gtc) {
+		Entry e;
+		synchronized(this) {
+			e = this.entries.get(fingerprint);
+			if(e == null) {
+				e = new Entry(fingerprint, gtc);
+				this.entries.put(fingerprint, e);
+				this.misses++;
+			} else {
+				this.hits++;
+			}
+			if(e.references++ == 0)
+				this.idle.remove(fingerprint);
+		}
+		try {
+			e.build();
+		} catch (RuntimeException | Error x) {
+			release(e);
+			throw x;
+		}
+		return e;
+	}
+
+	/**
+	 * Drops a reference counted by acquire().
+	 * @param e the entry.
+	 * @throws IllegalStateException if e has no reference left.
+	 */
+	public synchronized void release(Entry e) {
+		if(e.references == 0 || this.entries.get(e.fingerprint) != e)
+			throw new IllegalStateException("Game tree " + String.format("%016x", e.fingerprint) + " is not acquired.");
+		if(--e.references > 0)
+			return;
+		if(e.tree == null) {
+			//Its build failed, the next acquire() tries again
+			this.entries.remove(e.fingerprint);
+			return;
+		}
+		this.idle.put(e.fingerprint, e);
+		Iterator<Entry> eldest = this.idle.values().iterator();
+		while(this.idle.size() > this.capacity) {
+			Entry evicted = eldest.next();
+			eldest.remove();
+			this.entries.remove(evicted.fingerprint);
+			LOG.debug("Evicted game tree {} of {} nodes.", String.format("%016x", evicted.fingerprint),
+					evicted.tree.size());
+		}
+	}
+
+	/**
+	 * @return the number of trees held, referenced or not.
+	 */
+	public synchronized int size() {
+		return this.entries.size();
+	}
+
+	/**
+	 * @return the number of acquire() calls that found the game cached.
+	 */
+	public synchronized long getHits() {
+		return this.hits;
+	}
+
+	/**
+	 * @return the number of acquire() calls that had to build the tree.
+	 */
+	public synchronized long getMisses() {
+		return this.misses;
+	}
+
+	/**
+	 * The trees of a game. Both are immutable once built and can be read by
+	 * any number of threads.
+	 */
+	public static final class Entry {
+
+		private final long fingerprint;
+		//Reads of the engine's tree until the GameTree is built
+		private GameTreeClass source;
+		private volatile GameTree tree;
+		private volatile CompactGameTree compact;
+		//Guarded by the cache
+		private int references;
+
+		Entry(long fingerprint, GameTreeClass source) {
+			this.fingerprint = fingerprint;
+			this.source = source;
+			this.references = 0;
+		}
+
+		private synchronized void build() {
+			if(this.tree == null) {
+				this.tree = GameTree.fromGameTreeClass(this.source);
+				this.source = null;
+			}
+		}
+
+		public long getFingerprint() {
+			return this.fingerprint;
+		}
+
+		public GameTree getTree() {
+			return this.tree;
+		}
+
+		/**
+		 * @return the compact form of the tree, computed on first use (see
+		 * GameTreeSnapshotCache.compact()).
+		 */
+		public CompactGameTree getCompactTree() {
+			CompactGameTree c = this.compact;
+			if(c == null) {
+				synchronized(this) {
+					c = this.compact;
+					if(c == null) {
+						c = GameTreeSnapshotCache.compact(this.tree, this.fingerprint);
+						this.compact = c;
+					}
+				}
+			}
+			return c;
+		}
+	}
+}
@@ -0,0 +1,65 @@
+package gametree;
+
+/**
+ * A position in a game tree that moves on its own.
+ *
+ * The nodes of a tree do not change once it is built, so any number of
+ * cursors can walk the same tree at once, each from a different thread,
+ * without synchronization: the only state a cursor changes is its own
+ * position. A cursor itself is not thread safe; every thread should get
+ * its own from GameTreeInterface.newCursor() or copy().
+ *
+ * The methods are those of the single cursor that GameTreeInterface
+ * keeps for the tree, with the same meaning.
+ */
+public interface GameTreeCursor {
+
+	/**
+	 * @return the tree this cursor walks.
+	 */
+	GameTreeInterface getTree();
+
+	/**
+	 * @return the node the cursor is at.
+	 */
+	GameNode getCurrentNode();
+
+	/**
+	 * Moves the cursor to the root of the tree.
+	 */
+	void reset();
+
+	/**
+	 * Moves the cursor to the ancestor of its node if one exists.
+	 * @return true if the node had an ancestor, false otherwise.
+	 */
+	boolean goUp();
+
+	/**
+	 * @return number of descendants of the node the cursor is at.
+	 */
+	int numberOfChildren();
+
+	/**
+	 * Moves the cursor to the descendant of its node identified by label,
+	 * if one exists.
+	 * @param label the label of the target descendant node.
+	 * @return true if the node has a descendant identified by label, false
+	 * otherwise.
+	 */
+	boolean goDown(String label);
+
+	/**
+	 * Moves the cursor to the node identified by an unique index.
+	 * @param index an integer that unequivocally identifies a node in the
+	 * game tree.
+	 * @return true if the tree had a node identified by index, false
+	 * otherwise.
+	 */
+	boolean setCurrentNode(int index);
+
+	/**
+	 * @return a new cursor over the same tree at the same node.
+	 */
+	GameTreeCursor copy();
+}
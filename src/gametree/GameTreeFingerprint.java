@@ -0,0 +1,180 @@
+package gametree;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+
+import tree.GameTreeClass;
+import tree.Node;
+
+/**
+ * Computes a 64 bit fingerprint of a game tree, used to recognise a
+ * game that was already seen (for instance to reuse a snapshot).
+ *
+ * Every node contributes a hash of its contents (type, engine index,
+ * weight, payoffs, outcome) combined with a hash of the labels on the
+ * path from the root. The contributions are added up, so the result
+ * does not depend on the order in which children are visited, and the
+ * same game gives the same fingerprint whether it is read from the
+ * engine's tree.GameTreeClass, from a GameTree or from a CompactGameTree.
+ */
+public final class GameTreeFingerprint {
+
+	private GameTreeFingerprint() {
+	}
+
+	/**
+	 * @param gtc the game tree as received from the game engine.
+	 * @return the fingerprint of the game.
+	 */
+	public static long of(GameTreeClass gtc) {
+		Node root = gtc.getCurrent();
+		long sum = 0;
+		Deque<Node> nodes = new ArrayDeque<Node>();
+		LongStack paths = new LongStack();
+		nodes.push(root);
+		paths.push(edge(0, root.getLabel()));
+		boolean isRoot = true;
+		while(!nodes.isEmpty()) {
+			Node n = nodes.pop();
+			long path = paths.pop();
+			Node[] descendants = n.getChildren();
+			double[] descendantsWeight = n.getChildrenWeight();
+			String[] descendantsOutcome = n.getOutcome();
+			int p1 = 0;
+			int p2 = 0;
+			if(descendants.length == 0) {
+				p1 = Integer.parseInt(descendantsOutcome[0]);
+				p2 = Integer.parseInt(descendantsOutcome[1]);
+			}
+			//The weight of a node is only known to its ancestor, so every
+			//node is hashed when its ancestor is visited (the root here).
+			if(isRoot) {
+				sum += node(path, CompactGameTree.kindOf(n.getType()), 0, n.getValue(), "");
+				isRoot = false;
+			}
+			if(descendants.length == 0)
+				sum += payoffs(path, p1, p2);
+			for(int i = 0; i < descendants.length; i++) {
+				long childPath = edge(path, descendantsOutcome[i]);
+				sum += node(childPath, CompactGameTree.kindOf(descendants[i].getType()), descendantsWeight[i],
+						descendants[i].getValue(), descendants[i].getLabel());
+				nodes.push(descendants[i]);
+				paths.push(childPath);
+			}
+		}
+		return finish(sum, validationSet(gtc.getPosibilities()));
+	}
+
+	/**
+	 * @param t a game tree.
+	 * @return the fingerprint of the game.
+	 */
+	public static long of(GameTreeInterface t) {
+		if(t instanceof CompactGameTree)
+			return of((CompactGameTree) t);
+		long sum = 0;
+		Deque<GameNode> nodes = new ArrayDeque<GameNode>();
+		LongStack paths = new LongStack();
+		GameNode root = t.getRootNode();
+		nodes.push(root);
+		paths.push(edge(0, root.getLabel()));
+		while(!nodes.isEmpty()) {
+			GameNode n = nodes.pop();
+			long path = paths.pop();
+			sum += node(path, CompactGameTree.kindOf(n), n.getWeight(), n.getValue(), n.getOutcome());
+			if(n.numberOfChildren() == 0)
+				sum += payoffs(path, n.getPayoffP1(), n.getPayoffP2());
+			Iterator<GameNode> children = n.getChildren();
+			while(children.hasNext()) {
+				GameNode child = children.next();
+				nodes.push(child);
+				paths.push(edge(path, child.getLabel()));
+			}
+		}
+		return finish(sum, validationSet(t.getValidationSet()));
+	}
+
+	/**
+	 * @param t a game tree.
+	 * @return the fingerprint of the game.
+	 */
+	public static long of(CompactGameTree t) {
+		long[] paths = new long[t.size()];
+		long sum = 0;
+		for(int n = 0; n < t.size(); n++) {
+			int p = t.parent(n);
+			String label = t.label(t.labelId(n));
+			paths[n] = edge(p == CompactGameTree.NONE ? 0 : paths[p], label);
+			sum += node(paths[n], t.kind(n), t.weight(n), t.nodeIndex(n), t.label(t.outcomeId(n)));
+			if(t.childCount(n) == 0)
+				sum += payoffs(paths[n], t.payoffP1(n), t.payoffP2(n));
+		}
+		return finish(sum, validationSet(t.getValidationSet()));
+	}
+
+	private static long validationSet(List<?> l) {
+		return validationSet(0x243F6A8885A308D3L, l);
+	}
+
+	/**
+	 * Hashes the moves of the validation set in order, flattening nested
+	 * lists as GameTree does.
+	 */
+	private static long validationSet(long h, List<?> l) {
+		for(Object o: l) {
+			if(o instanceof List)
+				h = validationSet(h, (List<?>) o);
+			else
+				h = mix(h + ((Integer) o).intValue());
+		}
+		return h;
+	}
+
+	private static long edge(long path, String label) {
+		return mix(path * 31 + label.hashCode());
+	}
+
+	private static long node(long path, byte kind, double weight, int index, String outcome) {
+		long h = mix(path ^ kind);
+		h = mix(h + Double.doubleToLongBits(weight));
+		h = mix(h + index);
+		h = mix(h + outcome.hashCode());
+		return h;
+	}
+
+	private static long payoffs(long path, int p1, int p2) {
+		return mix(mix(path + 0x9E3779B97F4A7C15L + p1) + p2);
+	}
+
+	private static long finish(long sum, long validationSet) {
+		return mix(sum ^ validationSet);
+	}
+
+	/**
+	 * The finalizer of the SplitMix64 generator.
+	 */
+	private static long mix(long z) {
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+
+	private static final class LongStack {
+
+		private long[] values = new long[64];
+		private int size = 0;
+
+		void push(long v) {
+			if(this.size == this.values.length)
+				this.values = Arrays.copyOf(this.values, this.size << 1);
+			this.values[this.size++] = v;
+		}
+
+		long pop() {
+			return this.values[--this.size];
+		}
+	}
+}
@@ -68,6 +68,16 @@ public interface GameTreeInterface {
 	 */
 	GameNode getNodeByIndex(int index);
 
+	/**
+	 * Returns a new cursor at the root of the tree. The navigation methods
+	 * of this interface move a single cursor kept by the tree, so only one
+	 * thread at a time may use them; cursors move independently of it and
+	 * of each other, and several threads can walk the tree at once with a
+	 * cursor each.
+	 * @return a new cursor at the root node.
+	 */
+	GameTreeCursor newCursor();
+
 	/**
 	 * This method returns an ordered list of Integers. In this
 	 * list each position represents the number of different possible
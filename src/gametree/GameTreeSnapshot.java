@@ -0,0 +1,339 @@
+package gametree;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import trace.SnapshotLoadEvent;
+import trace.Tracing;
+
+/**
+ * Binary on-disk format for a CompactGameTree.
+ *
+ * A snapshot is a little-endian file made of a fixed header followed by
+ * the node columns of the tree, each starting at an 8 byte boundary:
+ * <pre>
+ * header     magic, version, fingerprint, node count, label count,
+ *            validation set length, index table capacity, free key
+ *            entry, index table size
+ * int[]      parent, firstChild, childCount
+ * byte[]     kind
+ * double[]   weight
+ * int[]      payoffP1, payoffP2, labelId, outcomeId, nodeIndex
+ * int[]      validation set
+ * int[]      index table keys and values (engine index to node id)
+ * labels     per label, its UTF-8 length followed by its bytes
+ * </pre>
+ * Loading maps every column of the file read-only with FileChannel.map()
+ * and the loaded CompactGameTree reads them in place: nothing is copied
+ * or parsed per node, and even the hash table that resolves engine
+ * indexes is stored ready to use. Only the labels and the validation set
+ * are decoded into objects.
+ *
+ * The mappings live as long as the tree, so a snapshot must not be
+ * modified while a tree loaded from it is in use. GameTreeSnapshotCache
+ * replaces a snapshot by moving a new file over it, which leaves the
+ * trees already loaded reading the old one.
+ */
+public final class GameTreeSnapshot {
+
+	private static final long MAGIC = 0x50414E5345455254L; //"TREESNAP"
+	private static final int VERSION = 1;
+	private static final int HEADER = 8 + 4 + 8 + 4 + 4 + 4 + 4 + 4 + 4 + 4;
+	//Bytes written at a time
+	private static final int BUFFER = 1 << 20;
+
+	private GameTreeSnapshot() {
+	}
+
+	/**
+	 * Writes t to file, replacing any previous content.
+	 * @param t the tree to store.
+	 * @param file the destination file.
+	 * @throws IOException if the file cannot be written.
+	 */
+	public static void write(CompactGameTree t, Path file) throws IOException {
+		write(t, GameTreeFingerprint.of(t), file);
+	}
+
+	/**
+	 * Same as write(t, file), for a caller that already knows the
+	 * fingerprint of the tree.
+	 * @param t the tree to store.
+	 * @param fingerprint GameTreeFingerprint.of(t).
+	 * @param file the destination file.
+	 * @throws IOException if the file cannot be written.
+	 */
+	public static void write(CompactGameTree t, long fingerprint, Path file) throws IOException {
+		int n = t.size();
+		List<Integer> validationSet = t.getValidationSet();
+		IntIntHashMap index = t.idByIndex();
+		byte[][] labels = new byte[t.labelCount()][];
+		for(int l = 0; l < labels.length; l++)
+			labels[l] = t.label(l).getBytes(StandardCharsets.UTF_8);
+
+		try(FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+			Output b = new Output(channel);
+			b.putLong(MAGIC);
+			b.putInt(VERSION);
+			b.putLong(fingerprint);
+			b.putInt(n);
+			b.putInt(labels.length);
+			b.putInt(validationSet.size());
+			b.putInt(index.keys().capacity());
+			b.putInt(index.hasFreeKey() ? 1 : 0);
+			b.putInt(index.freeKeyValue());
+			b.putInt(index.size());
+			b.pad();
+
+			for(int i = 0; i < n; i++) b.putInt(t.parent(i));
+			for(int i = 0; i < n; i++) b.putInt(t.firstChild(i));
+			for(int i = 0; i < n; i++) b.putInt(t.childCount(i));
+			b.pad();
+			for(int i = 0; i < n; i++) b.put(t.kind(i));
+			b.pad();
+			for(int i = 0; i < n; i++) b.putDouble(t.weight(i));
+			for(int i = 0; i < n; i++) b.putInt(t.payoffP1(i));
+			for(int i = 0; i < n; i++) b.putInt(t.payoffP2(i));
+			for(int i = 0; i < n; i++) b.putInt(t.labelId(i));
+			for(int i = 0; i < n; i++) b.putInt(t.outcomeId(i));
+			for(int i = 0; i < n; i++) b.putInt(t.nodeIndex(i));
+			b.pad();
+			for(Integer v: validationSet) b.putInt(v.intValue());
+			b.pad();
+			for(int i = 0; i < index.keys().capacity(); i++) b.putInt(index.keys().get(i));
+			for(int i = 0; i < index.values().capacity(); i++) b.putInt(index.values().get(i));
+			b.pad();
+			for(byte[] label: labels) {
+				b.putInt(label.length);
+				b.put(label);
+			}
+			b.flush();
+			channel.force(false);
+		}
+	}
+
+	/**
+	 * Reads the fingerprint stored in a snapshot without loading it.
+	 * @param file a snapshot file.
+	 * @return the fingerprint of the stored game.
+	 * @throws IOException if the file cannot be read or is not a snapshot.
+	 */
+	public static long fingerprint(Path file) throws IOException {
+		try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			return checkHeader(new Input(channel), file).getLong();
+		}
+	}
+
+	/**
+	 * Loads a snapshot.
+	 * @param file a snapshot file.
+	 * @return the stored tree.
+	 * @throws IOException if the file cannot be read or is not a snapshot.
+	 */
+	public static CompactGameTree load(Path file) throws IOException {
+		SnapshotLoadEvent event = Tracing.AVAILABLE ? SnapshotLoadEvent.start(file.toString()) : null;
+		if(event == null)
+			return read(file);
+		CompactGameTree t = null;
+		try {
+			t = read(file);
+			return t;
+		} finally {
+			event.finish(file.toFile().length(), t == null ? 0 : t.size());
+		}
+	}
+
+	private static CompactGameTree read(Path file) throws IOException {
+		try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			Input b = new Input(channel);
+			ByteBuffer header = checkHeader(b, file);
+			header.getLong(); //fingerprint
+			int n = header.getInt();
+			int labelCount = header.getInt();
+			int validationSetSize = header.getInt();
+			int indexCapacity = header.getInt();
+			boolean hasFreeKey = header.getInt() != 0;
+			int freeKeyValue = header.getInt();
+			int indexSize = header.getInt();
+			b.skipPadding();
+
+			IntBuffer parent = b.ints(n);
+			IntBuffer firstChild = b.ints(n);
+			IntBuffer childCount = b.ints(n);
+			b.skipPadding();
+			ByteBuffer kind = b.map(n);
+			b.skipPadding();
+			DoubleBuffer weight = b.doubles(n);
+			IntBuffer payoffP1 = b.ints(n);
+			IntBuffer payoffP2 = b.ints(n);
+			IntBuffer labelId = b.ints(n);
+			IntBuffer outcomeId = b.ints(n);
+			IntBuffer nodeIndex = b.ints(n);
+			b.skipPadding();
+			IntBuffer validation = b.ints(validationSetSize);
+			List<Integer> validationSet = new ArrayList<Integer>(validationSetSize);
+			for(int g = 0; g < validationSetSize; g++)
+				validationSet.add(validation.get(g));
+			b.skipPadding();
+			IntBuffer indexKeys = b.ints(indexCapacity);
+			IntBuffer indexValues = b.ints(indexCapacity);
+			b.skipPadding();
+			ByteBuffer text = b.map(b.remaining());
+			String[] labels = new String[labelCount];
+			for(int l = 0; l < labelCount; l++) {
+				byte[] bytes = new byte[text.getInt()];
+				text.get(bytes);
+				labels[l] = new String(bytes, StandardCharsets.UTF_8);
+			}
+
+			IntIntHashMap index = new IntIntHashMap(indexKeys, indexValues, indexSize, hasFreeKey, freeKeyValue);
+			return new CompactGameTree(n, parent, firstChild, childCount, kind, weight, payoffP1, payoffP2,
+					labelId, outcomeId, nodeIndex, labels, index, validationSet);
+		} catch (RuntimeException e) {
+			throw new IOException("Corrupted game tree snapshot " + file + ": " + e, e);
+		}
+	}
+
+	/**
+	 * @return the header, positioned at the fingerprint.
+	 */
+	private static ByteBuffer checkHeader(Input b, Path file) throws IOException {
+		if(!b.available(HEADER))
+			throw new IOException(file + " is not a game tree snapshot.");
+		ByteBuffer header = b.map(HEADER);
+		if(header.getLong() != MAGIC)
+			throw new IOException(file + " is not a game tree snapshot.");
+		int version = header.getInt();
+		if(version != VERSION)
+			throw new IOException(file + " has unsupported snapshot version " + version + ".");
+		return header;
+	}
+
+	private static long align(long bytes) {
+		return (bytes + 7) & ~7L;
+	}
+
+	/**
+	 * Sequential writer of a snapshot through a buffer of BUFFER bytes.
+	 */
+	private static final class Output {
+
+		private final FileChannel channel;
+		private final ByteBuffer buffer;
+		private long position;
+
+		Output(FileChannel channel) {
+			this.channel = channel;
+			this.buffer = ByteBuffer.allocate(BUFFER).order(ByteOrder.LITTLE_ENDIAN);
+			this.position = 0;
+		}
+
+		private void room(int bytes) throws IOException {
+			if(this.buffer.remaining() < bytes)
+				flush();
+		}
+
+		void put(byte v) throws IOException {
+			room(1);
+			this.buffer.put(v);
+			this.position++;
+		}
+
+		void putInt(int v) throws IOException {
+			room(4);
+			this.buffer.putInt(v);
+			this.position += 4;
+		}
+
+		void putLong(long v) throws IOException {
+			room(8);
+			this.buffer.putLong(v);
+			this.position += 8;
+		}
+
+		void putDouble(double v) throws IOException {
+			room(8);
+			this.buffer.putDouble(v);
+			this.position += 8;
+		}
+
+		void put(byte[] v) throws IOException {
+			for(byte x: v)
+				put(x);
+		}
+
+		void pad() throws IOException {
+			while((this.position & 7) != 0)
+				put((byte) 0);
+		}
+
+		void flush() throws IOException {
+			this.buffer.flip();
+			while(this.buffer.hasRemaining())
+				this.channel.write(this.buffer);
+			this.buffer.clear();
+		}
+	}
+
+	/**
+	 * Walks the regions of a snapshot file in order, mapping each of them
+	 * read-only where it lies in the file.
+	 */
+	private static final class Input {
+
+		private final FileChannel channel;
+		private final long length;
+		private long position;
+
+		Input(FileChannel channel) throws IOException {
+			this.channel = channel;
+			this.length = channel.size();
+			this.position = 0;
+		}
+
+		/**
+		 * @return false if the file ends before bytes more bytes.
+		 */
+		boolean available(long bytes) {
+			return this.position + bytes <= this.length;
+		}
+
+		long remaining() {
+			return this.length - this.position;
+		}
+
+		/**
+		 * Maps the next bytes of the file.
+		 */
+		ByteBuffer map(long bytes) throws IOException {
+			if(bytes < 0 || !available(bytes))
+				throw new EOFException("Snapshot ends at byte " + this.length + ", before byte " + (this.position + bytes) + ".");
+			ByteBuffer b = this.channel.map(FileChannel.MapMode.READ_ONLY, this.position, bytes);
+			this.position += bytes;
+			return b.order(ByteOrder.LITTLE_ENDIAN);
+		}
+
+		IntBuffer ints(int count) throws IOException {
+			return map(4L * count).asIntBuffer();
+		}
+
+		DoubleBuffer doubles(int count) throws IOException {
+			return map(8L * count).asDoubleBuffer();
+		}
+
+		void skipPadding() {
+			this.position = align(this.position);
+		}
+	}
+}
@@ -0,0 +1,155 @@
+package gametree;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+
+import log.Log;
+import tree.GameTreeClass;
+
+/**
+ * A directory of GameTreeSnapshot files keyed by GameTreeFingerprint.
+ *
+ * The first time a game is seen its CompactGameTree is built and stored;
+ * afterwards (for instance when reconnecting to the same game) it is
+ * loaded from the snapshot instead of being rebuilt. A snapshot that
+ * cannot be read is rebuilt and replaced.
+ *
+ * Snapshots are only kept when asked for: the strategies use the
+ * directory given by the system property SNAPSHOTS_PROPERTY (see
+ * configured()) and build the compact tree in memory when it is not set.
+ * Recognising a game takes a walk of its tree to compute the fingerprint;
+ * callers that already know it (see GameTreeCache) pass it instead.
+ */
+public final class GameTreeSnapshotCache {
+
+	private static final Log LOG = Log.get(GameTreeSnapshotCache.class);
+
+	/**
+	 * Name of the system property with the directory of the snapshots of
+	 * the strategies.
+	 */
+	public static final String SNAPSHOTS_PROPERTY = "gametree.snapshots";
+
+	private final Path directory;
+
+	public GameTreeSnapshotCache(Path directory) {
+		this.directory = directory;
+	}
+
+	/**
+	 * @return the cache in the directory given by SNAPSHOTS_PROPERTY, null
+	 * if the property is not set.
+	 */
+	public static GameTreeSnapshotCache configured() {
+		String directory = System.getProperty(SNAPSHOTS_PROPERTY);
+		return directory == null || directory.isEmpty() ? null : new GameTreeSnapshotCache(Paths.get(directory));
+	}
+
+	/**
+	 * Returns the compact form of a tree, from the snapshot directory
+	 * given by SNAPSHOTS_PROPERTY if it is set and built in memory
+	 * otherwise.
+	 * @param t the game tree.
+	 * @param fingerprint GameTreeFingerprint.of(t), or 0 if it is not
+	 * known yet.
+	 * @return the compact tree.
+	 */
+	public static CompactGameTree compact(GameTreeInterface t, long fingerprint) {
+		GameTreeSnapshotCache cache = configured();
+		if(cache == null)
+			return CompactGameTree.fromGameTree(t);
+		return fingerprint == 0 ? cache.load(t) : cache.load(fingerprint, t);
+	}
+
+	/**
+	 * @param fingerprint the fingerprint of a game.
+	 * @return the snapshot file used for that game.
+	 */
+	public Path fileFor(long fingerprint) {
+		return this.directory.resolve(String.format("%016x.gts", fingerprint));
+	}
+
+	/**
+	 * Returns the compact tree of a game received from the engine.
+	 * @param gtc the game tree as received from the game engine.
+	 * @return the tree, loaded from its snapshot if one exists.
+	 */
+	public CompactGameTree load(final GameTreeClass gtc) {
+		return load(GameTreeFingerprint.of(gtc), new Source() {
+			@Override
+			public CompactGameTree build() {
+				return CompactGameTree.fromGameTreeClass(gtc);
+			}
+		});
+	}
+
+	/**
+	 * Returns the compact tree of a game, e.g. the GameTree of a Strategy.
+	 * @param t the game tree.
+	 * @return the tree, loaded from its snapshot if one exists.
+	 */
+	public CompactGameTree load(GameTreeInterface t) {
+		return load(GameTreeFingerprint.of(t), t);
+	}
+
+	/**
+	 * Same as load(t), for a caller that already knows the fingerprint of
+	 * the game.
+	 * @param fingerprint GameTreeFingerprint.of(t).
+	 * @param t the game tree.
+	 * @return the tree, loaded from its snapshot if one exists.
+	 */
+	public CompactGameTree load(long fingerprint, final GameTreeInterface t) {
+		return load(fingerprint, new Source() {
+			@Override
+			public CompactGameTree build() {
+				return CompactGameTree.fromGameTree(t);
+			}
+		});
+	}
+
+	private interface Source {
+		CompactGameTree build();
+	}
+
+	private CompactGameTree load(long fingerprint, Source source) {
+		Path file = fileFor(fingerprint);
+		if(Files.isRegularFile(file)) {
+			try {
+				if(GameTreeSnapshot.fingerprint(file) == fingerprint)
+					return GameTreeSnapshot.load(file);
+			} catch (IOException e) {
+				LOG.warn("Discarding game tree snapshot: {}", e.getMessage());
+			}
+		}
+		CompactGameTree t = source.build();
+		store(t, fingerprint, file);
+		return t;
+	}
+
+	/**
+	 * Writes the snapshot to a temporary file first, so that a concurrent
+	 * reader never sees a partially written snapshot.
+	 */
+	private void store(CompactGameTree t, long fingerprint, Path file) {
+		Path tmp = null;
+		try {
+			Files.createDirectories(this.directory);
+			tmp = Files.createTempFile(this.directory, "snapshot", ".tmp");
+			GameTreeSnapshot.write(t, fingerprint, tmp);
+			Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			LOG.warn("Could not store game tree snapshot: {}", e.getMessage());
+			if(tmp != null) {
+				try {
+					Files.deleteIfExists(tmp);
+				} catch (IOException ignored) {
+					; //Nothing to be done here
+				}
+			}
+		}
+	}
+}
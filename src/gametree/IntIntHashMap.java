@@ -0,0 +1,147 @@
+package gametree;
+
+import java.nio.IntBuffer;
+
+/**
+ * Open-addressing map from int keys to int values. It is used to
+ * translate the node indexes handed out by the game engine into dense
+ * positions without boxing either side. Values are never negative, so
+ * a lookup of a missing key returns -1.
+ */
+final class IntIntHashMap {
+
+	private static final int FREE = Integer.MIN_VALUE;
+
+	private IntBuffer keys;
+	private IntBuffer values;
+	private int mask;
+	private int size;
+	private boolean hasFreeKey;
+	private int freeKeyValue;
+
+	IntIntHashMap(int expected) {
+		int capacity = 16;
+		while(capacity * 3 / 4 <= expected)
+			capacity <<= 1;
+		allocate(capacity);
+	}
+
+	/**
+	 * Recreates a map from the tables exposed by an existing one (see
+	 * keys(), values()). The tables are used as they are, so a read-only
+	 * view of a snapshot makes a map that can be read but not put into.
+	 */
+	IntIntHashMap(IntBuffer keys, IntBuffer values, int size, boolean hasFreeKey, int freeKeyValue) {
+		this.keys = keys;
+		this.values = values;
+		this.mask = keys.capacity() - 1;
+		this.size = size;
+		this.hasFreeKey = hasFreeKey;
+		this.freeKeyValue = freeKeyValue;
+	}
+
+	private void allocate(int capacity) {
+		this.keys = IntBuffer.allocate(capacity);
+		this.values = IntBuffer.allocate(capacity);
+		this.mask = capacity - 1;
+		for(int i = 0; i < capacity; i++)
+			this.keys.put(i, FREE);
+	}
+
+	private static int mix(int key) {
+		int h = key * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+
+	/**
+	 * Returns the value associated with key, or -1 if the key is absent.
+	 */
+	int get(int key) {
+		if(key == FREE)
+			return this.hasFreeKey ? this.freeKeyValue : -1;
+		int slot = mix(key) & this.mask;
+		while(true) {
+			int k = this.keys.get(slot);
+			if(k == key)
+				return this.values.get(slot);
+			if(k == FREE)
+				return -1;
+			slot = (slot + 1) & this.mask;
+		}
+	}
+
+	boolean containsKey(int key) {
+		return get(key) != -1;
+	}
+
+	/**
+	 * Associates value (which must not be negative) with key, replacing
+	 * any previous association.
+	 */
+	void put(int key, int value) {
+		if(key == FREE) {
+			if(!this.hasFreeKey)
+				this.size++;
+			this.hasFreeKey = true;
+			this.freeKeyValue = value;
+			return;
+		}
+		int slot = mix(key) & this.mask;
+		while(true) {
+			int k = this.keys.get(slot);
+			if(k == key) {
+				this.values.put(slot, value);
+				return;
+			}
+			if(k == FREE) {
+				this.keys.put(slot, key);
+				this.values.put(slot, value);
+				if(++this.size * 4 > this.keys.capacity() * 3)
+					rehash();
+				return;
+			}
+			slot = (slot + 1) & this.mask;
+		}
+	}
+
+	int size() {
+		return this.size;
+	}
+
+	/*
+	 * Raw table access, used to store the map in a snapshot. The tables
+	 * have a power of two capacity and Integer.MIN_VALUE marks a free slot;
+	 * the entry for the key Integer.MIN_VALUE itself is kept aside.
+	 */
+
+	IntBuffer keys() {
+		return this.keys;
+	}
+
+	IntBuffer values() {
+		return this.values;
+	}
+
+	boolean hasFreeKey() {
+		return this.hasFreeKey;
+	}
+
+	int freeKeyValue() {
+		return this.freeKeyValue;
+	}
+
+	private void rehash() {
+		IntBuffer oldKeys = this.keys;
+		IntBuffer oldValues = this.values;
+		allocate(oldKeys.capacity() << 1);
+		for(int i = 0; i < oldKeys.capacity(); i++) {
+			int key = oldKeys.get(i);
+			if(key == FREE) continue;
+			int slot = mix(key) & this.mask;
+			while(this.keys.get(slot) != FREE)
+				slot = (slot + 1) & this.mask;
+			this.keys.put(slot, key);
+			this.values.put(slot, oldValues.get(i));
+		}
+	}
+}
@@ -0,0 +1,231 @@
+package gametree;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import tree.Node;
+
+/**
+ * Dense index of the nodes of a GameTree. Every engine node gets a slot,
+ * in breadth-first order from the root (slot 0), and the table keeps the
+ * parent, depth and children range of each slot in int arrays, so that
+ * paths and ancestors are found without touching a GameNode. The engine
+ * indexes are translated into slots by an IntIntHashMap.
+ *
+ * The GameNode of a slot is null until it is materialized (see
+ * GameTree.lazyFromGameTreeClass); slots are read and written through an
+ * AtomicReferenceArray so that a lazy tree can be shared by threads.
+ */
+final class NodeTable {
+
+	//Euler tour entries per block of the lowest common ancestor tables
+	private static final int BLOCK = 32;
+
+	private final IntIntHashMap slotOf;
+	private final int size;
+	private final int height;
+	private final int[] value;
+	private final int[] parent;
+	private final int[] depth;
+	private final int[] firstChild;
+	private final int[] childCount;
+	private final AtomicReferenceArray<GameNode> nodes;
+
+	//Lowest common ancestor tables, built on first use
+	private volatile Lca lca;
+
+	NodeTable(Node root) {
+		Node[] queue = new Node[64];
+		int[] parent = new int[64];
+		int[] firstChild = new int[64];
+		int[] childCount = new int[64];
+		queue[0] = root;
+		parent[0] = -1;
+		int size = 1;
+		for(int i = 0; i < size; i++) {
+			Node[] descendants = queue[i].getChildren();
+			if(size + descendants.length > queue.length) {
+				int capacity = Math.max(queue.length << 1, size + descendants.length);
+				queue = Arrays.copyOf(queue, capacity);
+				parent = Arrays.copyOf(parent, capacity);
+				firstChild = Arrays.copyOf(firstChild, capacity);
+				childCount = Arrays.copyOf(childCount, capacity);
+			}
+			firstChild[i] = size;
+			childCount[i] = descendants.length;
+			for(Node d: descendants) {
+				queue[size] = d;
+				parent[size] = i;
+				size++;
+			}
+		}
+
+		this.size = size;
+		this.parent = Arrays.copyOf(parent, size);
+		this.firstChild = Arrays.copyOf(firstChild, size);
+		this.childCount = Arrays.copyOf(childCount, size);
+		this.value = new int[size];
+		this.depth = new int[size];
+		this.slotOf = new IntIntHashMap(size);
+		int height = 0;
+		for(int i = 0; i < size; i++) {
+			this.value[i] = queue[i].getValue();
+			this.slotOf.put(this.value[i], i);
+			if(i > 0) {
+				this.depth[i] = this.depth[this.parent[i]] + 1;
+				height = Math.max(height, this.depth[i]);
+			}
+		}
+		this.height = height;
+		this.nodes = new AtomicReferenceArray<GameNode>(size);
+	}
+
+	int size() {
+		return this.size;
+	}
+
+	int height() {
+		return this.height;
+	}
+
+	/**
+	 * @return the slot of the node with the given engine index, -1 if
+	 * there is none.
+	 */
+	int slotOf(int index) {
+		return this.slotOf.get(index);
+	}
+
+	int value(int slot) {
+		return this.value[slot];
+	}
+
+	int parent(int slot) {
+		return this.parent[slot];
+	}
+
+	int depth(int slot) {
+		return this.depth[slot];
+	}
+
+	GameNode node(int slot) {
+		return this.nodes.get(slot);
+	}
+
+	void setNode(int slot, GameNode n) {
+		this.nodes.set(slot, n);
+	}
+
+	/**
+	 * Lowest common ancestor of two slots, in constant time. The first
+	 * call builds an Euler tour of the tree, split in blocks of BLOCK
+	 * entries, and a sparse table of the minimum depth of every range of
+	 * whole blocks, which take O(n) ints in all; a query scans at most two
+	 * partial blocks besides one lookup in the table.
+	 */
+	int lowestCommonAncestor(int a, int b) {
+		return lca().query(a, b);
+	}
+
+	private Lca lca() {
+		Lca l = this.lca;
+		if(l == null) {
+			synchronized(this) {
+				l = this.lca;
+				if(l == null) {
+					l = new Lca();
+					this.lca = l;
+				}
+			}
+		}
+		return l;
+	}
+
+	/**
+	 * The tables of lowestCommonAncestor().
+	 */
+	private final class Lca {
+
+		private final int[] tour;
+		private final int[] firstVisit;
+		//Per range of 2^k whole blocks from block i: the slot of least depth
+		private final int[][] blocks;
+
+		Lca() {
+			int[] tour = new int[2 * size - 1];
+			int[] first = new int[size];
+			int[] stack = new int[height + 1];
+			int[] next = new int[height + 1];
+			int length = 0;
+			int top = 0;
+			stack[0] = 0;
+			next[0] = 0;
+			first[0] = 0;
+			tour[length++] = 0;
+			while(top >= 0) {
+				int n = stack[top];
+				if(next[top] < childCount[n]) {
+					int c = firstChild[n] + next[top]++;
+					first[c] = length;
+					tour[length++] = c;
+					stack[++top] = c;
+					next[top] = 0;
+				} else if(--top >= 0) {
+					tour[length++] = stack[top];
+				}
+			}
+			this.tour = tour;
+			this.firstVisit = first;
+
+			int count = (length + BLOCK - 1) / BLOCK;
+			int levels = 32 - Integer.numberOfLeadingZeros(count);
+			int[][] s = new int[levels][];
+			s[0] = new int[count];
+			for(int i = 0; i < count; i++)
+				s[0][i] = scan(i * BLOCK, Math.min(length, (i + 1) * BLOCK) - 1);
+			for(int k = 1; k < levels; k++) {
+				int half = 1 << (k - 1);
+				int[] prev = s[k - 1];
+				int[] row = new int[count - (1 << k) + 1];
+				for(int i = 0; i < row.length; i++)
+					row[i] = shallower(prev[i], prev[i + half]);
+				s[k] = row;
+			}
+			this.blocks = s;
+		}
+
+		private int shallower(int x, int y) {
+			return depth[x] <= depth[y] ? x : y;
+		}
+
+		/**
+		 * @return the slot of least depth in tour[from .. to].
+		 */
+		private int scan(int from, int to) {
+			int best = this.tour[from];
+			for(int i = from + 1; i <= to; i++)
+				best = shallower(best, this.tour[i]);
+			return best;
+		}
+
+		int query(int a, int b) {
+			int l = this.firstVisit[a];
+			int r = this.firstVisit[b];
+			if(l > r) {
+				int t = l;
+				l = r;
+				r = t;
+			}
+			int bl = l / BLOCK;
+			int br = r / BLOCK;
+			if(bl == br)
+				return scan(l, r);
+			int best = shallower(scan(l, (bl + 1) * BLOCK - 1), scan(br * BLOCK, r));
+			if(bl + 1 < br) {
+				int k = 31 - Integer.numberOfLeadingZeros(br - bl - 1);
+				best = shallower(best, shallower(this.blocks[k][bl + 1], this.blocks[k][br - (1 << k)]));
+			}
+			return best;
+		}
+	}
+}
@@ -0,0 +1,347 @@
+package gametree;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * The reduced normal form of a two-player game with perfect recall: a
+ * payoff matrix with a row per pure strategy of P1 and a column per pure
+ * strategy of P2.
+ *
+ * A pure strategy picks one key in every group its player reaches given
+ * his own earlier choices; groups cut off by those choices are left out,
+ * since strategies differing only there have the same payoffs. The pure
+ * strategies are never stored: with the groups of the SequenceForm, the
+ * number of strategies below every sequence is the product, over the
+ * groups that follow it, of the sum of the counts of their keys, and
+ * strategy s of a player is decoded on demand as a mixed-radix number
+ * over that structure (see decode()). The payoff of a cell is the
+ * expected payoff of the terminal nodes reached when both players follow
+ * their pure strategies, with nature nodes and player edges without a key
+ * weighted by StrategyLayout.edgeProbability().
+ *
+ * The matrix is computed in parallel, a block of rows per task, into a
+ * single DoubleBuffer holding the two payoffs of every cell next to each
+ * other, either on the heap or, for large matrices, in direct memory
+ * outside of it. Normal forms grow exponentially with the number of
+ * groups, so expand() refuses matrices of more than MAX_CELLS cells.
+ */
+public final class NormalForm {
+
+	/** Player index of P1 in the per-player methods. */
+	public static final int P1 = SequenceForm.P1;
+
+	/** Player index of P2 in the per-player methods. */
+	public static final int P2 = SequenceForm.P2;
+
+	/** Largest number of cells expand() accepts (1 GB of payoffs). */
+	public static final long MAX_CELLS = 1L << 26;
+
+	//Rows computed by the smallest task
+	private static final int ROWS_PER_TASK = 16;
+
+	private final StrategyLayout layout;
+	private final SequenceForm sequences;
+	//Per player and sequence: the number of strategies below it
+	private final long[][] below;
+	//Per group: the number of strategies below it
+	private final long[] groupCount;
+	private final int[] strategyCount;
+	//Per node with a key on its edges: the group it plays, -1 otherwise
+	private final int[] nodeGroup;
+	private final boolean offHeap;
+	//payoff.get(2 * (row * columns + column) + player)
+	private final DoubleBuffer payoff;
+
+	private NormalForm(StrategyLayout layout, boolean offHeap) {
+		this.layout = layout;
+		this.sequences = new SequenceForm(layout);
+		CompactGameTree tree = layout.getTree();
+		int n = tree.size();
+
+		this.nodeGroup = new int[n];
+		Arrays.fill(this.nodeGroup, -1);
+		for(int node = 0; node < n; node++) {
+			if(!tree.isPlayer1(node) && !tree.isPlayer2(node) || tree.childCount(node) == 0)
+				continue;
+			int k = layout.edgeKey(tree.firstChild(node));
+			if(k != StrategyLayout.NO_KEY)
+				this.nodeGroup[node] = layout.groupOf(k);
+		}
+
+		//Counts saturate above MAX_CELLS, which is refused anyway
+		this.below = new long[2][];
+		this.groupCount = new long[layout.groupCount()];
+		this.strategyCount = new int[2];
+		for(int p = 0; p < 2; p++) {
+			long[] count = new long[this.sequences.sequenceCount(p)];
+			Arrays.fill(count, 1);
+			for(int g: this.sequences.groups(p)) {
+				long sum = 0;
+				for(int k = layout.groupOffset(g); k < layout.groupOffset(g + 1); k++)
+					sum = Math.min(MAX_CELLS + 1, sum + count[this.sequences.sequenceOfKey(k)]);
+				this.groupCount[g] = sum;
+				int parent = this.sequences.parentSequence(g);
+				count[parent] = Math.min(MAX_CELLS + 1, count[parent] * sum);
+			}
+			this.below[p] = count;
+			if(count[0] > MAX_CELLS)
+				throw new IllegalArgumentException("Player " + (p + 1) + " has more than " + MAX_CELLS
+						+ " pure strategies.");
+			this.strategyCount[p] = (int) count[0];
+		}
+		long cells = (long) this.strategyCount[P1] * this.strategyCount[P2];
+		if(cells > MAX_CELLS)
+			throw new IllegalArgumentException("The normal form has " + cells + " cells, more than " + MAX_CELLS + ".");
+
+		this.offHeap = offHeap;
+		this.payoff = offHeap
+				? ByteBuffer.allocateDirect((int) cells * 2 * Double.BYTES).order(ByteOrder.nativeOrder()).asDoubleBuffer()
+				: DoubleBuffer.wrap(new double[(int) cells * 2]);
+	}
+
+	/**
+	 * Computes the normal form of a game on the heap, using the common
+	 * ForkJoinPool.
+	 * @param layout the game and its groups.
+	 * @return the normal form.
+	 * @throws IllegalArgumentException if the game has no SequenceForm or
+	 * the matrix would have more than MAX_CELLS cells.
+	 */
+	public static NormalForm expand(StrategyLayout layout) {
+		return expand(layout, false, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Computes the normal form of a game.
+	 * @param layout the game and its groups.
+	 * @param offHeap true to keep the matrix in direct memory.
+	 * @param pool the pool that computes the cells.
+	 * @return the normal form.
+	 * @throws IllegalArgumentException if the game has no SequenceForm or
+	 * the matrix would have more than MAX_CELLS cells.
+	 */
+	public static NormalForm expand(StrategyLayout layout, boolean offHeap, ForkJoinPool pool) {
+		NormalForm form = new NormalForm(layout, offHeap);
+		pool.invoke(form.new Fill(0, form.rows()));
+		return form;
+	}
+
+	public StrategyLayout getLayout() {
+		return this.layout;
+	}
+
+	/**
+	 * @return the number of pure strategies of P1.
+	 */
+	public int rows() {
+		return this.strategyCount[P1];
+	}
+
+	/**
+	 * @return the number of pure strategies of P2.
+	 */
+	public int columns() {
+		return this.strategyCount[P2];
+	}
+
+	/**
+	 * @param player P1 or P2.
+	 * @return the number of pure strategies of player.
+	 */
+	public int strategyCount(int player) {
+		return this.strategyCount[player];
+	}
+
+	/**
+	 * @return the sequence form whose groups the pure strategies follow.
+	 */
+	public SequenceForm getSequenceForm() {
+		return this.sequences;
+	}
+
+	/**
+	 * Decodes a pure strategy of player.
+	 * @param player P1 or P2.
+	 * @param strategy a pure strategy of player.
+	 * @param choices an array with a position per group, where the key
+	 * chosen in every group of player is written, StrategyLayout.NO_KEY for
+	 * the groups his earlier choices cut off. The groups of the opponent are
+	 * left untouched.
+	 */
+	public void decode(int player, int strategy, int[] choices) {
+		decode(player, strategy, choices, new long[this.sequences.sequenceCount(player)]);
+	}
+
+	private void decode(int player, int strategy, int[] choices, long[] remainder) {
+		//The strategies below a sequence are a mixed-radix number over the
+		//groups that follow it, taken parents first, whose digit in a group
+		//selects a key and a strategy below it.
+		long[] count = this.below[player];
+		Arrays.fill(remainder, -1);
+		remainder[0] = strategy;
+		int[] order = this.sequences.groups(player);
+		for(int i = order.length - 1; i >= 0; i--) {
+			int g = order[i];
+			int parent = this.sequences.parentSequence(g);
+			if(remainder[parent] < 0) {
+				choices[g] = StrategyLayout.NO_KEY;
+				continue;
+			}
+			long digit = remainder[parent] % this.groupCount[g];
+			remainder[parent] /= this.groupCount[g];
+			int k = this.layout.groupOffset(g);
+			while(digit >= count[this.sequences.sequenceOfKey(k)])
+				digit -= count[this.sequences.sequenceOfKey(k++)];
+			choices[g] = k;
+			remainder[this.sequences.sequenceOfKey(k)] = digit;
+		}
+	}
+
+	/**
+	 * @return true if the matrix is kept outside of the heap.
+	 */
+	public boolean isOffHeap() {
+		return this.offHeap;
+	}
+
+	/**
+	 * @return the expected payoff of P1 when P1 plays row and P2 column.
+	 */
+	public double payoffP1(int row, int column) {
+		return this.payoff.get(2 * (row * this.strategyCount[P2] + column));
+	}
+
+	/**
+	 * @return the expected payoff of P2 when P1 plays row and P2 column.
+	 */
+	public double payoffP2(int row, int column) {
+		return this.payoff.get(2 * (row * this.strategyCount[P2] + column) + 1);
+	}
+
+	/**
+	 * @param player P1 or P2.
+	 * @return the payoff of player when P1 plays row and P2 column.
+	 */
+	public double payoff(int player, int row, int column) {
+		return this.payoff.get(2 * (row * this.strategyCount[P2] + column) + player);
+	}
+
+	/**
+	 * Converts a mixed strategy of player (a probability per pure
+	 * strategy) into the equivalent behavioral strategy, writing the keys
+	 * of his groups. Groups the mixed strategy never reaches get the
+	 * uniform distribution.
+	 * @param player P1 or P2.
+	 * @param mixed a probability per pure strategy of player.
+	 * @param out a strategy in StrategyLayout order.
+	 */
+	public void toBehavioral(int player, double[] mixed, double[] out) {
+		double[] plan = new double[this.sequences.sequenceCount(player)];
+		long[] remainder = new long[plan.length];
+		int[] choices = new int[this.layout.groupCount()];
+		for(int s = 0; s < mixed.length; s++) {
+			if(mixed[s] == 0)
+				continue;
+			decode(player, s, choices, remainder);
+			for(int g: this.sequences.groups(player))
+				if(choices[g] != StrategyLayout.NO_KEY)
+					plan[this.sequences.sequenceOfKey(choices[g])] += mixed[s];
+		}
+		plan[0] = 1;
+		this.sequences.toBehavioral(player, plan, out);
+	}
+
+	/**
+	 * Expected payoffs of both players when they follow choices, walking
+	 * only the nodes their choices reach.
+	 */
+	private void cell(int[] choices, int[] stack, double[] chance, double[] out) {
+		CompactGameTree tree = this.layout.getTree();
+		double p1 = 0;
+		double p2 = 0;
+		int top = 0;
+		stack[top] = tree.root();
+		chance[top++] = 1;
+		while(top > 0) {
+			top--;
+			int node = stack[top];
+			double reach = chance[top];
+			int count = tree.childCount(node);
+			if(count == 0) {
+				p1 += reach * tree.payoffP1(node);
+				p2 += reach * tree.payoffP2(node);
+				continue;
+			}
+			int first = tree.firstChild(node);
+			int g = this.nodeGroup[node];
+			if(g == -1) {
+				for(int c = first; c < first + count; c++) {
+					double r = reach * this.layout.edgeProbability(c);
+					if(r == 0)
+						continue;
+					stack[top] = c;
+					chance[top++] = r;
+				}
+				continue;
+			}
+			for(int c = first; c < first + count; c++) {
+				if(this.layout.edgeKey(c) == choices[g]) {
+					stack[top] = c;
+					chance[top++] = reach;
+					break;
+				}
+			}
+		}
+		out[0] = p1;
+		out[1] = p2;
+	}
+
+	/**
+	 * Computes the cells of a block of rows.
+	 */
+	private final class Fill extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final int from;
+		private final int to;
+
+		Fill(int from, int to) {
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if(this.to - this.from > ROWS_PER_TASK) {
+				int middle = (this.from + this.to) >>> 1;
+				invokeAll(new Fill(this.from, middle), new Fill(middle, this.to));
+				return;
+			}
+			int n = layout.getTree().size();
+			int[] stack = new int[n];
+			double[] chance = new double[n];
+			//Both players write their own groups
+			int[] choices = new int[layout.groupCount()];
+			long[] remainderP1 = new long[sequences.sequenceCount(P1)];
+			long[] remainderP2 = new long[sequences.sequenceCount(P2)];
+			double[] out = new double[2];
+			int columns = columns();
+			for(int r = this.from; r < this.to; r++) {
+				decode(P1, r, choices, remainderP1);
+				for(int c = 0; c < columns; c++) {
+					decode(P2, c, choices, remainderP2);
+					cell(choices, stack, chance, out);
+					int i = 2 * (r * columns + c);
+					payoff.put(i, out[0]);
+					payoff.put(i + 1, out[1]);
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,120 @@
+package gametree;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import trace.Tracing;
+import trace.TreeWalkEvent;
+
+/**
+ * Walks a CompactGameTree on a ForkJoinPool, handing independent
+ * subtrees to different workers. Subtrees smaller than a threshold are
+ * walked sequentially by a single task, in breadth-first order for
+ * top-down walks and in reverse breadth-first order for bottom-up ones.
+ *
+ * The visitor is called exactly once per node. A bottom-up walk visits
+ * every child before its parent; a top-down walk visits every parent
+ * before its children. Visits of nodes in disjoint subtrees may run
+ * concurrently, so a visitor must only write state that belongs to the
+ * visited node.
+ */
+final class ParallelTreeWalker {
+
+	/** Subtrees with at most this many nodes are not split any further. */
+	static final int DEFAULT_THRESHOLD = 1 << 13;
+
+	interface Visitor {
+		void visit(int node);
+	}
+
+	private final CompactGameTree tree;
+	private final int[] subtreeSize;
+	private final ForkJoinPool pool;
+	private final int threshold;
+
+	ParallelTreeWalker(CompactGameTree tree, ForkJoinPool pool) {
+		this(tree, pool, DEFAULT_THRESHOLD);
+	}
+
+	ParallelTreeWalker(CompactGameTree tree, ForkJoinPool pool, int threshold) {
+		this.tree = tree;
+		this.subtreeSize = tree.subtreeSizes();
+		this.pool = pool;
+		this.threshold = threshold;
+	}
+
+	void bottomUp(Visitor v) {
+		walk(tree.root(), v, false);
+	}
+
+	void topDown(Visitor v) {
+		walk(tree.root(), v, true);
+	}
+
+	/**
+	 * Walks only the subtree rooted at node.
+	 */
+	void walk(int node, Visitor v, boolean topDown) {
+		boolean parallel = this.subtreeSize[node] > this.threshold && this.pool.getParallelism() > 1;
+		TreeWalkEvent event = Tracing.AVAILABLE
+				? TreeWalkEvent.start(this.subtreeSize[node], topDown, parallel ? this.pool.getParallelism() : 1) : null;
+		if(parallel)
+			this.pool.invoke(new Task(node, v, topDown));
+		else
+			sequential(node, v, topDown);
+		if(event != null)
+			event.finish();
+	}
+
+	private void sequential(int node, Visitor v, boolean topDown) {
+		int[] order = new int[this.subtreeSize[node]];
+		int size = 0;
+		order[size++] = node;
+		for(int i = 0; i < size; i++) {
+			int first = this.tree.firstChild(order[i]);
+			int end = first + this.tree.childCount(order[i]);
+			for(int c = first; c < end; c++)
+				order[size++] = c;
+		}
+		if(topDown) {
+			for(int i = 0; i < size; i++)
+				v.visit(order[i]);
+		} else {
+			for(int i = size - 1; i >= 0; i--)
+				v.visit(order[i]);
+		}
+	}
+
+	private final class Task extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final int node;
+		private final Visitor v;
+		private final boolean topDown;
+
+		Task(int node, Visitor v, boolean topDown) {
+			this.node = node;
+			this.v = v;
+			this.topDown = topDown;
+		}
+
+		@Override
+		protected void compute() {
+			if(subtreeSize[this.node] <= threshold) {
+				sequential(this.node, this.v, this.topDown);
+				return;
+			}
+			if(this.topDown)
+				this.v.visit(this.node);
+			int first = tree.firstChild(this.node);
+			int count = tree.childCount(this.node);
+			Task[] children = new Task[count];
+			for(int k = 0; k < count; k++)
+				children[k] = new Task(first + k, this.v, this.topDown);
+			invokeAll(children);
+			if(!this.topDown)
+				this.v.visit(this.node);
+		}
+	}
+}
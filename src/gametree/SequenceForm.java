@@ -0,0 +1,313 @@
+package gametree;
+
+import java.util.Arrays;
+
+/**
+ * The sequence form of a two-player game with perfect recall.
+ *
+ * A sequence of a player is the list of his own moves on the way to a
+ * node; with perfect recall it is identified by its last move, so every
+ * key of the player's groups (StrategyLayout order) is a sequence, and
+ * sequence 0 is the empty one. Each group of the validation set is an
+ * information set, whose parent sequence is the last move of its player
+ * before reaching it. A strategy is then a realization plan: a weight per
+ * sequence, with weight 1 on the empty sequence and the weights of the
+ * moves of every information set adding up to the weight of its parent
+ * sequence.
+ *
+ * The payoffs are two sparse matrices with a row per P1 sequence and a
+ * column per P2 sequence: the entry of a pair of sequences adds, over the
+ * terminal nodes they lead to, the payoff of the node weighted by the
+ * chance of reaching it. Edges of nature nodes and player edges without a
+ * key (see StrategyLayout.edgeProbability()) count as chance. Both
+ * matrices share their structure and are stored in compressed rows.
+ */
+public final class SequenceForm {
+
+	/** Player index of P1 in the per-player methods. */
+	public static final int P1 = 0;
+
+	/** Player index of P2 in the per-player methods. */
+	public static final int P2 = 1;
+
+	private final StrategyLayout layout;
+	//Per player: number of sequences, including the empty one
+	private final int[] sequenceCount;
+	//Per key: its sequence, in the numbering of its player
+	private final int[] sequenceOfKey;
+	//Per group: its player and its parent sequence
+	private final int[] groupPlayer;
+	private final int[] parentSequence;
+	//Per player: its groups, deepest first
+	private final int[][] groups;
+	//Payoff matrices in compressed rows (rows are P1 sequences)
+	private final int[] rowStart;
+	private final int[] column;
+	private final double[] payoffP1;
+	private final double[] payoffP2;
+	private final boolean zeroSum;
+
+	/**
+	 * @param layout the game and the order of its keys.
+	 * @throws IllegalArgumentException if a group is played by both
+	 * players or is reached after different moves of its own player (the
+	 * game does not have perfect recall).
+	 */
+	public SequenceForm(StrategyLayout layout) {
+		this.layout = layout;
+		CompactGameTree tree = layout.getTree();
+		int n = tree.size();
+		int keys = layout.keyCount();
+		int groupCount = layout.groupCount();
+
+		this.groupPlayer = new int[groupCount];
+		Arrays.fill(this.groupPlayer, -1);
+		int[] groupDepth = new int[groupCount];
+		int[] depth = new int[n];
+		for(int node = 0; node < n; node++) {
+			if(node > 0)
+				depth[node] = depth[tree.parent(node)] + 1;
+			int player = tree.isPlayer1(node) ? P1 : tree.isPlayer2(node) ? P2 : -1;
+			if(player == -1 || tree.childCount(node) == 0)
+				continue;
+			int k = layout.edgeKey(tree.firstChild(node));
+			if(k == StrategyLayout.NO_KEY)
+				continue;
+			int g = layout.groupOf(k);
+			if(this.groupPlayer[g] == -1) {
+				this.groupPlayer[g] = player;
+				groupDepth[g] = depth[node];
+			} else if(this.groupPlayer[g] != player) {
+				throw new IllegalArgumentException("Group " + g + " of the validation set is played by both players.");
+			}
+		}
+
+		this.sequenceCount = new int[] { 1, 1 };
+		this.sequenceOfKey = new int[keys];
+		for(int g = 0; g < groupCount; g++) {
+			int p = Math.max(0, this.groupPlayer[g]); //Groups never reached are given to P1
+			this.groupPlayer[g] = p;
+			for(int k = layout.groupOffset(g); k < layout.groupOffset(g + 1); k++)
+				this.sequenceOfKey[k] = this.sequenceCount[p]++;
+		}
+		this.groups = new int[2][];
+		for(int p = 0; p < 2; p++)
+			this.groups[p] = groupsDeepestFirst(p, groupDepth);
+
+		//Walk the tree top-down, keeping the last sequence of each player and
+		//the chance of reaching every node.
+		this.parentSequence = new int[groupCount];
+		Arrays.fill(this.parentSequence, -1);
+		int[] seqP1 = new int[n];
+		int[] seqP2 = new int[n];
+		double[] chance = new double[n];
+		chance[0] = 1;
+		int leaves = 0;
+		for(int node = 0; node < n; node++) {
+			int count = tree.childCount(node);
+			if(count == 0) {
+				if(chance[node] != 0)
+					leaves++;
+				continue;
+			}
+			int player = tree.isPlayer1(node) ? P1 : tree.isPlayer2(node) ? P2 : -1;
+			int first = tree.firstChild(node);
+			int k0 = player == -1 ? StrategyLayout.NO_KEY : layout.edgeKey(first);
+			if(k0 != StrategyLayout.NO_KEY) {
+				int g = layout.groupOf(k0);
+				int own = player == P1 ? seqP1[node] : seqP2[node];
+				if(this.parentSequence[g] == -1)
+					this.parentSequence[g] = own;
+				else if(this.parentSequence[g] != own)
+					throw new IllegalArgumentException("Group " + g
+							+ " of the validation set is reached after different moves of its player: the game does not have perfect recall.");
+			}
+			for(int c = first; c < first + count; c++) {
+				seqP1[c] = seqP1[node];
+				seqP2[c] = seqP2[node];
+				int k = player == -1 ? StrategyLayout.NO_KEY : layout.edgeKey(c);
+				if(k == StrategyLayout.NO_KEY) {
+					chance[c] = chance[node] * layout.edgeProbability(c);
+				} else {
+					chance[c] = chance[node];
+					if(player == P1)
+						seqP1[c] = this.sequenceOfKey[k];
+					else
+						seqP2[c] = this.sequenceOfKey[k];
+				}
+			}
+		}
+		for(int g = 0; g < groupCount; g++)
+			if(this.parentSequence[g] == -1)
+				this.parentSequence[g] = 0;
+
+		//Payoff entries, bucketed by row and merged by column
+		int rows = this.sequenceCount[P1];
+		int[] start = new int[rows + 1];
+		for(int node = 0; node < n; node++)
+			if(tree.childCount(node) == 0 && chance[node] != 0)
+				start[seqP1[node] + 1]++;
+		for(int r = 0; r < rows; r++)
+			start[r + 1] += start[r];
+		int[] fill = Arrays.copyOf(start, rows);
+		long[] entries = new long[leaves]; //column << 32 | leaf node
+		for(int node = 0; node < n; node++)
+			if(tree.childCount(node) == 0 && chance[node] != 0)
+				entries[fill[seqP1[node]]++] = (long) seqP2[node] << 32 | node;
+
+		int[] col = new int[leaves];
+		double[] a = new double[leaves];
+		double[] b = new double[leaves];
+		int nnz = 0;
+		boolean zs = true;
+		this.rowStart = new int[rows + 1];
+		for(int r = 0; r < rows; r++) {
+			this.rowStart[r] = nnz;
+			Arrays.sort(entries, start[r], start[r + 1]);
+			for(int e = start[r]; e < start[r + 1]; e++) {
+				int c = (int) (entries[e] >>> 32);
+				int leaf = (int) entries[e];
+				if(nnz == this.rowStart[r] || col[nnz - 1] != c) {
+					col[nnz] = c;
+					nnz++;
+				}
+				a[nnz - 1] += chance[leaf] * tree.payoffP1(leaf);
+				b[nnz - 1] += chance[leaf] * tree.payoffP2(leaf);
+				zs &= tree.payoffP1(leaf) == -tree.payoffP2(leaf);
+			}
+		}
+		this.rowStart[rows] = nnz;
+		this.column = Arrays.copyOf(col, nnz);
+		this.payoffP1 = Arrays.copyOf(a, nnz);
+		this.payoffP2 = Arrays.copyOf(b, nnz);
+		this.zeroSum = zs;
+	}
+
+	private int[] groupsDeepestFirst(int player, final int[] groupDepth) {
+		int count = 0;
+		for(int g = 0; g < this.groupPlayer.length; g++)
+			if(this.groupPlayer[g] == player)
+				count++;
+		long[] order = new long[count];
+		count = 0;
+		for(int g = 0; g < this.groupPlayer.length; g++)
+			if(this.groupPlayer[g] == player)
+				order[count++] = (long) -groupDepth[g] << 32 | g;
+		Arrays.sort(order);
+		int[] result = new int[count];
+		for(int i = 0; i < count; i++)
+			result[i] = (int) order[i];
+		return result;
+	}
+
+	public StrategyLayout getLayout() {
+		return this.layout;
+	}
+
+	/**
+	 * @param player P1 or P2.
+	 * @return the number of sequences of player, the empty one included.
+	 */
+	public int sequenceCount(int player) {
+		return this.sequenceCount[player];
+	}
+
+	/**
+	 * @return the sequence that ends with key, in the numbering of the
+	 * player of its group.
+	 */
+	public int sequenceOfKey(int key) {
+		return this.sequenceOfKey[key];
+	}
+
+	/**
+	 * @return the player (P1 or P2) of group g.
+	 */
+	public int groupPlayer(int g) {
+		return this.groupPlayer[g];
+	}
+
+	/**
+	 * @return the sequence of its player that leads to group g.
+	 */
+	public int parentSequence(int g) {
+		return this.parentSequence[g];
+	}
+
+	/**
+	 * @param player P1 or P2.
+	 * @return the groups of player, every group before the group of its
+	 * parent sequence. The array is shared and must not be modified.
+	 */
+	public int[] groups(int player) {
+		return this.groups[player];
+	}
+
+	/**
+	 * @return the number of non-zero entries of the payoff matrices.
+	 */
+	public int nonZeros() {
+		return this.column.length;
+	}
+
+	/**
+	 * @return true if the payoff of P2 is always minus the payoff of P1.
+	 */
+	public boolean isZeroSum() {
+		return this.zeroSum;
+	}
+
+	/**
+	 * Computes out = M y, where M is the payoff matrix of player.
+	 * @param player P1 or P2.
+	 * @param y a vector with a position per P2 sequence.
+	 * @param out a vector with a position per P1 sequence.
+	 */
+	public void multiply(int player, double[] y, double[] out) {
+		double[] v = player == P1 ? this.payoffP1 : this.payoffP2;
+		for(int r = 0; r < out.length; r++) {
+			double s = 0;
+			for(int e = this.rowStart[r]; e < this.rowStart[r + 1]; e++)
+				s += v[e] * y[this.column[e]];
+			out[r] = s;
+		}
+	}
+
+	/**
+	 * Computes out = x M, where M is the payoff matrix of player.
+	 * @param player P1 or P2.
+	 * @param x a vector with a position per P1 sequence.
+	 * @param out a vector with a position per P2 sequence.
+	 */
+	public void multiplyTransposed(int player, double[] x, double[] out) {
+		double[] v = player == P1 ? this.payoffP1 : this.payoffP2;
+		Arrays.fill(out, 0);
+		for(int r = 0; r < x.length; r++) {
+			double w = x[r];
+			if(w == 0)
+				continue;
+			for(int e = this.rowStart[r]; e < this.rowStart[r + 1]; e++)
+				out[this.column[e]] += v[e] * w;
+		}
+	}
+
+	/**
+	 * Converts a realization plan of player into a behavioral strategy,
+	 * writing the keys of his groups. Groups whose parent sequence has
+	 * weight zero get the uniform distribution.
+	 * @param player P1 or P2.
+	 * @param plan a weight per sequence of player.
+	 * @param out a strategy in StrategyLayout order.
+	 */
+	public void toBehavioral(int player, double[] plan, double[] out) {
+		for(int g: this.groups[player]) {
+			int from = this.layout.groupOffset(g);
+			int to = this.layout.groupOffset(g + 1);
+			double parent = 0;
+			for(int k = from; k < to; k++)
+				parent += plan[this.sequenceOfKey[k]];
+			for(int k = from; k < to; k++)
+				out[k] = parent > 0 ? plan[this.sequenceOfKey[k]] / parent : 1.0 / (to - from);
+		}
+	}
+}
@@ -0,0 +1,311 @@
+package gametree;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Computes maxmin (safe) strategies of a game in sequence form: for each
+ * player, the strategy that maximizes the payoff he can guarantee
+ * whatever the opponent does. For P1 this is an equilibrium strategy of
+ * the zero-sum game with his payoffs, and for P2 of the zero-sum game
+ * with hers, so each player has a problem of its own (a single one if the
+ * game is zero-sum).
+ *
+ * Each problem is solved with CFR+ on the sequence form: the players
+ * update in turn, computing the counterfactual value of every sequence
+ * with a sparse matrix product and one pass over the information sets,
+ * and the realization plans are averaged with linear weights. The duality
+ * gap of the average plans, obtained from two best responses, bounds how
+ * far they are from optimal, so the solver can stop at any accuracy.
+ *
+ * The two problems of a general-sum game run in parallel on a
+ * ForkJoinPool. An instance is not thread-safe.
+ */
+public final class SequenceFormSolver {
+
+	private final SequenceForm form;
+	private final ForkJoinPool pool;
+	//problems[0] gives the strategy of P1, problems[1] the one of P2
+	private final Problem[] problems;
+	private int iterations;
+
+	public SequenceFormSolver(SequenceForm form) {
+		this(form, ForkJoinPool.commonPool());
+	}
+
+	public SequenceFormSolver(SequenceForm form, ForkJoinPool pool) {
+		this.form = form;
+		this.pool = pool;
+		Problem first = new Problem(SequenceForm.P1, 1);
+		this.problems = new Problem[] { first, form.isZeroSum() ? first : new Problem(SequenceForm.P2, -1) };
+		this.iterations = 0;
+	}
+
+	public SequenceForm getForm() {
+		return this.form;
+	}
+
+	/**
+	 * @return the number of iterations performed so far.
+	 */
+	public int getIterations() {
+		return this.iterations;
+	}
+
+	/**
+	 * Performs one iteration of every problem.
+	 */
+	public void iterate() {
+		this.iterations++;
+		if(this.problems[0] == this.problems[1]) {
+			this.problems[0].iterate(this.iterations);
+			return;
+		}
+		final int t = this.iterations;
+		this.pool.invoke(new RecursiveAction() {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected void compute() {
+				ForkJoinTask.invokeAll(step(problems[0], t), step(problems[1], t));
+			}
+		});
+	}
+
+	private static RecursiveAction step(final Problem p, final int t) {
+		return new RecursiveAction() {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected void compute() {
+				p.iterate(t);
+			}
+		};
+	}
+
+	/**
+	 * Iterates until the gap is at most epsilon or the time is over.
+	 * @param epsilon the largest acceptable gap().
+	 * @param millis the longest time to iterate.
+	 * @return true if the gap was reached.
+	 */
+	public boolean solve(double epsilon, long millis) {
+		long deadline = System.nanoTime() + millis * 1000000L;
+		int check = 1;
+		while(true) {
+			for(int i = 0; i < check; i++)
+				iterate();
+			if(gap() <= epsilon)
+				return true;
+			if(System.nanoTime() >= deadline)
+				return false;
+			check = Math.min(check << 1, 64);
+		}
+	}
+
+	/**
+	 * @return the largest duality gap of the average strategies: neither
+	 * player's strategy guarantees less than gap() below his maxmin value.
+	 * Infinite before the first iteration.
+	 */
+	public double gap() {
+		if(this.iterations == 0)
+			return Double.POSITIVE_INFINITY;
+		double g = this.problems[0].gap();
+		return this.problems[1] == this.problems[0] ? g : Math.max(g, this.problems[1].gap());
+	}
+
+	/**
+	 * @param player SequenceForm.P1 or SequenceForm.P2.
+	 * @return the expected payoff that the average strategy of player
+	 * guarantees him against any strategy of the opponent.
+	 */
+	public double guaranteedPayoff(int player) {
+		Problem p = this.problems[player];
+		p.gap();
+		//P1 maximizes the value of every problem and P2 minimizes it; the
+		//payoff of P2 is minus that value, in her own problem by its sign
+		//and in the shared problem of a zero-sum game by the game itself
+		return player == SequenceForm.P1 ? p.lower : -p.upper;
+	}
+
+	/**
+	 * Writes the average strategies, P1 groups from the problem of P1 and
+	 * P2 groups from the problem of P2, into out.
+	 * @param out an array with layout.keyCount() positions.
+	 */
+	public void getStrategy(double[] out) {
+		this.problems[0].average(SequenceForm.P1, out);
+		this.problems[1].average(SequenceForm.P2, out);
+	}
+
+	/**
+	 * Forgets all iterations.
+	 */
+	public void reset() {
+		this.problems[0].reset();
+		this.problems[1].reset();
+		this.iterations = 0;
+	}
+
+	/**
+	 * The zero-sum game where P1 maximizes sign times the payoff of owner
+	 * and P2 minimizes it.
+	 */
+	private final class Problem {
+
+		private final int owner;
+		private final double sign;
+		//Per player, indexed by sequence
+		private final double[][] plan;
+		private final double[][] planSum;
+		private final double[][] value;
+		//Per key (only the keys of the player's groups are used)
+		private final double[] regret;
+		private final double[] current;
+		private double weightSum;
+		//Bounds on the game value given by the average plans, set by gap()
+		private double lower;
+		private double upper;
+
+		Problem(int owner, double sign) {
+			this.owner = owner;
+			this.sign = sign;
+			this.plan = new double[2][];
+			this.planSum = new double[2][];
+			this.value = new double[2][];
+			for(int p = 0; p < 2; p++) {
+				int s = form.sequenceCount(p);
+				this.plan[p] = new double[s];
+				this.planSum[p] = new double[s];
+				this.value[p] = new double[s];
+			}
+			int keys = form.getLayout().keyCount();
+			this.regret = new double[keys];
+			this.current = new double[keys];
+			reset();
+		}
+
+		void reset() {
+			Arrays.fill(this.regret, 0);
+			StrategyLayout layout = form.getLayout();
+			for(int g = 0; g < layout.groupCount(); g++)
+				for(int k = layout.groupOffset(g); k < layout.groupOffset(g + 1); k++)
+					this.current[k] = 1.0 / layout.groupSize(g);
+			for(int p = 0; p < 2; p++) {
+				realize(p);
+				Arrays.fill(this.planSum[p], 0);
+			}
+			this.weightSum = 0;
+			this.lower = Double.NaN;
+			this.upper = Double.NaN;
+		}
+
+		/**
+		 * Values of the sequences of player against the current plan of the
+		 * opponent, from the point of view of player.
+		 */
+		private void gradient(int player, double[][] plans, double[] out) {
+			if(player == SequenceForm.P1) {
+				form.multiply(this.owner, plans[SequenceForm.P2], out);
+			} else {
+				form.multiplyTransposed(this.owner, plans[SequenceForm.P1], out);
+			}
+			double s = player == SequenceForm.P1 ? this.sign : -this.sign;
+			for(int i = 0; i < out.length; i++)
+				out[i] *= s;
+		}
+
+		void iterate(int t) {
+			for(int p = 0; p < 2; p++) {
+				double[] v = this.value[p];
+				gradient(p, this.plan, v);
+				update(p, v);
+				realize(p);
+				double[] sum = this.planSum[p];
+				double[] x = this.plan[p];
+				for(int i = 0; i < sum.length; i++)
+					sum[i] += t * x[i];
+			}
+			this.weightSum += t;
+		}
+
+		/**
+		 * CFR+ regret update of the groups of player, deepest first, given
+		 * the value of each of his sequences in v.
+		 */
+		private void update(int player, double[] v) {
+			StrategyLayout layout = form.getLayout();
+			for(int g: form.groups(player)) {
+				int from = layout.groupOffset(g);
+				int to = layout.groupOffset(g + 1);
+				double expected = 0;
+				for(int k = from; k < to; k++)
+					expected += this.current[k] * v[form.sequenceOfKey(k)];
+				double sum = 0;
+				for(int k = from; k < to; k++) {
+					double r = this.regret[k] + v[form.sequenceOfKey(k)] - expected;
+					this.regret[k] = r > 0 ? r : 0;
+					sum += this.regret[k];
+				}
+				for(int k = from; k < to; k++)
+					this.current[k] = sum > 0 ? this.regret[k] / sum : 1.0 / (to - from);
+				v[form.parentSequence(g)] += expected;
+			}
+		}
+
+		/**
+		 * Computes the realization plan of player from the current strategy.
+		 */
+		private void realize(int player) {
+			StrategyLayout layout = form.getLayout();
+			double[] x = this.plan[player];
+			x[0] = 1;
+			int[] groups = form.groups(player);
+			for(int i = groups.length - 1; i >= 0; i--) {
+				int g = groups[i];
+				double parent = x[form.parentSequence(g)];
+				for(int k = layout.groupOffset(g); k < layout.groupOffset(g + 1); k++)
+					x[form.sequenceOfKey(k)] = parent * this.current[k];
+			}
+		}
+
+		/**
+		 * @return the best response value of player against the average
+		 * plan of the opponent, from the point of view of player.
+		 */
+		private double bestResponse(int player) {
+			double[][] average = new double[2][];
+			for(int p = 0; p < 2; p++) {
+				average[p] = this.planSum[p].clone();
+				for(int i = 0; i < average[p].length; i++)
+					average[p][i] /= this.weightSum;
+			}
+			double[] v = this.value[player];
+			gradient(player, average, v);
+			StrategyLayout layout = form.getLayout();
+			for(int g: form.groups(player)) {
+				double best = Double.NEGATIVE_INFINITY;
+				for(int k = layout.groupOffset(g); k < layout.groupOffset(g + 1); k++)
+					best = Math.max(best, v[form.sequenceOfKey(k)]);
+				v[form.parentSequence(g)] += best;
+			}
+			return v[0];
+		}
+
+		double gap() {
+			this.upper = bestResponse(SequenceForm.P1);
+			this.lower = -bestResponse(SequenceForm.P2);
+			return this.upper - this.lower;
+		}
+
+		void average(int player, double[] out) {
+			double[] x = this.planSum[player];
+			if(this.weightSum == 0)
+				x = this.plan[player];
+			form.toBehavioral(player, x, out);
+		}
+	}
+}
@@ -0,0 +1,184 @@
+package gametree;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Describes how a behavioral strategy maps onto a game tree when it is
+ * stored as a plain double[].
+ *
+ * Position i of such an array holds the probability of the i-th key
+ * returned by PlayStrategy.keyIterator(). Consecutive keys form the
+ * groups described by getValidationSet(): the probabilities of the keys
+ * of one group must add up to one. A key is the label of the edges that
+ * follow the corresponding move, so every edge leaving a player node is
+ * resolved here to the position of its key.
+ *
+ * Edges leaving nature nodes, and player edges whose label is not a key,
+ * get a fixed probability instead: the nature weight in the first case
+ * and a uniform choice in the second.
+ */
+public final class StrategyLayout {
+
+	/** Key position of edges that are not governed by a strategy key. */
+	public static final int NO_KEY = -1;
+
+	private final CompactGameTree tree;
+	private final String[] keys;
+	private final Map<String, Integer> positions;
+	private final int[] groupOffset;
+	private final int[] groupOfKey;
+	private final int[] edgeKey;
+	private final double[] edgeProbability;
+
+	/**
+	 * @param tree the game tree.
+	 * @param keys the keys in the order of PlayStrategy.keyIterator().
+	 * @throws IllegalArgumentException if the number of keys does not match
+	 * the validation set of the tree.
+	 */
+	public StrategyLayout(CompactGameTree tree, Iterator<String> keys) {
+		this.tree = tree;
+
+		this.keys = keys(keys);
+		this.positions = new HashMap<String, Integer>();
+		for(int i = 0; i < this.keys.length; i++)
+			this.positions.put(this.keys[i], i);
+
+		this.groupOffset = groupOffsets(tree.getValidationSet(), this.keys.length);
+		this.groupOfKey = new int[this.keys.length];
+		for(int g = 0; g < this.groupOffset.length - 1; g++)
+			Arrays.fill(this.groupOfKey, this.groupOffset[g], this.groupOffset[g + 1], g);
+
+		int[] keyOfLabel = new int[tree.labelCount()];
+		for(int l = 0; l < keyOfLabel.length; l++) {
+			Integer p = this.positions.get(tree.label(l));
+			keyOfLabel[l] = p == null ? NO_KEY : p.intValue();
+		}
+		this.edgeKey = new int[tree.size()];
+		this.edgeProbability = new double[tree.size()];
+		this.edgeKey[tree.root()] = NO_KEY;
+		this.edgeProbability[tree.root()] = 1;
+		for(int n = 0; n < tree.size(); n++) {
+			int first = tree.firstChild(n);
+			int end = first + tree.childCount(n);
+			boolean decision = tree.isPlayer1(n) || tree.isPlayer2(n);
+			for(int c = first; c < end; c++) {
+				this.edgeKey[c] = decision ? keyOfLabel[tree.labelId(c)] : NO_KEY;
+				if(this.edgeKey[c] == NO_KEY)
+					this.edgeProbability[c] = decision ? 1.0 / tree.childCount(n) : tree.weight(c);
+			}
+		}
+	}
+
+	/**
+	 * @param keys the keys in the order of PlayStrategy.keyIterator().
+	 * @return the keys, position i holding the i-th.
+	 */
+	public static String[] keys(Iterator<String> keys) {
+		List<String> k = new ArrayList<String>();
+		while(keys.hasNext())
+			k.add(keys.next());
+		return k.toArray(new String[k.size()]);
+	}
+
+	/**
+	 * Computes the groups of a strategy array without a tree, for a caller
+	 * that only needs the validation set.
+	 * @param validationSet the number of moves of each group, as returned by
+	 * GameTreeInterface.getValidationSet().
+	 * @param keyCount the number of keys of the game.
+	 * @return the position of the first key of every group, followed by
+	 * keyCount.
+	 * @throws IllegalArgumentException if keyCount does not match the
+	 * validation set.
+	 */
+	public static int[] groupOffsets(List<Integer> validationSet, int keyCount) {
+		int[] offset = new int[validationSet.size() + 1];
+		for(int g = 0; g < validationSet.size(); g++)
+			offset[g + 1] = offset[g] + validationSet.get(g).intValue();
+		if(offset[validationSet.size()] != keyCount)
+			throw new IllegalArgumentException("Strategy structure does not match the game: " + keyCount
+					+ " keys for " + offset[validationSet.size()] + " moves in the validation set.");
+		return offset;
+	}
+
+	public CompactGameTree getTree() {
+		return this.tree;
+	}
+
+	/**
+	 * @return the number of keys, i.e. the length of a strategy array.
+	 */
+	public int keyCount() {
+		return this.keys.length;
+	}
+
+	public String key(int position) {
+		return this.keys[position];
+	}
+
+	/**
+	 * @return the position of key, NO_KEY if it is not a key of this game.
+	 */
+	public int position(String key) {
+		Integer p = this.positions.get(key);
+		return p == null ? NO_KEY : p.intValue();
+	}
+
+	/**
+	 * @return the number of groups in the validation set.
+	 */
+	public int groupCount() {
+		return this.groupOffset.length - 1;
+	}
+
+	/**
+	 * @return the position of the first key of group g. groupOffset(groupCount())
+	 * equals keyCount().
+	 */
+	public int groupOffset(int g) {
+		return this.groupOffset[g];
+	}
+
+	public int groupSize(int g) {
+		return this.groupOffset[g + 1] - this.groupOffset[g];
+	}
+
+	public int groupOf(int position) {
+		return this.groupOfKey[position];
+	}
+
+	/**
+	 * @return a new strategy array where every key has the probability of
+	 * the other moves of its group.
+	 */
+	public double[] uniform() {
+		double[] s = new double[this.keys.length];
+		for(int g = 0; g < groupCount(); g++)
+			for(int k = this.groupOffset[g]; k < this.groupOffset[g + 1]; k++)
+				s[k] = 1.0 / groupSize(g);
+		return s;
+	}
+
+	/**
+	 * @param node a node id other than the root.
+	 * @return the position of the key that governs the edge leading to node,
+	 * NO_KEY if the edge has a fixed probability.
+	 */
+	public int edgeKey(int node) {
+		return this.edgeKey[node];
+	}
+
+	/**
+	 * @param node a node id whose edgeKey() is NO_KEY.
+	 * @return the fixed probability of the edge leading to node.
+	 */
+	public double edgeProbability(int node) {
+		return this.edgeProbability[node];
+	}
+}
@@ -0,0 +1,208 @@
+package gametree;
+
+import java.util.Arrays;
+
+/**
+ * Computes the expected payoffs of a pair of behavioral strategies, both
+ * stored as double[] in the order described by a StrategyLayout.
+ *
+ * Since every player plays both seats, one call evaluates the two
+ * matches between strategies a and b at once. The results are written
+ * to a caller supplied array:
+ * <ul>
+ * <li>out[A_AS_P1]: payoff of a when a plays the P1 nodes and b the P2 nodes;</li>
+ * <li>out[B_AS_P2]: payoff of b in that same match;</li>
+ * <li>out[A_AS_P2]: payoff of a when b plays the P1 nodes and a the P2 nodes;</li>
+ * <li>out[B_AS_P1]: payoff of b in that second match.</li>
+ * </ul>
+ *
+ * The evaluation is a single forward pass over the node ids that
+ * propagates reach probabilities from parents to children. All buffers
+ * are allocated up front and reused, so evaluate() does not allocate
+ * and can be called thousands of times per round. An instance is not
+ * thread-safe; use one evaluator per thread.
+ */
+public final class StrategyProfileEvaluator {
+
+	public static final int A_AS_P1 = 0;
+	public static final int B_AS_P2 = 1;
+	public static final int A_AS_P2 = 2;
+	public static final int B_AS_P1 = 3;
+
+	/** Number of results written per evaluated pair. */
+	public static final int RESULTS = 4;
+
+	private final CompactGameTree tree;
+	private final StrategyLayout layout;
+
+	private final double[] reachAB;
+	private final double[] reachBA;
+
+	private final int[] preorder;
+	private final int[] depth;
+	private final int maxDepth;
+	private double[] rows;
+	private int rowCapacity;
+
+	public StrategyProfileEvaluator(StrategyLayout layout) {
+		this.tree = layout.getTree();
+		this.layout = layout;
+		this.reachAB = new double[this.tree.size()];
+		this.reachBA = new double[this.tree.size()];
+
+		//Depth first order for the batch mode, which only keeps the reach
+		//probabilities of the current path.
+		int n = this.tree.size();
+		this.preorder = new int[n];
+		this.depth = new int[n];
+		int[] stack = new int[n];
+		int top = 0;
+		int size = 0;
+		int max = 0;
+		stack[top++] = this.tree.root();
+		while(top > 0) {
+			int node = stack[--top];
+			this.preorder[size++] = node;
+			int p = this.tree.parent(node);
+			this.depth[node] = p == CompactGameTree.NONE ? 0 : this.depth[p] + 1;
+			max = Math.max(max, this.depth[node]);
+			for(int c = this.tree.firstChild(node) + this.tree.childCount(node) - 1; c >= this.tree.firstChild(node); c--)
+				stack[top++] = c;
+		}
+		this.maxDepth = max;
+		this.rowCapacity = 0;
+	}
+
+	public StrategyLayout getLayout() {
+		return this.layout;
+	}
+
+	/**
+	 * Evaluates the two matches between a and b.
+	 * @param a a strategy in layout order.
+	 * @param b a strategy in layout order.
+	 * @param out an array with at least RESULTS positions that receives the
+	 * expected payoffs (see the class documentation).
+	 */
+	public void evaluate(double[] a, double[] b, double[] out) {
+		final CompactGameTree t = this.tree;
+		final StrategyLayout l = this.layout;
+		final double[] rAB = this.reachAB;
+		final double[] rBA = this.reachBA;
+		double aP1 = 0, bP2 = 0, aP2 = 0, bP1 = 0;
+
+		rAB[0] = 1;
+		rBA[0] = 1;
+		for(int n = 0, size = t.size(); n < size; n++) {
+			int count = t.childCount(n);
+			if(count == 0) {
+				aP1 += rAB[n] * t.payoffP1(n);
+				bP2 += rAB[n] * t.payoffP2(n);
+				bP1 += rBA[n] * t.payoffP1(n);
+				aP2 += rBA[n] * t.payoffP2(n);
+				continue;
+			}
+			double ab = rAB[n];
+			double ba = rBA[n];
+			int first = t.firstChild(n);
+			int end = first + count;
+			if(t.isPlayer1(n)) {
+				for(int c = first; c < end; c++) {
+					int k = l.edgeKey(c);
+					rAB[c] = ab * (k >= 0 ? a[k] : l.edgeProbability(c));
+					rBA[c] = ba * (k >= 0 ? b[k] : l.edgeProbability(c));
+				}
+			} else if(t.isPlayer2(n)) {
+				for(int c = first; c < end; c++) {
+					int k = l.edgeKey(c);
+					rAB[c] = ab * (k >= 0 ? b[k] : l.edgeProbability(c));
+					rBA[c] = ba * (k >= 0 ? a[k] : l.edgeProbability(c));
+				}
+			} else {
+				for(int c = first; c < end; c++) {
+					double w = l.edgeProbability(c);
+					rAB[c] = ab * w;
+					rBA[c] = ba * w;
+				}
+			}
+		}
+		out[A_AS_P1] = aP1;
+		out[B_AS_P2] = bP2;
+		out[A_AS_P2] = aP2;
+		out[B_AS_P1] = bP1;
+	}
+
+	/**
+	 * Evaluates count candidate strategies against the same opponent in a
+	 * single traversal of the tree. The results of candidate j are written
+	 * to out[j * RESULTS .. j * RESULTS + RESULTS - 1], in the order of
+	 * evaluate() with a = candidates[j] and b = opponent.
+	 *
+	 * Only the reach probabilities along the current path are kept, so the
+	 * working memory is proportional to the tree depth times count. It is
+	 * allocated on the first call with a given count and reused afterwards.
+	 * @param candidates the candidate strategies in layout order.
+	 * @param count how many candidates (from position 0) to evaluate.
+	 * @param opponent the opponent strategy in layout order.
+	 * @param out an array with at least count * RESULTS positions.
+	 */
+	public void evaluateBatch(double[][] candidates, int count, double[] opponent, double[] out) {
+		final CompactGameTree t = this.tree;
+		final StrategyLayout l = this.layout;
+		//Each depth owns a row of 2 * count reach probabilities: the first
+		//half for the candidates as P1, the second for the candidates as P2.
+		final int stride = 2 * count;
+		if(this.rowCapacity < stride) {
+			this.rows = new double[(this.maxDepth + 1) * stride];
+			this.rowCapacity = stride;
+		}
+		final double[] r = this.rows;
+		Arrays.fill(r, 0, stride, 1);
+		Arrays.fill(out, 0, count * RESULTS, 0);
+
+		for(int i = 1, size = t.size(); i < size; i++) {
+			int n = this.preorder[i];
+			int p = t.parent(n);
+			int row = this.depth[n] * stride;
+			int up = row - stride;
+			int k = l.edgeKey(n);
+			if(k < 0) {
+				double w = l.edgeProbability(n);
+				for(int j = 0; j < stride; j++)
+					r[row + j] = r[up + j] * w;
+			} else if(t.isPlayer1(p)) {
+				double w = opponent[k];
+				for(int j = 0; j < count; j++) {
+					r[row + j] = r[up + j] * candidates[j][k];
+					r[row + count + j] = r[up + count + j] * w;
+				}
+			} else {
+				double w = opponent[k];
+				for(int j = 0; j < count; j++) {
+					r[row + j] = r[up + j] * w;
+					r[row + count + j] = r[up + count + j] * candidates[j][k];
+				}
+			}
+			if(t.childCount(n) == 0) {
+				double u1 = t.payoffP1(n);
+				double u2 = t.payoffP2(n);
+				for(int j = 0; j < count; j++) {
+					double asP1 = r[row + j];
+					double asP2 = r[row + count + j];
+					int o = j * RESULTS;
+					out[o + A_AS_P1] += asP1 * u1;
+					out[o + B_AS_P2] += asP1 * u2;
+					out[o + B_AS_P1] += asP2 * u1;
+					out[o + A_AS_P2] += asP2 * u2;
+				}
+			}
+		}
+		if(t.childCount(t.root()) == 0) {
+			for(int j = 0; j < count; j++) {
+				int o = j * RESULTS;
+				out[o + A_AS_P1] = out[o + B_AS_P1] = t.payoffP1(t.root());
+				out[o + B_AS_P2] = out[o + A_AS_P2] = t.payoffP2(t.root());
+			}
+		}
+	}
+}
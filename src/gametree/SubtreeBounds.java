@@ -0,0 +1,173 @@
+package gametree;
+
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Aggregates of the subtree rooted at every node of a CompactGameTree:
+ * the smallest and largest payoff of each player over its terminal nodes,
+ * the number of nodes and of terminal nodes, and the depth of the node.
+ *
+ * They bound what can happen below a node without walking it: a search
+ * can skip a child whose maxPayoffP1() cannot beat the best value found
+ * so far, and the statistics of the whole game are those of the root.
+ *
+ * The aggregates are computed bottom-up in parallel on a ForkJoinPool and
+ * kept in primitive arrays indexed by node id. CompactGameTree.getBounds()
+ * computes them once per tree; setting the system property BOUNDS_PROPERTY
+ * computes them as soon as a tree is built.
+ */
+public final class SubtreeBounds {
+
+	/**
+	 * Name of the system property that, when set to true, has every
+	 * CompactGameTree compute its bounds when it is built.
+	 */
+	public static final String BOUNDS_PROPERTY = "gametree.bounds";
+
+	private final CompactGameTree tree;
+	private final int[] minP1;
+	private final int[] maxP1;
+	private final int[] minP2;
+	private final int[] maxP2;
+	private final int[] terminals;
+	private final int[] depth;
+	private final int[] size;
+	private final int height;
+
+	private SubtreeBounds(CompactGameTree tree) {
+		this.tree = tree;
+		int n = tree.size();
+		this.minP1 = new int[n];
+		this.maxP1 = new int[n];
+		this.minP2 = new int[n];
+		this.maxP2 = new int[n];
+		this.terminals = new int[n];
+		this.size = tree.subtreeSizes();
+		//Parents come before their children in id order
+		this.depth = new int[n];
+		int h = 0;
+		for(int node = 1; node < n; node++) {
+			this.depth[node] = this.depth[tree.parent(node)] + 1;
+			h = Math.max(h, this.depth[node]);
+		}
+		this.height = h;
+	}
+
+	/**
+	 * Computes the bounds of tree using the common ForkJoinPool.
+	 * @param tree the tree.
+	 * @return the bounds.
+	 */
+	public static SubtreeBounds compute(CompactGameTree tree) {
+		return compute(tree, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Computes the bounds of tree on the given pool.
+	 * @param tree the tree.
+	 * @param pool the pool that will run the computation.
+	 * @return the bounds.
+	 */
+	public static SubtreeBounds compute(CompactGameTree tree, ForkJoinPool pool) {
+		final SubtreeBounds b = new SubtreeBounds(tree);
+		new ParallelTreeWalker(tree, pool).bottomUp(new ParallelTreeWalker.Visitor() {
+			@Override
+			public void visit(int node) {
+				b.aggregate(node);
+			}
+		});
+		return b;
+	}
+
+	private void aggregate(int node) {
+		int count = this.tree.childCount(node);
+		if(count == 0) {
+			this.minP1[node] = this.maxP1[node] = this.tree.payoffP1(node);
+			this.minP2[node] = this.maxP2[node] = this.tree.payoffP2(node);
+			this.terminals[node] = 1;
+			return;
+		}
+		int first = this.tree.firstChild(node);
+		int end = first + count;
+		int lo1 = this.minP1[first], hi1 = this.maxP1[first];
+		int lo2 = this.minP2[first], hi2 = this.maxP2[first];
+		int t = this.terminals[first];
+		for(int c = first + 1; c < end; c++) {
+			lo1 = Math.min(lo1, this.minP1[c]);
+			hi1 = Math.max(hi1, this.maxP1[c]);
+			lo2 = Math.min(lo2, this.minP2[c]);
+			hi2 = Math.max(hi2, this.maxP2[c]);
+			t += this.terminals[c];
+		}
+		this.minP1[node] = lo1;
+		this.maxP1[node] = hi1;
+		this.minP2[node] = lo2;
+		this.maxP2[node] = hi2;
+		this.terminals[node] = t;
+	}
+
+	public CompactGameTree getTree() {
+		return this.tree;
+	}
+
+	/**
+	 * @return the smallest payoff of player 1 over the terminal nodes below
+	 * node (node included).
+	 */
+	public int minPayoffP1(int node) {
+		return this.minP1[node];
+	}
+
+	/**
+	 * @return the largest payoff of player 1 over the terminal nodes below
+	 * node (node included).
+	 */
+	public int maxPayoffP1(int node) {
+		return this.maxP1[node];
+	}
+
+	/**
+	 * @return the smallest payoff of player 2 over the terminal nodes below
+	 * node (node included).
+	 */
+	public int minPayoffP2(int node) {
+		return this.minP2[node];
+	}
+
+	/**
+	 * @return the largest payoff of player 2 over the terminal nodes below
+	 * node (node included).
+	 */
+	public int maxPayoffP2(int node) {
+		return this.maxP2[node];
+	}
+
+	/**
+	 * @return the number of nodes in the subtree rooted at node, node
+	 * included.
+	 */
+	public int subtreeSize(int node) {
+		return this.size[node];
+	}
+
+	/**
+	 * @return the number of terminal nodes in the subtree rooted at node.
+	 */
+	public int terminalCount(int node) {
+		return this.terminals[node];
+	}
+
+	/**
+	 * @return the depth of node, the root being at depth 0.
+	 */
+	public int depth(int node) {
+		return this.depth[node];
+	}
+
+	/**
+	 * @return the depth of the deepest node.
+	 */
+	public int height() {
+		return this.height;
+	}
+}
@@ -0,0 +1,480 @@
+package gametree;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Finds a Nash equilibrium of a NormalForm by support enumeration.
+ *
+ * For every pair of supports (sets of pure strategies played with
+ * positive probability) of the same size, smallest first, it solves the
+ * linear systems that make each player indifferent between the
+ * strategies of his support, and accepts the solution if both mixed
+ * strategies are probabilities and no strategy outside the supports pays
+ * more. Pure equilibria are found first. Supports of equal size find an
+ * equilibrium of every nondegenerate game.
+ *
+ * Degenerate games, which reduced normal forms often are (two plans that
+ * differ only after a move of the opponent tie against many columns), may
+ * only have equilibria whose supports differ in size. When the first
+ * search fails, the extreme equilibria are searched instead: every game
+ * has one, made of a vertex of each player, a vertex being a mixed
+ * strategy that makes the opponent indifferent among as many of his best
+ * responses as it has strategies in its support. All the vertices with
+ * supports up to maxSupport are listed and the first pair where each
+ * strategy only plays best responses to the other is returned, so with
+ * maxSupport at least the number of strategies of both players find()
+ * always returns an equilibrium.
+ *
+ * The number of supports grows exponentially, so the search is meant for
+ * the strategies left by a DominanceEliminator, and maxSupport bounds the
+ * size of the supports tried. The supports are split by their first
+ * strategy among the tasks of a ForkJoinPool; in the first search they
+ * stop as soon as one of them finds an equilibrium.
+ */
+public final class SupportEnumeration {
+
+	//Tolerance of the feasibility and best response tests
+	private static final double EPSILON = 1e-9;
+
+	private final NormalForm form;
+	private final double[][] strategy;
+	private final double[] payoff;
+
+	private SupportEnumeration(NormalForm form, double[] x, double[] y, double u, double v) {
+		this.form = form;
+		this.strategy = new double[][] { x, y };
+		this.payoff = new double[] { u, v };
+	}
+
+	/**
+	 * Searches an equilibrium among the strategies that survived
+	 * elimination, with supports of any size, using the common
+	 * ForkJoinPool.
+	 * @param reduced the result of a DominanceEliminator.
+	 * @return the equilibrium, null if none was found.
+	 */
+	public static SupportEnumeration find(DominanceEliminator reduced) {
+		int[] rows = reduced.survivors(NormalForm.P1);
+		int[] columns = reduced.survivors(NormalForm.P2);
+		return find(reduced.getForm(), rows, columns, Math.min(rows.length, columns.length),
+				ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Searches an equilibrium where P1 only plays rows and P2 only plays
+	 * columns. An equilibrium of that subgame is one of the whole game
+	 * when the other strategies are dominated.
+	 * @param form the normal form.
+	 * @param rows the pure strategies of P1 considered, in increasing order.
+	 * @param columns the pure strategies of P2 considered, in increasing
+	 * order.
+	 * @param maxSupport the largest support size tried.
+	 * @param pool the pool that runs the search.
+	 * @return the equilibrium, null if none was found, which can only
+	 * happen when maxSupport is smaller than the number of rows or columns.
+	 */
+	public static SupportEnumeration find(NormalForm form, int[] rows, int[] columns, int maxSupport, ForkJoinPool pool) {
+		AtomicReference<SupportEnumeration> found = new AtomicReference<SupportEnumeration>();
+		int limit = Math.min(maxSupport, Math.min(rows.length, columns.length));
+		for(int k = 1; k <= limit && found.get() == null; k++)
+			pool.invoke(new Search(form, rows, columns, k, 0, rows.length - k + 1, found));
+		if(found.get() == null) //A degenerate game
+			found.set(extreme(form, rows, columns, limit, pool));
+		return found.get();
+	}
+
+	/**
+	 * Searches an extreme equilibrium among the vertices of both players
+	 * with supports of at most limit strategies, which find() does when
+	 * the supports of equal size fail.
+	 * @return the equilibrium, null if none was found.
+	 */
+	static SupportEnumeration extreme(NormalForm form, int[] rows, int[] columns, int limit, ForkJoinPool pool) {
+		List<Vertex> x = vertices(form, NormalForm.P1, rows, columns, limit, pool);
+		List<Vertex> y = vertices(form, NormalForm.P2, rows, columns, limit, pool);
+		for(Vertex a: x) {
+			for(Vertex b: y) {
+				if(!a.playsBestResponses(b) || !b.playsBestResponses(a))
+					continue;
+				double[] mixedP1 = new double[form.rows()];
+				double[] mixedP2 = new double[form.columns()];
+				for(int r = 0; r < rows.length; r++)
+					mixedP1[rows[r]] = a.weight[r];
+				for(int c = 0; c < columns.length; c++)
+					mixedP2[columns[c]] = b.weight[c];
+				return new SupportEnumeration(form, mixedP1, mixedP2, b.value, a.value);
+			}
+		}
+		return null;
+	}
+
+	private static List<Vertex> vertices(NormalForm form, int player, int[] rows, int[] columns, int limit,
+			ForkJoinPool pool) {
+		Queue<Vertex> found = new ConcurrentLinkedQueue<Vertex>();
+		int own = player == NormalForm.P1 ? rows.length : columns.length;
+		for(int k = 1; k <= limit; k++)
+			pool.invoke(new Vertices(form, player, rows, columns, k, 0, own - k + 1, found));
+		return new ArrayList<Vertex>(found);
+	}
+
+	public NormalForm getForm() {
+		return this.form;
+	}
+
+	/**
+	 * @param player NormalForm.P1 or NormalForm.P2.
+	 * @return the equilibrium strategy of player, a probability per pure
+	 * strategy of the form. The array is shared and must not be modified.
+	 */
+	public double[] getStrategy(int player) {
+		return this.strategy[player];
+	}
+
+	/**
+	 * @param player NormalForm.P1 or NormalForm.P2.
+	 * @return the expected payoff of player in the equilibrium.
+	 */
+	public double getPayoff(int player) {
+		return this.payoff[player];
+	}
+
+	/**
+	 * @param player NormalForm.P1 or NormalForm.P2.
+	 * @return the number of pure strategies player mixes.
+	 */
+	public int getSupportSize(int player) {
+		int size = 0;
+		for(double p: this.strategy[player])
+			if(p > 0)
+				size++;
+		return size;
+	}
+
+	/**
+	 * Advances a combination of positions to the next one in
+	 * lexicographic order.
+	 * @return false if it was the last one.
+	 */
+	private static boolean next(int[] c, int n) {
+		int k = c.length;
+		int a = k - 1;
+		while(a >= 0 && c[a] == n - k + a)
+			a--;
+		if(a < 0)
+			return false;
+		c[a]++;
+		for(int b = a + 1; b < k; b++)
+			c[b] = c[b - 1] + 1;
+		return true;
+	}
+
+	/**
+	 * Completes the k indifference equations in the first rows of system
+	 * (k weights and the value as unknowns, right-hand side in the last
+	 * column) with the sum of the weights being 1, and solves it by
+	 * Gaussian elimination with partial pivoting.
+	 * @param out the k weights followed by the value.
+	 * @return false if the system is singular or a weight is negative.
+	 */
+	private static boolean solveProbabilities(double[][] system, int k, double[] out) {
+		int n = k + 1;
+		for(int b = 0; b < k; b++)
+			system[k][b] = 1;
+		system[k][k] = 0;
+		system[k][k + 1] = 1;
+		for(int col = 0; col < n; col++) {
+			int pivot = col;
+			for(int r = col + 1; r < n; r++)
+				if(Math.abs(system[r][col]) > Math.abs(system[pivot][col]))
+					pivot = r;
+			if(Math.abs(system[pivot][col]) < EPSILON)
+				return false;
+			double[] t = system[pivot];
+			system[pivot] = system[col];
+			system[col] = t;
+			for(int r = col + 1; r < n; r++) {
+				double f = system[r][col] / system[col][col];
+				if(f == 0)
+					continue;
+				for(int c = col; c <= n; c++)
+					system[r][c] -= f * system[col][c];
+			}
+		}
+		for(int r = n - 1; r >= 0; r--) {
+			double s = system[r][n];
+			for(int c = r + 1; c < n; c++)
+				s -= system[r][c] * out[c];
+			out[r] = s / system[r][r];
+		}
+		for(int b = 0; b < k; b++)
+			if(out[b] < -EPSILON)
+				return false;
+		return true;
+	}
+
+	/**
+	 * A mixed strategy of a player over the strategies considered, with
+	 * the best responses of the opponent to it.
+	 */
+	private static final class Vertex {
+
+		//Per position in the strategies considered for the player
+		final double[] weight;
+		final long[] support;
+		//Positions in the strategies considered for the opponent
+		final long[] best;
+		//Payoff of the opponent's best responses
+		final double value;
+
+		Vertex(double[] weight, BitSet support, BitSet best, double value) {
+			this.weight = weight;
+			this.support = support.toLongArray();
+			this.best = best.toLongArray();
+			this.value = value;
+		}
+
+		/**
+		 * @return true if every strategy of this vertex is a best response
+		 * to the opponent's vertex.
+		 */
+		boolean playsBestResponses(Vertex opponent) {
+			for(int w = 0; w < this.support.length; w++) {
+				long b = w < opponent.best.length ? opponent.best[w] : 0;
+				if((this.support[w] & ~b) != 0)
+					return false;
+			}
+			return true;
+		}
+	}
+
+	/**
+	 * Lists the vertices of player whose support has k strategies and
+	 * starts at position first for first in [from, to).
+	 */
+	private static final class Vertices extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final NormalForm form;
+		private final int player;
+		private final int[] rows;
+		private final int[] columns;
+		private final int k;
+		private final int from;
+		private final int to;
+		private final Queue<Vertex> found;
+
+		Vertices(NormalForm form, int player, int[] rows, int[] columns, int k, int from, int to, Queue<Vertex> found) {
+			this.form = form;
+			this.player = player;
+			this.rows = rows;
+			this.columns = columns;
+			this.k = k;
+			this.from = from;
+			this.to = to;
+			this.found = found;
+		}
+
+		@Override
+		protected void compute() {
+			if(this.to - this.from > 1) {
+				int middle = (this.from + this.to) >>> 1;
+				invokeAll(new Vertices(this.form, this.player, this.rows, this.columns, this.k, this.from, middle, this.found),
+						new Vertices(this.form, this.player, this.rows, this.columns, this.k, middle, this.to, this.found));
+				return;
+			}
+			boolean first = this.player == NormalForm.P1;
+			int own = first ? this.rows.length : this.columns.length;
+			int other = first ? this.columns.length : this.rows.length;
+			if(this.k > other)
+				return;
+			//s holds the support, t the strategies of the opponent it makes
+			//indifferent, as positions in rows and columns
+			int[] s = new int[this.k];
+			int[] t = new int[this.k];
+			double[][] system = new double[this.k + 1][this.k + 2];
+			double[] w = new double[this.k + 1];
+			for(int a = 0; a < this.k; a++)
+				s[a] = this.from + a;
+			do {
+				for(int b = 0; b < this.k; b++)
+					t[b] = b;
+				do {
+					test(s, t, system, w, own, other);
+				} while(next(t, other));
+			} while(next(s, own) && s[0] == this.from);
+		}
+
+		/**
+		 * @return the payoff of the opponent when the player plays his
+		 * strategy at position own and the opponent hers at position other.
+		 */
+		private double opponentPayoff(int own, int other) {
+			if(this.player == NormalForm.P1)
+				return this.form.payoffP2(this.rows[own], this.columns[other]);
+			return this.form.payoffP1(this.rows[other], this.columns[own]);
+		}
+
+		private void test(int[] s, int[] t, double[][] system, double[] w, int own, int other) {
+			for(int b = 0; b < this.k; b++) {
+				for(int a = 0; a < this.k; a++)
+					system[b][a] = opponentPayoff(s[a], t[b]);
+				system[b][this.k] = -1;
+				system[b][this.k + 1] = 0;
+			}
+			if(!solveProbabilities(system, this.k, w))
+				return;
+			for(int a = 0; a < this.k; a++)
+				if(w[a] <= EPSILON) //Listed with its smaller support
+					return;
+			double value = w[this.k];
+			double[] payoffs = new double[other];
+			double best = Double.NEGATIVE_INFINITY;
+			for(int c = 0; c < other; c++) {
+				double p = 0;
+				for(int a = 0; a < this.k; a++)
+					p += w[a] * opponentPayoff(s[a], c);
+				payoffs[c] = p;
+				best = Math.max(best, p);
+			}
+			if(best > value + EPSILON) //t are not best responses
+				return;
+			BitSet responses = new BitSet(other);
+			for(int c = 0; c < other; c++)
+				if(payoffs[c] >= value - EPSILON)
+					responses.set(c);
+			double[] weight = new double[own];
+			BitSet support = new BitSet(own);
+			for(int a = 0; a < this.k; a++) {
+				weight[s[a]] = w[a];
+				support.set(s[a]);
+			}
+			this.found.add(new Vertex(weight, support, responses, value));
+		}
+	}
+
+	/**
+	 * Tries the supports of size k of P1 whose first strategy is
+	 * rows[first] for first in [from, to), against all the supports of
+	 * size k of P2.
+	 */
+	private static final class Search extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final NormalForm form;
+		private final int[] rows;
+		private final int[] columns;
+		private final int k;
+		private final int from;
+		private final int to;
+		private final AtomicReference<SupportEnumeration> found;
+
+		Search(NormalForm form, int[] rows, int[] columns, int k, int from, int to,
+				AtomicReference<SupportEnumeration> found) {
+			this.form = form;
+			this.rows = rows;
+			this.columns = columns;
+			this.k = k;
+			this.from = from;
+			this.to = to;
+			this.found = found;
+		}
+
+		@Override
+		protected void compute() {
+			if(this.to - this.from > 1) {
+				int middle = (this.from + this.to) >>> 1;
+				invokeAll(new Search(this.form, this.rows, this.columns, this.k, this.from, middle, this.found),
+						new Search(this.form, this.rows, this.columns, this.k, middle, this.to, this.found));
+				return;
+			}
+			int[] i = new int[this.k];
+			int[] j = new int[this.k];
+			double[][] system = new double[this.k + 1][this.k + 2];
+			double[] x = new double[this.k + 1];
+			double[] y = new double[this.k + 1];
+			//i and j hold positions in rows and columns, i[0] fixed to from
+			for(int a = 0; a < this.k; a++)
+				i[a] = this.from + a;
+			do {
+				for(int b = 0; b < this.k; b++)
+					j[b] = b;
+				do {
+					if(this.found.get() != null)
+						return;
+					if(test(i, j, system, x, y))
+						return;
+				} while(next(j, this.columns.length));
+			} while(next(i, this.rows.length) && i[0] == this.from);
+		}
+
+		/**
+		 * Tests the pair of supports i and j, publishing the equilibrium if
+		 * they have one.
+		 */
+		private boolean test(int[] i, int[] j, double[][] system, double[] x, double[] y) {
+			//y makes P1 indifferent between the rows of i
+			for(int a = 0; a < this.k; a++) {
+				for(int b = 0; b < this.k; b++)
+					system[a][b] = this.form.payoffP1(this.rows[i[a]], this.columns[j[b]]);
+				system[a][this.k] = -1;
+				system[a][this.k + 1] = 0;
+			}
+			if(!solveProbabilities(system, this.k, y))
+				return false;
+			//x makes P2 indifferent between the columns of j
+			for(int b = 0; b < this.k; b++) {
+				for(int a = 0; a < this.k; a++)
+					system[b][a] = this.form.payoffP2(this.rows[i[a]], this.columns[j[b]]);
+				system[b][this.k] = -1;
+				system[b][this.k + 1] = 0;
+			}
+			if(!solveProbabilities(system, this.k, x))
+				return false;
+			double u = y[this.k];
+			double v = x[this.k];
+
+			//No strategy outside the supports may pay more
+			int a = 0;
+			for(int r = 0; r < this.rows.length; r++) {
+				if(a < this.k && i[a] == r) {
+					a++;
+					continue;
+				}
+				double s = 0;
+				for(int b = 0; b < this.k; b++)
+					s += y[b] * this.form.payoffP1(this.rows[r], this.columns[j[b]]);
+				if(s > u + EPSILON)
+					return false;
+			}
+			int b = 0;
+			for(int c = 0; c < this.columns.length; c++) {
+				if(b < this.k && j[b] == c) {
+					b++;
+					continue;
+				}
+				double s = 0;
+				for(a = 0; a < this.k; a++)
+					s += x[a] * this.form.payoffP2(this.rows[i[a]], this.columns[c]);
+				if(s > v + EPSILON)
+					return false;
+			}
+
+			double[] mixedP1 = new double[this.form.rows()];
+			double[] mixedP2 = new double[this.form.columns()];
+			for(a = 0; a < this.k; a++)
+				mixedP1[this.rows[i[a]]] = Math.max(0, x[a]);
+			for(b = 0; b < this.k; b++)
+				mixedP2[this.columns[j[b]]] = Math.max(0, y[b]);
+			return this.found.compareAndSet(null, new SupportEnumeration(this.form, mixedP1, mixedP2, u, v));
+		}
+	}
+}
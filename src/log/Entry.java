@@ -0,0 +1,37 @@
+package log;
+
+/**
+ * A message waiting in the LogRing. It is formatted by the writer thread,
+ * so the arguments are only turned into strings when it is written.
+ */
+final class Entry {
+
+	final Level level;
+	final String pattern;
+	final Object[] args;
+	final Throwable thrown;
+
+	Entry(Level level, String pattern, Object[] args, Throwable thrown) {
+		this.level = level;
+		this.pattern = pattern;
+		this.args = args;
+		this.thrown = thrown;
+	}
+
+	/**
+	 * Appends the message to out, replacing every {} of the pattern by the
+	 * next argument.
+	 */
+	void format(StringBuilder out) {
+		int from = 0;
+		int a = 0;
+		if(this.args != null) {
+			int at;
+			while(a < this.args.length && (at = this.pattern.indexOf("{}", from)) != -1) {
+				out.append(this.pattern, from, at).append(this.args[a++]);
+				from = at + 2;
+			}
+		}
+		out.append(this.pattern, from, this.pattern.length());
+	}
+}
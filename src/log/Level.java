@@ -0,0 +1,23 @@
+package log;
+
+/**
+ * Severity of a message. A Log writes the messages of its level and of
+ * the levels before it in this list.
+ */
+public enum Level {
+	ERROR, WARN, INFO, DEBUG, TRACE;
+
+	/**
+	 * @param name the name of a level, in any case.
+	 * @param fallback the level returned if name is null or not a level.
+	 */
+	static Level parse(String name, Level fallback) {
+		if(name == null)
+			return fallback;
+		try {
+			return valueOf(name.trim().toUpperCase());
+		} catch (IllegalArgumentException e) {
+			return fallback;
+		}
+	}
+}
@@ -0,0 +1,150 @@
+package log;
+
+/**
+ * Logger of the play and gametree packages. Messages are queued in a
+ * bounded lock-free ring and written by a background thread (see
+ * LogWriter), so logging costs the caller a level check and, when the
+ * level is enabled, one small allocation and a CAS, instead of console
+ * I/O.
+ *
+ * Messages are patterns where every {} stands for the next argument; the
+ * arguments are only turned into strings on the writer thread, so they
+ * should not change after the call. Every message goes on its own line.
+ *
+ * The level of every Log is set by the system property
+ * "log.level.&lt;class or package name&gt;", the most specific one that is
+ * set, or else by "log.level", INFO by default. The ring holds
+ * "log.capacity" messages (8192 by default); when it is full, messages are
+ * dropped, unless "log.overflow" is set to "block".
+ */
+public final class Log {
+
+	/** Name of the system property with the default level. */
+	public static final String LEVEL_PROPERTY = "log.level";
+
+	private final String name;
+	private volatile Level level;
+
+	private Log(String name, Level level) {
+		this.name = name;
+		this.level = level;
+	}
+
+	/**
+	 * @param c the class that logs.
+	 * @return a Log with the level configured for c.
+	 */
+	public static Log get(Class<?> c) {
+		String name = c.getName();
+		Level level = Level.parse(System.getProperty(LEVEL_PROPERTY), Level.INFO);
+		for(String prefix = name; !prefix.isEmpty(); prefix = prefix.substring(0, Math.max(0, prefix.lastIndexOf('.')))) {
+			String configured = System.getProperty(LEVEL_PROPERTY + "." + prefix);
+			if(configured != null) {
+				level = Level.parse(configured, level);
+				break;
+			}
+		}
+		return new Log(name, level);
+	}
+
+	public String getName() {
+		return this.name;
+	}
+
+	public Level getLevel() {
+		return this.level;
+	}
+
+	public void setLevel(Level level) {
+		this.level = level;
+	}
+
+	/**
+	 * @return true if messages of level l are written.
+	 */
+	public boolean isEnabled(Level l) {
+		return l.compareTo(this.level) <= 0;
+	}
+
+	/**
+	 * Waits, for at most a second, until every message logged so far is
+	 * written.
+	 */
+	public static void flush() {
+		LogWriter.INSTANCE.flush(1000);
+	}
+
+	private void log(Level l, String pattern, Object[] args, Throwable thrown) {
+		LogWriter.INSTANCE.add(new Entry(l, pattern, args, thrown));
+	}
+
+	public void error(String message) {
+		if(isEnabled(Level.ERROR)) log(Level.ERROR, message, null, null);
+	}
+
+	public void error(String pattern, Object arg) {
+		if(isEnabled(Level.ERROR)) log(Level.ERROR, pattern, new Object[] { arg }, null);
+	}
+
+	/**
+	 * Logs message followed by the stack trace of thrown.
+	 */
+	public void error(String message, Throwable thrown) {
+		if(isEnabled(Level.ERROR)) log(Level.ERROR, message, null, thrown);
+	}
+
+	/**
+	 * Logs the message of pattern followed by the stack trace of thrown.
+	 */
+	public void error(String pattern, Object arg, Throwable thrown) {
+		if(isEnabled(Level.ERROR)) log(Level.ERROR, pattern, new Object[] { arg }, thrown);
+	}
+
+	public void warn(String message) {
+		if(isEnabled(Level.WARN)) log(Level.WARN, message, null, null);
+	}
+
+	public void warn(String pattern, Object arg) {
+		if(isEnabled(Level.WARN)) log(Level.WARN, pattern, new Object[] { arg }, null);
+	}
+
+	public void warn(String pattern, Object arg1, Object arg2) {
+		if(isEnabled(Level.WARN)) log(Level.WARN, pattern, new Object[] { arg1, arg2 }, null);
+	}
+
+	public void info(String message) {
+		if(isEnabled(Level.INFO)) log(Level.INFO, message, null, null);
+	}
+
+	public void info(String pattern, Object arg) {
+		if(isEnabled(Level.INFO)) log(Level.INFO, pattern, new Object[] { arg }, null);
+	}
+
+	public void info(String pattern, Object arg1, Object arg2) {
+		if(isEnabled(Level.INFO)) log(Level.INFO, pattern, new Object[] { arg1, arg2 }, null);
+	}
+
+	public void info(String pattern, Object... args) {
+		if(isEnabled(Level.INFO)) log(Level.INFO, pattern, args, null);
+	}
+
+	public void debug(String message) {
+		if(isEnabled(Level.DEBUG)) log(Level.DEBUG, message, null, null);
+	}
+
+	public void debug(String pattern, Object arg) {
+		if(isEnabled(Level.DEBUG)) log(Level.DEBUG, pattern, new Object[] { arg }, null);
+	}
+
+	public void debug(String pattern, Object arg1, Object arg2) {
+		if(isEnabled(Level.DEBUG)) log(Level.DEBUG, pattern, new Object[] { arg1, arg2 }, null);
+	}
+
+	public void debug(String pattern, Object... args) {
+		if(isEnabled(Level.DEBUG)) log(Level.DEBUG, pattern, args, null);
+	}
+
+	public void trace(String pattern, Object... args) {
+		if(isEnabled(Level.TRACE)) log(Level.TRACE, pattern, args, null);
+	}
+}
@@ -0,0 +1,85 @@
+package log;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bounded lock-free queue of entries with any number of producers and a
+ * single consumer (the writer thread).
+ *
+ * Every slot has a sequence number: a producer claims position p with a
+ * CAS on the tail when the sequence of its slot is p, stores the entry
+ * and sets the sequence to p + 1; the consumer takes the entry at p once
+ * the sequence is p + 1 and sets it to p + capacity, freeing the slot for
+ * the next lap.
+ */
+final class LogRing {
+
+	private final Entry[] slots;
+	private final AtomicLongArray sequence;
+	private final int mask;
+	private final AtomicLong tail;
+	//Only touched by the consumer
+	private long head;
+
+	/**
+	 * @param capacity the number of entries, rounded up to a power of two.
+	 */
+	LogRing(int capacity) {
+		int c = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+		this.slots = new Entry[c];
+		this.sequence = new AtomicLongArray(c);
+		for(int i = 0; i < c; i++)
+			this.sequence.set(i, i);
+		this.mask = c - 1;
+		this.tail = new AtomicLong();
+		this.head = 0;
+	}
+
+	int capacity() {
+		return this.slots.length;
+	}
+
+	/**
+	 * @return false if the ring is full.
+	 */
+	boolean offer(Entry e) {
+		long t;
+		while(true) {
+			t = this.tail.get();
+			long s = this.sequence.get((int) t & this.mask);
+			if(s == t) {
+				if(this.tail.compareAndSet(t, t + 1))
+					break;
+			} else if(s < t) {
+				return false;
+			}
+		}
+		int i = (int) t & this.mask;
+		this.slots[i] = e;
+		this.sequence.set(i, t + 1);
+		return true;
+	}
+
+	/**
+	 * Called by the consumer only.
+	 * @return the oldest entry, null if there is none.
+	 */
+	Entry poll() {
+		int i = (int) this.head & this.mask;
+		if(this.sequence.get(i) != this.head + 1)
+			return null;
+		Entry e = this.slots[i];
+		this.slots[i] = null;
+		this.sequence.set(i, this.head + this.slots.length);
+		this.head++;
+		return e;
+	}
+
+	/**
+	 * @return the number of entries ever offered successfully.
+	 */
+	long produced() {
+		return this.tail.get();
+	}
+}
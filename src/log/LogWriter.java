@@ -0,0 +1,151 @@
+package log;
+
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * The background thread that takes the entries from the LogRing and
+ * writes them, ERROR and WARN to System.err and the rest to System.out.
+ * Consecutive entries are formatted into one buffer and written with a
+ * single call, and the streams are flushed whenever the ring runs empty.
+ *
+ * When the ring is full, an entry is either dropped (the default; the
+ * number of entries dropped is written once there is room again) or its
+ * producer waits for room, as set by the system property OVERFLOW_PROPERTY.
+ * An entry whose arguments throw while they are formatted is written as a
+ * placeholder line naming its pattern.
+ */
+final class LogWriter implements Runnable {
+
+	/** Name of the system property with the capacity of the ring. */
+	static final String CAPACITY_PROPERTY = "log.capacity";
+
+	/** Name of the system property with the policy when the ring is full, "drop" or "block". */
+	static final String OVERFLOW_PROPERTY = "log.overflow";
+
+	private static final int DEFAULT_CAPACITY = 1 << 13;
+	//Nanoseconds the writer sleeps with nothing to write, unless woken up
+	private static final long IDLE = 10000000L;
+	//Characters written with a single call
+	private static final int BATCH = 1 << 16;
+
+	static final LogWriter INSTANCE = new LogWriter(Integer.getInteger(CAPACITY_PROPERTY, DEFAULT_CAPACITY),
+			!"block".equalsIgnoreCase(System.getProperty(OVERFLOW_PROPERTY)));
+
+	private final LogRing ring;
+	private final boolean drop;
+	private final AtomicLong dropped;
+	private final Thread thread;
+	private volatile boolean waiting;
+	//Entries written and flushed so far
+	private volatile long written;
+
+	private LogWriter(int capacity, boolean drop) {
+		this.ring = new LogRing(capacity);
+		this.drop = drop;
+		this.dropped = new AtomicLong();
+		this.waiting = false;
+		this.written = 0;
+		this.thread = new Thread(this, "log-writer");
+		this.thread.setDaemon(true);
+		this.thread.start();
+		Runtime.getRuntime().addShutdownHook(new Thread("log-flush") {
+			@Override
+			public void run() {
+				flush(1000);
+			}
+		});
+	}
+
+	void add(Entry e) {
+		if(!this.ring.offer(e)) {
+			if(this.drop) {
+				this.dropped.incrementAndGet();
+			} else {
+				do {
+					LockSupport.unpark(this.thread);
+					LockSupport.parkNanos(100000L);
+				} while(!this.ring.offer(e));
+			}
+		}
+		if(this.waiting) {
+			this.waiting = false;
+			LockSupport.unpark(this.thread);
+		}
+	}
+
+	/**
+	 * Waits until every entry added so far is written.
+	 * @param millis the longest time to wait.
+	 */
+	void flush(long millis) {
+		long target = this.ring.produced();
+		long deadline = System.nanoTime() + millis * 1000000L;
+		while(this.written < target && System.nanoTime() < deadline) {
+			LockSupport.unpark(this.thread);
+			LockSupport.parkNanos(100000L);
+		}
+	}
+
+	@Override
+	public void run() {
+		StringBuilder out = new StringBuilder();
+		StringBuilder err = new StringBuilder();
+		long count = 0;
+		long reported = 0;
+		while(true) {
+			Entry e = this.ring.poll();
+			if(e != null) {
+				count++;
+				StringBuilder b = e.level.compareTo(Level.WARN) <= 0 ? err : out;
+				int mark = b.length();
+				try {
+					e.format(b);
+					b.append(System.lineSeparator());
+					if(e.thrown != null)
+						b.append(stackTrace(e.thrown));
+				} catch (RuntimeException x) {
+					//An argument or the throwable failed to turn into a string;
+					//the writer must keep draining the ring all the same
+					b.setLength(mark);
+					b.append("Log message \"").append(e.pattern).append("\" could not be formatted: ")
+							.append(x.getClass().getName()).append(System.lineSeparator());
+				}
+				if(out.length() >= BATCH)
+					write(System.out, out);
+				if(err.length() >= BATCH)
+					write(System.err, err);
+				continue;
+			}
+			long d = this.dropped.get();
+			if(d != reported) {
+				err.append(d - reported).append(" log messages dropped, the log is full.").append(System.lineSeparator());
+				reported = d;
+			}
+			write(System.out, out);
+			write(System.err, err);
+			this.written = count;
+			this.waiting = true;
+			if(this.ring.produced() == count) //Nothing arrived meanwhile
+				LockSupport.parkNanos(this, IDLE);
+			this.waiting = false;
+		}
+	}
+
+	private static void write(PrintStream stream, StringBuilder b) {
+		if(b.length() == 0)
+			return;
+		stream.print(b);
+		stream.flush();
+		b.setLength(0);
+	}
+
+	private static String stackTrace(Throwable t) {
+		StringWriter w = new StringWriter();
+		t.printStackTrace(new PrintWriter(w));
+		return w.toString();
+	}
+}
@@ -0,0 +1,199 @@
+package play;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import log.Log;
+
+/**
+ * Runs the computation of a round on a worker thread and collects its
+ * best result so far when the round is about to expire.
+ *
+ * The budget of a round is PlayStrategyInterface.timeToExpire() at the
+ * moment the request is handed to run(), minus a margin reserved for
+ * filling in the PlayStrategy and transmitting it to the server. The
+ * computation publishes improving results through its Progress, which
+ * keeps the latest one in a lock-free holder; run() returns whatever is
+ * there when the computation ends or the budget runs out, whichever
+ * comes first. A computation asked to stop is given a few milliseconds
+ * of the margin to publish what it did since its last publication.
+ *
+ * A computation that is still running when its budget runs out is asked
+ * to stop (and its thread is interrupted), and the next call to run()
+ * waits for it to finish, so the state a computation works on is never
+ * shared by two rounds.
+ *
+ * Any Strategy subclass can use a scheduler; it is not thread-safe
+ * itself and is meant to be driven by the strategy's own thread.
+ */
+public class AnytimeScheduler {
+
+	private static final Log LOG = Log.get(AnytimeScheduler.class);
+
+	/**
+	 * Default number of milliseconds reserved for delivering the strategy
+	 * (see PlayStrategyInterface.timeToExpire()).
+	 */
+	public static final long DEFAULT_MARGIN = 400;
+
+	/**
+	 * Milliseconds a computation that was asked to stop is given to
+	 * publish its last result (taken from the margin).
+	 */
+	private static final long FINAL_PUBLICATION = 20;
+
+	/**
+	 * The work done in one round.
+	 */
+	public interface Computation {
+		/**
+		 * Computes a strategy, publishing better and better results through
+		 * progress and returning as soon as progress.shouldStop() holds.
+		 * @param progress where results are published.
+		 * @throws InterruptedException if the computation was interrupted.
+		 */
+		void compute(Progress progress) throws InterruptedException;
+	}
+
+	/**
+	 * Handle through which a computation learns its deadline and
+	 * publishes results.
+	 */
+	public static final class Progress {
+
+		private final AtomicReference<double[]> best;
+		private final long deadline;
+		private volatile boolean stopped;
+		private volatile Thread worker;
+
+		Progress(long deadline) {
+			this.best = new AtomicReference<double[]>();
+			this.deadline = deadline;
+			this.stopped = false;
+		}
+
+		/**
+		 * Publishes a result, replacing the previous one. The array must not
+		 * be modified afterwards.
+		 * @param result a strategy in StrategyLayout order.
+		 */
+		public void publish(double[] result) {
+			this.best.set(result);
+		}
+
+		/**
+		 * @return the latest published result, null if there is none.
+		 */
+		public double[] best() {
+			return this.best.get();
+		}
+
+		/**
+		 * @return true once the computation should return.
+		 */
+		public boolean shouldStop() {
+			return this.stopped || System.nanoTime() >= this.deadline;
+		}
+
+		/**
+		 * @return milliseconds left until the computation should return.
+		 */
+		public long remainingMillis() {
+			return Math.max(0, (this.deadline - System.nanoTime()) / 1000000L);
+		}
+
+		void stop() {
+			this.stopped = true;
+			Thread t = this.worker;
+			if(t != null)
+				t.interrupt();
+		}
+	}
+
+	private final long margin;
+	private final ExecutorService workers;
+	private CountDownLatch previous;
+	private Progress previousProgress;
+
+	public AnytimeScheduler() {
+		this(DEFAULT_MARGIN);
+	}
+
+	/**
+	 * @param margin milliseconds reserved for delivering the strategy.
+	 */
+	public AnytimeScheduler(long margin) {
+		this.margin = margin;
+		this.workers = Executors.newCachedThreadPool(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r, "anytime-worker");
+				t.setDaemon(true);
+				return t;
+			}
+		});
+		this.previous = null;
+	}
+
+	/**
+	 * Runs computation for the round described by request.
+	 * @param request the round being played.
+	 * @param computation the work to do.
+	 * @return the best result published before the deadline, null if the
+	 * computation published nothing.
+	 * @throws InterruptedException if the calling thread is interrupted.
+	 */
+	public double[] run(PlayStrategyInterface request, final Computation computation) throws InterruptedException {
+		awaitPrevious();
+		long budget = Math.max(0, request.timeToExpire() - this.margin);
+		final Progress progress = new Progress(System.nanoTime() + budget * 1000000L);
+		final CountDownLatch done = new CountDownLatch(1);
+		this.previous = done;
+		this.previousProgress = progress;
+		this.workers.execute(new Runnable() {
+			@Override
+			public void run() {
+				progress.worker = Thread.currentThread();
+				try {
+					if(!progress.shouldStop())
+						computation.compute(progress);
+				} catch (InterruptedException e) {
+					; //The round is over, the best result so far is used
+				} catch (RuntimeException e) {
+					LOG.error("Strategy computation failed: " + e.getMessage(), e);
+				} finally {
+					progress.worker = null;
+					Thread.interrupted();
+					done.countDown();
+				}
+			}
+		});
+		if(!done.await(budget, TimeUnit.MILLISECONDS)) {
+			progress.stop();
+			done.await(Math.min(FINAL_PUBLICATION, this.margin), TimeUnit.MILLISECONDS);
+		}
+		return progress.best();
+	}
+
+	private void awaitPrevious() throws InterruptedException {
+		if(this.previous != null) {
+			this.previousProgress.stop();
+			this.previous.await();
+			this.previous = null;
+			this.previousProgress = null;
+		}
+	}
+
+	/**
+	 * Stops the worker threads once the running computation is over.
+	 */
+	public void shutdown() {
+		if(this.previousProgress != null)
+			this.previousProgress.stop();
+		this.workers.shutdown();
+	}
+}
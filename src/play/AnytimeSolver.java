@@ -0,0 +1,131 @@
+package play;
+
+import gametree.StrategyLayout;
+import log.Log;
+
+/**
+ * An iterative solver of a game that an AnytimeStrategy runs in every
+ * round, kept in the SolverState of the game so that each round continues
+ * from where the previous one stopped.
+ *
+ * A round iterates on the worker thread of an AnytimeScheduler, publishing
+ * the average strategy every PUBLISH_INTERVAL milliseconds and once more
+ * when asked to stop. The error bound of every published average (its
+ * exploitability, a duality gap and the like) is checked against the
+ * epsilon of the solver, and the first average within it becomes the
+ * solution, which the following rounds deliver without iterating.
+ *
+ * Subclasses provide the iterations, the average strategy and its error
+ * bound; they are only called by the thread of the round.
+ */
+public abstract class AnytimeSolver {
+
+	private static final Log LOG = Log.get(AnytimeSolver.class);
+
+	/**
+	 * Milliseconds between two publications of the average strategy.
+	 */
+	public static final long PUBLISH_INTERVAL = 50;
+
+	private final StrategyLayout layout;
+	private final double epsilon;
+	private volatile double[] solution;
+
+	/**
+	 * @param layout the layout of the game.
+	 * @param epsilon the error bound at which the solver stops iterating.
+	 */
+	protected AnytimeSolver(StrategyLayout layout, double epsilon) {
+		this.layout = layout;
+		this.epsilon = epsilon;
+		this.solution = null;
+	}
+
+	public StrategyLayout getLayout() {
+		return this.layout;
+	}
+
+	/**
+	 * Performs one iteration.
+	 */
+	protected abstract void iterate();
+
+	/**
+	 * Writes the average strategy of the iterations so far into out.
+	 * @param out an array with getLayout().keyCount() positions.
+	 */
+	protected abstract void average(double[] out);
+
+	/**
+	 * @param average a strategy written by average().
+	 * @return how far average is at most from what the solver computes.
+	 */
+	protected abstract double errorBound(double[] average);
+
+	/**
+	 * @return the number of iterations performed so far.
+	 */
+	public abstract long getIterations();
+
+	/**
+	 * Sets the solution, for a solver that knows it without iterating.
+	 * @param strategy the strategy every round delivers from now on.
+	 */
+	protected final void solved(double[] strategy) {
+		this.solution = strategy;
+	}
+
+	/**
+	 * @return the strategy within epsilon, null until it is found.
+	 */
+	public final double[] getSolution() {
+		return this.solution;
+	}
+
+	/**
+	 * Computes the strategy of a round: the solution if it is known,
+	 * otherwise the last average published before scheduler stops the
+	 * iterations.
+	 * @param scheduler the scheduler of the strategy.
+	 * @param request the round being played.
+	 * @return the strategy, uniform if not even one iteration finished in
+	 * time.
+	 * @throws InterruptedException if the thread is interrupted.
+	 */
+	public final double[] solve(AnytimeScheduler scheduler, PlayStrategyInterface request) throws InterruptedException {
+		double[] result = this.solution;
+		if(result != null)
+			return result;
+		result = scheduler.run(request, new AnytimeScheduler.Computation() {
+			@Override
+			public void compute(AnytimeScheduler.Progress progress) {
+				iterations(progress);
+			}
+		});
+		return result != null ? result : this.layout.uniform();
+	}
+
+	private void iterations(AnytimeScheduler.Progress progress) {
+		int keys = this.layout.keyCount();
+		long nextPublication = System.nanoTime();
+		while(!progress.shouldStop()) {
+			iterate();
+			if(System.nanoTime() >= nextPublication) {
+				double[] average = new double[keys];
+				average(average);
+				progress.publish(average);
+				double bound = errorBound(average);
+				if(bound <= this.epsilon) {
+					LOG.info("Average strategy within {} after {} iterations.", bound, getIterations());
+					this.solution = average;
+					return;
+				}
+				nextPublication = System.nanoTime() + PUBLISH_INTERVAL * 1000000L;
+			}
+		}
+		//Keep the iterations run since the last publication
+		double[] average = new double[keys];
+		average(average);
+		progress.publish(average);
+	}
+}
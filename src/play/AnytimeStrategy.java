@@ -0,0 +1,71 @@
+package play;
+
+import log.Log;
+import trace.StrategyPhaseEvent;
+import trace.Tracing;
+
+/**********************************************************************************
+ * Base class of the strategies that deliver the result of an AnytimeSolver:
+ * the solver is created on the first round and kept in the SolverState of the
+ * game, every round iterates on a worker thread of an AnytimeScheduler until
+ * shortly before the round expires, and the latest average strategy is then
+ * delivered. Once the solver is within its epsilon the following rounds deliver
+ * its solution without iterating.
+ *
+ * Subclasses only create the solver, in createSolver(); one that overrides
+ * startGame() or endGame() must call the method it overrides.
+ *
+ **********************************************************************************/
+public abstract class AnytimeStrategy extends RoundStrategy {
+
+	private static final Log LOG = Log.get(AnytimeStrategy.class);
+
+	private AnytimeScheduler scheduler;
+
+	@Override
+	protected void startGame() {
+		getCompactTree();
+		scheduler = new AnytimeScheduler();
+	}
+
+	/**
+	 * Creates the solver of the game, on its first round.
+	 * @param state the state of the game, whose layout the solver uses.
+	 * @return the solver.
+	 */
+	protected abstract AnytimeSolver createSolver(SolverState state);
+
+	@Override
+	protected boolean computeRound(PlayStrategyInterface myStrategy) throws InterruptedException {
+		SolverState state;
+		try {
+			state = getState(myStrategy);
+		} catch (IllegalArgumentException e) {
+			LOG.error("PANIC: Strategy structure does not match the game.");
+			return false;
+		}
+		AnytimeSolver solver = state.get(AnytimeSolver.class, new SolverState.Factory<AnytimeSolver>() {
+			@Override
+			public AnytimeSolver create(SolverState s) {
+				return createSolver(s);
+			}
+		});
+
+		StrategyPhaseEvent event = Tracing.AVAILABLE && solver.getSolution() == null ? startPhase("solve") : null;
+		long iterations = solver.getIterations();
+		double[] result = solver.solve(scheduler, myStrategy);
+		if(event != null)
+			event.finish(solver.getIterations() - iterations);
+		event = Tracing.AVAILABLE ? startPhase("fill") : null;
+		state.getKeys().write(result, myStrategy);
+		if(event != null)
+			event.finish(result.length);
+		return true;
+	}
+
+	@Override
+	public void endGame() {
+		if(scheduler != null)
+			scheduler.shutdown();
+	}
+}
@@ -0,0 +1,35 @@
+package play;
+
+import log.Log;
+
+/**********************************************************************************
+ * This strategy plays the best response to what the opponent did so far: the
+ * OpponentModel of the SolverState counts the moves the opponent took in every
+ * round, and each round answers the strategy they estimate (uniform where the
+ * opponent was never seen). The model is updated with the last round only and the
+ * response is recomputed only when that brings new observations, so a round costs
+ * at most one walk of the tree.
+ *
+ **********************************************************************************/
+public class BestResponseStrategy extends RoundStrategy {
+
+	private static final Log LOG = Log.get(BestResponseStrategy.class);
+
+	@Override
+	protected void startGame() {
+		getCompactTree();
+	}
+
+	@Override
+	protected boolean computeRound(PlayStrategyInterface myStrategy) {
+		SolverState state;
+		try {
+			state = getState(myStrategy);
+		} catch (IllegalArgumentException e) {
+			LOG.error("PANIC: Strategy structure does not match the game.");
+			return false;
+		}
+		state.getKeys().write(state.bestResponse(), myStrategy);
+		return true;
+	}
+}
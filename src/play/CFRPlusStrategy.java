@@ -0,0 +1,58 @@
+package play;
+
+import gametree.BestResponseOracle;
+import gametree.CounterfactualRegretSolver;
+import gametree.StrategyLayout;
+
+/**********************************************************************************
+ * This strategy approximates an equilibrium of the game with CFR+ (counterfactual
+ * regret minimization). Iterations run on a worker thread until shortly before the
+ * round expires, and the latest average strategy is then delivered. The solver is
+ * kept in the SolverState of the game, so every round continues improving the
+ * previous result, and once the average strategy is exploitable by less than
+ * EPSILON the following rounds deliver it without iterating (see AnytimeStrategy).
+ *
+ **********************************************************************************/
+public class CFRPlusStrategy extends AnytimeStrategy {
+
+	/**
+	 * Exploitability below which the average strategy is no longer improved.
+	 */
+	private static final double EPSILON = 1e-3;
+
+	private static final class Solver extends AnytimeSolver {
+		private final CounterfactualRegretSolver cfr;
+		private final BestResponseOracle oracle;
+
+		Solver(StrategyLayout layout) {
+			super(layout, EPSILON);
+			this.cfr = new CounterfactualRegretSolver(layout);
+			this.oracle = new BestResponseOracle(layout);
+		}
+
+		@Override
+		protected void iterate() {
+			this.cfr.iterate();
+		}
+
+		@Override
+		protected void average(double[] out) {
+			this.cfr.getAverageStrategy(out);
+		}
+
+		@Override
+		protected double errorBound(double[] average) {
+			return this.oracle.exploitability(average);
+		}
+
+		@Override
+		public long getIterations() {
+			return this.cfr.getIterations();
+		}
+	}
+
+	@Override
+	protected AnytimeSolver createSolver(SolverState state) {
+		return new Solver(state.getLayout());
+	}
+}
@@ -0,0 +1,187 @@
+package play;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Shares a fixed number of processor slots among the games a process
+ * plays at the same time, so that a game with an expensive strategy
+ * cannot starve the others.
+ *
+ * Every game registers a Ticket and holds a slot while it computes a
+ * round (acquire() ... release()), at most one at a time. When games wait
+ * for a slot, the one that has held slots for the shortest time so far
+ * gets the next one, so over a game every game gets about the same share
+ * of the processors, and a game only uses more while the others leave
+ * slots free. A game that registers late starts level with the game that
+ * has used the least time, instead of with nothing, so that it does not
+ * hold the others off until it catches up.
+ *
+ * The time a game holds its slot is taken as the processor time it uses:
+ * computations that use several threads of their own are still charged
+ * for one.
+ */
+public final class FairScheduler {
+
+	private final int slots;
+	private int free;
+	private final List<Ticket> registered;
+	private final List<Ticket> waiting;
+	private long arrivals;
+
+	/**
+	 * @param slots the number of rounds computed at the same time, usually
+	 * the number of processors.
+	 */
+	public FairScheduler(int slots) {
+		if(slots < 1)
+			throw new IllegalArgumentException("A scheduler needs at least one slot, not " + slots + ".");
+		this.slots = slots;
+		this.free = slots;
+		this.registered = new ArrayList<Ticket>();
+		this.waiting = new ArrayList<Ticket>();
+		this.arrivals = 0;
+	}
+
+	public int getSlots() {
+		return this.slots;
+	}
+
+	/**
+	 * Registers a game.
+	 * @param name the name of the game, for its Ticket.
+	 * @return the ticket of the game.
+	 */
+	public synchronized Ticket register(String name) {
+		long share = Long.MAX_VALUE;
+		for(Ticket t: this.registered)
+			share = Math.min(share, t.share);
+		Ticket t = new Ticket(name, this.registered.isEmpty() ? 0 : share);
+		this.registered.add(t);
+		return t;
+	}
+
+	/**
+	 * @return the waiting ticket that gets the next free slot.
+	 */
+	private Ticket next() {
+		Ticket next = null;
+		for(Ticket t: this.waiting)
+			if(next == null || t.share < next.share || t.share == next.share && t.arrival < next.arrival)
+				next = t;
+		return next;
+	}
+
+	private synchronized void acquire(Ticket t) throws InterruptedException {
+		if(t.since != -1)
+			throw new IllegalStateException(t.name + " already holds a slot.");
+		if(!t.open)
+			throw new IllegalStateException(t.name + " is closed.");
+		t.arrival = this.arrivals++;
+		this.waiting.add(t);
+		try {
+			while(t.open && (this.free == 0 || next() != t))
+				wait();
+		} catch (InterruptedException e) {
+			this.waiting.remove(t);
+			notifyAll();
+			throw e;
+		}
+		this.waiting.remove(t);
+		if(!t.open) {
+			notifyAll();
+			throw new IllegalStateException(t.name + " was closed while waiting.");
+		}
+		this.free--;
+		t.since = System.nanoTime();
+		//Other waiters may fit in the slots left
+		if(this.free > 0 && !this.waiting.isEmpty())
+			notifyAll();
+	}
+
+	private synchronized void release(Ticket t) {
+		if(t.since == -1 && !t.open) //Its slot was freed by close()
+			return;
+		if(t.since == -1)
+			throw new IllegalStateException(t.name + " holds no slot.");
+		long held = System.nanoTime() - t.since;
+		t.since = -1;
+		t.used += held;
+		t.share += held;
+		this.free++;
+		notifyAll();
+	}
+
+	private synchronized void close(Ticket t) {
+		if(t.since != -1)
+			release(t);
+		t.open = false;
+		this.registered.remove(t);
+		notifyAll();
+	}
+
+	private synchronized long used(Ticket t) {
+		return t.since == -1 ? t.used : t.used + System.nanoTime() - t.since;
+	}
+
+	/**
+	 * The registration of a game. It is meant to be used by the thread of
+	 * the game.
+	 */
+	public final class Ticket {
+
+		private final String name;
+		//Time charged to the game: what it used plus where it started
+		private long share;
+		private long used;
+		//When it took its slot, -1 if it holds none
+		private long since;
+		private long arrival;
+		private boolean open;
+
+		Ticket(String name, long share) {
+			this.name = name;
+			this.share = share;
+			this.used = 0;
+			this.since = -1;
+			this.open = true;
+		}
+
+		public String getName() {
+			return this.name;
+		}
+
+		/**
+		 * Waits for a slot.
+		 * @throws InterruptedException if the thread is interrupted while
+		 * waiting; it holds no slot then.
+		 * @throws IllegalStateException if the game already holds a slot or
+		 * is closed, before or while waiting.
+		 */
+		public void acquire() throws InterruptedException {
+			FairScheduler.this.acquire(this);
+		}
+
+		/**
+		 * Frees the slot taken by acquire(), unless close() freed it already.
+		 * @throws IllegalStateException if the game holds no slot.
+		 */
+		public void release() {
+			FairScheduler.this.release(this);
+		}
+
+		/**
+		 * @return the nanoseconds the game has held slots so far.
+		 */
+		public long getUsedNanos() {
+			return used(this);
+		}
+
+		/**
+		 * Unregisters the game, freeing its slot if it holds one.
+		 */
+		public void close() {
+			FairScheduler.this.close(this);
+		}
+	}
+}
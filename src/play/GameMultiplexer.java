@@ -0,0 +1,191 @@
+package play;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import gametree.GameTreeCache;
+import gametree.GameTreeFingerprint;
+import tree.GameTreeClass;
+
+/**
+ * Plays many games from one process at the same time.
+ *
+ * Every game opened has a strategy instance of its own, which computes
+ * its rounds on a thread of its own, but the game trees are shared: games
+ * on the same tree get the same GameTree (and CompactGameTree) from a
+ * GameTreeCache, so N games on one tree cost one tree in memory. A round
+ * only computes while its game holds a slot of a FairScheduler, which
+ * bounds the processors all the games use together and shares them
+ * evenly among the games.
+ *
+ * Rounds reach a game through play() (see play.local.LocalEngine and
+ * play.local.Tournament, which play all their matches through a
+ * multiplexer); close() ends the game and releases its tree.
+ */
+public final class GameMultiplexer {
+
+	private final GameTreeCache cache;
+	private final FairScheduler scheduler;
+	private final AtomicInteger opened;
+
+	/**
+	 * @param slots the number of rounds computed at the same time.
+	 */
+	public GameMultiplexer(int slots) {
+		this(new GameTreeCache(), new FairScheduler(slots));
+	}
+
+	public GameMultiplexer(GameTreeCache cache, FairScheduler scheduler) {
+		this.cache = cache;
+		this.scheduler = scheduler;
+		this.opened = new AtomicInteger();
+	}
+
+	public GameTreeCache getCache() {
+		return this.cache;
+	}
+
+	public FairScheduler getScheduler() {
+		return this.scheduler;
+	}
+
+	/**
+	 * Starts a game.
+	 * @param gtc the game tree as received from the game engine.
+	 * @param strategy a fresh instance of the strategy that plays the game.
+	 * @return the game.
+	 */
+	public Game open(GameTreeClass gtc, RoundStrategy strategy) {
+		return open(GameTreeFingerprint.of(gtc), gtc, strategy);
+	}
+
+	/**
+	 * Same as open(gtc, strategy), for a caller that already knows the
+	 * fingerprint of the game.
+	 * @param fingerprint GameTreeFingerprint.of(gtc).
+	 * @param gtc the game tree as received from the game engine.
+	 * @param strategy a fresh instance of the strategy that plays the game.
+	 * @return the game.
+	 */
+	public Game open(long fingerprint, GameTreeClass gtc, RoundStrategy strategy) {
+		GameTreeCache.Entry entry = this.cache.acquire(fingerprint, gtc);
+		String name = "game-" + this.opened.incrementAndGet();
+		try {
+			strategy.attach(entry);
+		} catch (RuntimeException e) {
+			this.cache.release(entry);
+			throw e;
+		}
+		return new Game(name, strategy, entry, this.scheduler.register(name));
+	}
+
+	/**
+	 * A game being played: its strategy, its thread and its share of the
+	 * tree cache and of the scheduler.
+	 */
+	public final class Game {
+
+		private final String name;
+		private final RoundStrategy strategy;
+		private final GameTreeCache.Entry entry;
+		private final FairScheduler.Ticket ticket;
+		private final ExecutorService thread;
+		private boolean closed;
+
+		Game(final String name, RoundStrategy strategy, GameTreeCache.Entry entry, FairScheduler.Ticket ticket) {
+			this.name = name;
+			this.strategy = strategy;
+			this.entry = entry;
+			this.ticket = ticket;
+			this.thread = Executors.newSingleThreadExecutor(new ThreadFactory() {
+				@Override
+				public Thread newThread(Runnable r) {
+					Thread t = new Thread(r, name);
+					t.setDaemon(true);
+					return t;
+				}
+			});
+			this.closed = false;
+		}
+
+		public String getName() {
+			return this.name;
+		}
+
+		public RoundStrategy getStrategy() {
+			return this.strategy;
+		}
+
+		/**
+		 * @return the fingerprint of the tree of the game.
+		 */
+		public long getFingerprint() {
+			return this.entry.getFingerprint();
+		}
+
+		/**
+		 * @return the nanoseconds the game has computed so far.
+		 */
+		public long getComputeNanos() {
+			return this.ticket.getUsedNanos();
+		}
+
+		/**
+		 * Plays a new round on the thread of the game (see
+		 * RoundStrategy.playRound()).
+		 * @param request the round to play.
+		 * @return the result of playRound(): false if the strategy leaves the
+		 * game. Cancelling it interrupts the strategy.
+		 */
+		public Future<Boolean> play(final PlayStrategyInterface request) {
+			return submit(new Callable<Boolean>() {
+				@Override
+				public Boolean call() throws Exception {
+					return strategy.playRound(request, true);
+				}
+			});
+		}
+
+		/**
+		 * Runs work on the thread of the game, once it holds a slot of the
+		 * scheduler.
+		 * @param work what to run, usually a round of the strategy.
+		 * @return its result.
+		 */
+		public <T> Future<T> submit(final Callable<T> work) {
+			return this.thread.submit(new Callable<T>() {
+				@Override
+				public T call() throws Exception {
+					ticket.acquire();
+					try {
+						return work.call();
+					} finally {
+						ticket.release();
+					}
+				}
+			});
+		}
+
+		/**
+		 * Ends the game: ends the strategy, interrupts a round still running
+		 * and releases the tree and the slot of the game. Does nothing if
+		 * the game was closed already.
+		 */
+		public synchronized void close() {
+			if(this.closed)
+				return;
+			this.closed = true;
+			try {
+				this.strategy.endGame();
+			} finally {
+				this.thread.shutdownNow();
+				this.ticket.close();
+				GameMultiplexer.this.cache.release(this.entry);
+			}
+		}
+	}
+}
@@ -1,15 +1,11 @@
 package play;
 
-import java.security.SecureRandom;
-import java.util.ArrayList;
 import java.util.HashSet;
-import java.util.Iterator;
-import java.util.List;
 import java.util.Set;
 
 import gametree.GameNode;
-import gametree.GameNodeDoesNotExistException;
-import play.exception.InvalidStrategyException;
+import log.Level;
+import log.Log;
 
 /**********************************************************************************
  * This strategy implements a modified version of the well-known tit-for-tat. 
@@ -17,58 +13,66 @@ import play.exception.InvalidStrategyException;
  * previous move.
  *
  **********************************************************************************/
-public class MimicStrategy extends Strategy {
+public class MimicStrategy extends RoundStrategy {
 
-	private List<GameNode> getReversePath(GameNode current) {		
-		try {
-			GameNode n = current.getAncestor();
-			List<GameNode> l =  getReversePath(n);
-			l.add(current);
-			return l;
-		} catch (GameNodeDoesNotExistException e) {
-			List<GameNode> l = new ArrayList<GameNode>();
-			l.add(current);
-			return l;
+	private static final Log LOG = Log.get(MimicStrategy.class);
+
+	private GameNode finalP1 = null;
+	private GameNode finalP2 = null;
+	//Paths of the previous round, reused every round
+	private int[] pathP1;
+	private int[] pathP2;
+	//Key order of the game and the strategy delivered, set on the first request
+	private StrategyKeys keys = null;
+	private double[] strategy = null;
+	private StrategySampler sampler = null;
+
+	/**
+	 * Adds to oponentMoves the moves taken by the opponent on a path from a
+	 * terminal node to the root (see GameTree.fillPathToRoot()).
+	 * @param path the indexes on the path, starting at the terminal node.
+	 * @param length the number of indexes in path.
+	 * @param asP1 true if we played that path as player 1.
+	 * @param oponentMoves where the moves are added.
+	 */
+	private void collectOponentMoves(int[] path, int length, boolean asP1, Set<String> oponentMoves) {
+		for(int i = 0; i < length - 1; i++) {
+			GameNode n = this.tree.getNodeByIndex(path[i]);
+			if(n.isNature()) continue;
+			GameNode ancestor = this.tree.getNodeByIndex(path[i + 1]);
+			if(asP1 ? ancestor.isPlayer2() : ancestor.isPlayer1()) {
+				oponentMoves.add(n.getLabel());
+			}
 		}
 	}
 	
-	private void cumputeStrategy(List<GameNode> listP1, 
-			List<GameNode> listP2,
-			PlayStrategy myStrategy,
-			SecureRandom random) throws GameNodeDoesNotExistException {
+	private void cumputeStrategy(int[] pathP1, int lengthP1,
+			int[] pathP2, int lengthP2,
+			StrategyKeys keys,
+			double[] strategy,
+			StrategySampler sampler) {
 	
 		Set<String> oponentMoves = new HashSet<String>();
 		
 		//When we played as Player1 we are going to check what were the moves
 		//of our opponent as player2.
-		for(GameNode n: listP1) {
-			if(n.isNature() || n.isRoot()) continue;
-			if(n.getAncestor().isPlayer2()) {
-				oponentMoves.add(n.getLabel());
-			}
-		}
+		collectOponentMoves(pathP1, lengthP1, true, oponentMoves);
 		
 		//When we played as Player2 we are going to check what were the moves
 		//of our opponent as player1.
-		for(GameNode n: listP2) {
-			if(n.isNature() || n.isRoot()) continue;
-			if(n.getAncestor().isPlayer1()) {
-				oponentMoves.add(n.getLabel());
-			}
-		}
+		collectOponentMoves(pathP2, lengthP2, false, oponentMoves);
 		
 		
 		//We now set our strategy to have a probability of 1.0 for the moves used
 		//by our adversary in the previous round and zero for the remaining ones.
-		Iterator<String> moves = myStrategy.keyIterator();
-		while(moves.hasNext()) {
-			String k = moves.next();
-			if(oponentMoves.contains(k)) {
-				myStrategy.put(k, new Double(1));
-				System.err.println("Setting " + k + " to prob 1.0");
+		boolean debug = LOG.isEnabled(Level.DEBUG);
+		for(int k = 0; k < keys.keyCount(); k++) {
+			if(oponentMoves.contains(keys.key(k))) {
+				strategy[k] = 1;
+				if(debug) LOG.debug("Setting {} to prob 1.0", keys.key(k));
 			} else {
-				myStrategy.put(k, new Double(0));
-				System.err.println("Setting " + k + " to prob 0.0");
+				strategy[k] = 0;
+				if(debug) LOG.debug("Setting {} to prob 0.0", keys.key(k));
 			}
 				
 		}
@@ -77,32 +81,19 @@ public class MimicStrategy extends Strategy {
 		//The following piece of code has the goal of checking if there was a portion
 		//of the game for which we could not infer the moves of the adversary (because
 		//none of the games in the previous round pass through those paths)
-		Iterator<Integer> validationSetIte = tree.getValidationSet().iterator();
-		moves = myStrategy.keyIterator();
-		while(validationSetIte.hasNext()) {
-			int possibleMoves = validationSetIte.next().intValue();
-			String[] labels = new String[possibleMoves];
-			double[] values = new double[possibleMoves];
+		for(int g = 0; g < keys.groupCount(); g++) {
+			int first = keys.groupOffset(g);
+			int end = keys.groupOffset(g + 1);
 			double sum = 0;
-			for(int i = 0; i < possibleMoves; i++) {		
-				labels[i] = moves.next();
-				values[i] = ((Double) myStrategy.get(labels[i])).doubleValue();
-				sum += values[i];
-			}
+			for(int k = first; k < end; k++)
+				sum += strategy[k];
 			if(sum != 1) { //In the previous game we could not infer what the adversary played here
 				//Random move on this validation set
-				sum = 0;
-				for(int i = 0; i < values.length - 1; i++) {
-					values[i] = random.nextDouble();
-					while(sum + values[i] >= 1) values[i] = random.nextDouble();
-					sum = sum + values[i];
-				}
-				values[values.length-1] = ((double) 1) - sum;
+				sampler.sampleGroup(g, strategy);
 				
-				for(int i = 0; i < possibleMoves; i++) {
-					myStrategy.put(labels[i], values[i]);
-					System.err.println("Unexplored path: Setting " + labels[i] + " to prob " + values[i]);
-				}
+				if(debug)
+					for(int k = first; k < end; k++)
+						LOG.debug("Unexplored path: Setting {} to prob {}", keys.key(k), strategy[k]);
 			}
 			
 		}
@@ -111,81 +102,40 @@ public class MimicStrategy extends Strategy {
 	
 
 	@Override
-	public void execute() throws InterruptedException {
+	protected void startGame() {
+		pathP1 = new int[this.tree.getHeight() + 1];
+		pathP2 = new int[this.tree.getHeight() + 1];
+	}
 
-		SecureRandom random = new SecureRandom();
+	@Override
+	protected boolean computeRound(PlayStrategyInterface myStrategy) {
+		if(myStrategy.getFinalP1Node() != -1)
+			finalP1 = this.tree.getNodeByIndex(myStrategy.getFinalP1Node());
+		if(myStrategy.getFinalP2Node() != -1)
+			finalP2 = this.tree.getNodeByIndex(myStrategy.getFinalP2Node());
 
-		while(!this.isTreeKnown()) {
-			System.err.println("Waiting for game tree to become available.");
-			Thread.sleep(1000);
+		if(keys == null) {
+			try {
+				keys = new StrategyKeys(tree.getValidationSet(), myStrategy.keyIterator());
+			} catch (IllegalArgumentException e) {
+				LOG.error("PANIC: Strategy structure does not match the game.");
+				return false;
+			}
+			strategy = new double[keys.keyCount()];
+			sampler = StrategySampler.forGame(keys);
 		}
 
-		GameNode finalP1 = null;
-		GameNode finalP2 = null;
-				
-		while(true) {
-
-			PlayStrategy myStrategy = this.getStrategyRequest();
-			if(myStrategy == null) //Game was terminated by an outside event
-				break;	
-			boolean playComplete = false;
+		if(finalP1 == null || finalP2 == null) {
+			//This is the first round so we use a random strategy.
+			sampler.sample(strategy);
+		} else {
+			//Lets mimic our adversary strategy (at least what we can infer)
+			int lengthP1 = this.tree.fillPathToRoot(finalP1.getValue(), pathP1);
+			int lengthP2 = this.tree.fillPathToRoot(finalP2.getValue(), pathP2);
 			
-			while(! playComplete ) {
-				if(myStrategy.getFinalP1Node() != -1) {
-					finalP1 = this.tree.getNodeByIndex(myStrategy.getFinalP1Node());
-					if(finalP1 != null)
-						System.out.println("Terminal node in last round as P1: " + finalP1);
-				}
-
-				if(myStrategy.getFinalP2Node() != -1) {
-					finalP2 = this.tree.getNodeByIndex(myStrategy.getFinalP2Node());
-					if(finalP2 != null)
-						System.out.println("Terminal node in last round as P2: " + finalP2);
-				}
-
-				Iterator<Integer> iterator = tree.getValidationSet().iterator();
-				Iterator<String> keys = myStrategy.keyIterator();
-
-				if(finalP1 == null || finalP2 == null) {
-					//This is the first round so we use a random strategy.
-					while(iterator.hasNext()) {
-						double[] moves = new double[iterator.next()];
-						double sum = 0;
-						for(int i = 0; i < moves.length - 1; i++) {
-							moves[i] = random.nextDouble();
-							while(sum + moves[i] >= 1) moves[i] = random.nextDouble();
-							sum = sum + moves[i];
-						}
-						moves[moves.length-1] = ((double) 1) - sum;
-
-						for(int i = 0; i < moves.length; i++) {
-							if(!keys.hasNext()) {
-								System.err.println("PANIC: Strategy structure does not match the game.");
-								return;
-							}
-							myStrategy.put(keys.next(), moves[i]);
-						}
-					} 
-				} else {
-					//Lets mimic our adversary strategy (at least what we can infer)
-					List<GameNode> listP1 = getReversePath(finalP1);
-					List<GameNode> listP2 = getReversePath(finalP2);
-					
-					try { cumputeStrategy(listP1, listP2, myStrategy, random); }
-					catch( GameNodeDoesNotExistException e ) {
-						System.err.println("PANIC: Strategy structure does not match the game.");
-					}
-				}
-
-				try{
-					this.provideStrategy(myStrategy);
-					playComplete = true;
-				} catch (InvalidStrategyException e) {
-					System.err.println("Invalid strategy: " + e.getMessage());;
-					e.printStackTrace(System.err);
-				} 
-			}
+			cumputeStrategy(pathP1, lengthP1, pathP2, lengthP2, keys, strategy, sampler);
 		}
-
+		keys.write(strategy, myStrategy);
+		return true;
 	}
 }
@@ -0,0 +1,185 @@
+package play;
+
+import java.util.Arrays;
+
+import gametree.CompactGameTree;
+import gametree.StrategyLayout;
+
+/**
+ * Estimates the strategy of the opponent from the terminal nodes reached in
+ * the rounds played so far. Every move the opponent took on the way to a
+ * terminal node counts as an observation of the key of that move, and the
+ * estimate of a key is its share of the observations of its group of the
+ * validation set.
+ *
+ * Older rounds can be forgotten gradually: with a decay d, the
+ * observations of a round weigh d times those of the next one. Rather than
+ * multiplying every count by d after each round, the weight of new
+ * observations grows by 1 / d, and the counts are scaled back only when
+ * that weight gets too large, so a round costs one walk from the terminal
+ * node to the root whatever the number of keys.
+ *
+ * The counts are kept in arrays in key order (see StrategyLayout), so the
+ * estimate of any key is read in constant time. A model is not
+ * thread-safe.
+ */
+public final class OpponentModel {
+
+	//Weight past which the counts are scaled back to avoid overflow
+	private static final double RESCALE = 1e150;
+
+	private final StrategyLayout layout;
+	private final CompactGameTree tree;
+	private final double decay;
+	//Observations of each key and of each group, in units of 1 / weight
+	private final double[] count;
+	private final double[] total;
+	private double weight;
+	private long rounds;
+
+	/**
+	 * @param layout the keys of the game.
+	 * @param decay the weight, between 0 (exclusive) and 1, of the
+	 * observations of a round relative to those of the next round; 1 never
+	 * forgets.
+	 * @throws IllegalArgumentException if decay is out of range.
+	 */
+	public OpponentModel(StrategyLayout layout, double decay) {
+		if(!(decay > 0 && decay <= 1))
+			throw new IllegalArgumentException("Invalid decay " + decay + ".");
+		this.layout = layout;
+		this.tree = layout.getTree();
+		this.decay = decay;
+		this.count = new double[layout.keyCount()];
+		this.total = new double[layout.groupCount()];
+		this.weight = 1;
+		this.rounds = 0;
+	}
+
+	/**
+	 * Creates a model that never forgets.
+	 * @param layout the keys of the game.
+	 */
+	public OpponentModel(StrategyLayout layout) {
+		this(layout, 1);
+	}
+
+	public StrategyLayout getLayout() {
+		return this.layout;
+	}
+
+	/**
+	 * Records the moves of the opponent in a round, as handed by the
+	 * requests of the next round (see PlayStrategyInterface.getFinalP1Node()),
+	 * and ages the previous rounds by the decay.
+	 * @param finalP1 the index of the terminal node reached when we played
+	 * as player 1, -1 if there is none.
+	 * @param finalP2 the same, when we played as player 2.
+	 */
+	public void observeRound(int finalP1, int finalP2) {
+		if(this.rounds++ > 0 && this.decay != 1) {
+			this.weight /= this.decay;
+			if(this.weight > RESCALE)
+				rescale();
+		}
+		if(finalP1 != -1)
+			observe(finalP1, false);
+		if(finalP2 != -1)
+			observe(finalP2, true);
+	}
+
+	/**
+	 * Records the moves of the opponent on the path to a terminal node, with
+	 * the weight of the current round.
+	 * @param index the engine index of the terminal node.
+	 * @param opponentIsP1 true if the opponent played as player 1.
+	 * @return false if the tree has no node with that index.
+	 */
+	public boolean observe(int index, boolean opponentIsP1) {
+		int n = this.tree.idOf(index);
+		if(n == CompactGameTree.NONE)
+			return false;
+		byte opponent = opponentIsP1 ? CompactGameTree.KIND_PLAYER1 : CompactGameTree.KIND_PLAYER2;
+		for(int p = this.tree.parent(n); p != CompactGameTree.NONE; n = p, p = this.tree.parent(p)) {
+			if(this.tree.kind(p) != opponent)
+				continue;
+			int k = this.layout.edgeKey(n);
+			if(k == StrategyLayout.NO_KEY)
+				continue;
+			this.count[k] += this.weight;
+			this.total[this.layout.groupOf(k)] += this.weight;
+		}
+		return true;
+	}
+
+	private void rescale() {
+		double f = 1 / this.weight;
+		for(int k = 0; k < this.count.length; k++)
+			this.count[k] *= f;
+		for(int g = 0; g < this.total.length; g++)
+			this.total[g] *= f;
+		this.weight = 1;
+	}
+
+	/**
+	 * @return the number of rounds observed.
+	 */
+	public long getRounds() {
+		return this.rounds;
+	}
+
+	/**
+	 * @param g a group of the validation set.
+	 * @return the observations of group g, each weighed by the decay to the
+	 * power of its age in rounds.
+	 */
+	public double observations(int g) {
+		return this.total[g] / this.weight;
+	}
+
+	/**
+	 * @param g a group of the validation set.
+	 * @return true if the opponent was ever seen playing group g.
+	 */
+	public boolean isObserved(int g) {
+		return this.total[g] > 0;
+	}
+
+	/**
+	 * @param key the position of a key.
+	 * @return the estimated probability that the opponent plays key; the
+	 * uniform probability if its group was never observed.
+	 */
+	public double probability(int key) {
+		double t = this.total[this.layout.groupOf(key)];
+		return t > 0 ? this.count[key] / t : 1.0 / this.layout.groupSize(this.layout.groupOf(key));
+	}
+
+	/**
+	 * Copies the estimate of every key into strategy.
+	 * @param strategy an array of keyCount() probabilities.
+	 */
+	public void estimate(double[] strategy) {
+		for(int g = 0; g < this.total.length; g++) {
+			int first = this.layout.groupOffset(g);
+			int end = this.layout.groupOffset(g + 1);
+			double t = this.total[g];
+			if(t > 0) {
+				for(int k = first; k < end; k++)
+					strategy[k] = this.count[k] / t;
+			} else {
+				Arrays.fill(strategy, first, end, 1.0 / (end - first));
+			}
+		}
+	}
+
+	/**
+	 * Forgets every observation.
+	 */
+	public void clear() {
+		Arrays.fill(this.count, 0);
+		Arrays.fill(this.total, 0);
+		this.weight = 1;
+		this.rounds = 0;
+	}
+}
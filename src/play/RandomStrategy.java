@@ -1,75 +1,42 @@
 package play;
 
-import java.security.SecureRandom;
-import java.util.Iterator;
+import java.util.concurrent.ForkJoinPool;
 
-import gametree.GameNode;
-import play.exception.InvalidStrategyException;
+import log.Log;
 
-public class RandomStrategy extends Strategy {
+public class RandomStrategy extends RoundStrategy {
+
+	private static final Log LOG = Log.get(RandomStrategy.class);
+
+	/**
+	 * Number of keys from which strategies are drawn in parallel.
+	 */
+	private static final int PARALLEL_KEYS = 1 << 16;
+
+	//Key order of the game and the strategy delivered, set on the first request
+	private StrategyKeys keys = null;
+	private double[] strategy = null;
+	private StrategySampler sampler = null;
 
 	@Override
-	public void execute() throws InterruptedException {
-		
-		SecureRandom random = new SecureRandom();
-		
-		while(!this.isTreeKnown()) {
-			System.err.println("Waiting for game tree to become available.");
-			Thread.sleep(1000);
-		}
-	
-		while(true) {
-		
-			PlayStrategy myStrategy = this.getStrategyRequest();
-			if(myStrategy == null) //Game was terminated by an outside event
-				break;	
-			boolean playComplete = false;
-						
-			while(! playComplete ) {
-				if(myStrategy.getFinalP1Node() != -1) {
-					GameNode finalP1 = this.tree.getNodeByIndex(myStrategy.getFinalP1Node());
-					if(finalP1 != null)
-						System.out.println("Terminal node in last round as P1: " + finalP1);
-				}
-				
-				if(myStrategy.getFinalP2Node() != -1) {
-					GameNode finalP2 = this.tree.getNodeByIndex(myStrategy.getFinalP2Node());
-					if(finalP2 != null)
-						System.out.println("Terminal node in last round as P2: " + finalP2);
-				}
-				
-				Iterator<Integer> iterator = tree.getValidationSet().iterator();
-				Iterator<String> keys = myStrategy.keyIterator();
-				
-				while(iterator.hasNext()) {
-					double[] moves = new double[iterator.next()];
-					double sum = 0;
-					for(int i = 0; i < moves.length - 1; i++) {
-						moves[i] = random.nextDouble();
-						while(sum + moves[i] >= 1) moves[i] = random.nextDouble();
-						sum = sum + moves[i];
-					}
-					moves[moves.length-1] = ((double) 1) - sum;
-					
-					for(int i = 0; i < moves.length; i++) {
-						if(!keys.hasNext()) {
-							System.err.println("PANIC: Strategy structure does not match the game.");
-							return;
-						}
-						myStrategy.put(keys.next(), moves[i]);
-					}
-				}
-				
-				try{
-					this.provideStrategy(myStrategy);
-					playComplete = true;
-				} catch (InvalidStrategyException e) {
-					System.err.println("Invalid strategy: " + e.getMessage());;
-					e.printStackTrace(System.err);
-				} 
+	protected boolean computeRound(PlayStrategyInterface myStrategy) {
+		if(keys == null) {
+			try {
+				keys = new StrategyKeys(tree.getValidationSet(), myStrategy.keyIterator());
+			} catch (IllegalArgumentException e) {
+				LOG.error("PANIC: Strategy structure does not match the game.");
+				return false;
 			}
+			strategy = new double[keys.keyCount()];
+			sampler = StrategySampler.forGame(keys);
 		}
-		
+
+		if(keys.keyCount() >= PARALLEL_KEYS)
+			sampler.sample(strategy, ForkJoinPool.commonPool());
+		else
+			sampler.sample(strategy);
+		keys.write(strategy, myStrategy);
+		return true;
 	}
 
 }
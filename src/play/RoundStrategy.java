@@ -0,0 +1,249 @@
+package play;
+
+import gametree.CompactGameTree;
+import gametree.GameNode;
+import gametree.GameTree;
+import gametree.GameTreeCache;
+import gametree.GameTreeSnapshotCache;
+import log.Log;
+import play.exception.InvalidStrategyException;
+import play.metrics.RoundMetrics;
+import trace.StrategyPhaseEvent;
+import trace.StrategySubmitEvent;
+import trace.Tracing;
+
+/**********************************************************************************
+ * Base class of the strategies that compute every round on their own, without
+ * interacting with the user. It implements the cycle that every strategy runs
+ * in execute() (wait for the game tree, receive a request, fill it in, deliver
+ * it) and leaves to subclasses only the computation of a round, in
+ * computeRound().
+ *
+ * Since a round only needs a PlayStrategyInterface, a RoundStrategy can also
+ * be driven without the game engine (see play.local.LocalEngine): attach()
+ * gives it the game tree, playRound() computes one round and endGame() ends
+ * the game. A GameMultiplexer drives many such strategies at once, on trees
+ * they share.
+ *
+ * The tree of the game, its key order, the opponent model and the solvers of a
+ * strategy last for the whole game in a SolverState (see getState()), so every
+ * round can start from what the previous ones computed.
+ *
+ * Every round played in execute() is measured in a RoundMetrics (see
+ * play.metrics.MetricsReporter to have them reported), and every round and
+ * delivery is recorded as a JFR event (see trace.Tracing).
+ *
+ **********************************************************************************/
+public abstract class RoundStrategy extends Strategy {
+
+	private static final Log LOG = Log.get(RoundStrategy.class);
+
+	private RoundMetrics metrics = null;
+	//Rounds started so far
+	private int round = 0;
+	//What lasts for the whole game, created when first asked for
+	private CompactGameTree compact = null;
+	private SolverState state = null;
+	//The shared trees of the game when it is played through a GameMultiplexer
+	private GameTreeCache.Entry shared = null;
+
+	@Override
+	public void execute() throws InterruptedException {
+
+		while(!this.isTreeKnown()) {
+			LOG.info("Waiting for game tree to become available.");
+			Thread.sleep(1000);
+		}
+		startGame();
+		metrics = RoundMetrics.register(getClass().getName());
+
+		try {
+			while(true) {
+
+				PlayStrategy myStrategy = this.getStrategyRequest();
+				if(myStrategy == null) //Game was terminated by an outside event
+					break;
+				long arrival = metrics.arrived(myStrategy.timeToExpire());
+				boolean playComplete = false;
+				//Every request is a new round, its retries are not
+				boolean newRound = true;
+
+				while(! playComplete ) {
+					if(!playRound(myStrategy, newRound))
+						return;
+					newRound = false;
+
+					long timeToExpire = myStrategy.timeToExpire();
+					metrics.submitted(arrival, timeToExpire);
+					StrategySubmitEvent event = Tracing.AVAILABLE
+							? StrategySubmitEvent.start(getClass().getName(), round, timeToExpire) : null;
+					if(event != null)
+						event.setNodes(nodeCount());
+					try{
+						this.provideStrategy(myStrategy);
+						playComplete = true;
+					} catch (InvalidStrategyException e) {
+						metrics.retried();
+						LOG.error("Invalid strategy: {}", e.getMessage(), e);
+					}
+					if(event != null)
+						event.finish(playComplete);
+				}
+			}
+		} finally {
+			metrics.unregister();
+			endGame();
+			compact = null;
+			state = null;
+		}
+	}
+
+	/**
+	 * @return the metrics of the rounds played in execute(), null before
+	 * the game starts.
+	 */
+	public RoundMetrics getMetrics() {
+		return metrics;
+	}
+
+	/**
+	 * Starts a game on tree, outside of the game engine.
+	 * @param tree the tree of the game.
+	 */
+	public void attach(GameTree tree) {
+		this.tree = tree;
+		shared = null;
+		compact = null;
+		state = null;
+		startGame();
+	}
+
+	/**
+	 * Starts a game on the trees of a GameTreeCache, shared with the other
+	 * games on them.
+	 * @param entry the trees of the game.
+	 */
+	void attach(GameTreeCache.Entry entry) {
+		this.tree = entry.getTree();
+		shared = entry;
+		compact = null;
+		state = null;
+		startGame();
+	}
+
+	public GameTree getTree() {
+		return this.tree;
+	}
+
+	/**
+	 * @return the number of rounds started so far, i.e. the current round
+	 * while one is being played (1 for the first one).
+	 */
+	public int getRound() {
+		return round;
+	}
+
+	/**
+	 * Plays one round: reports where the previous round ended and fills in
+	 * the strategy of request.
+	 * @param request the round to play.
+	 * @param newRound true if request starts a new round, false if it is
+	 * computed again because the engine rejected what was delivered; only
+	 * a new round counts in getRound() and feeds the opponent model.
+	 * @return false if the strategy cannot play this game and leaves it.
+	 * @throws InterruptedException if the thread is interrupted.
+	 */
+	public final boolean playRound(PlayStrategyInterface request, boolean newRound) throws InterruptedException {
+		if(request.getFinalP1Node() != -1) {
+			GameNode finalP1 = this.tree.getNodeByIndex(request.getFinalP1Node());
+			if(finalP1 != null)
+				LOG.info("Terminal node in last round as P1: {}", finalP1);
+		}
+
+		if(request.getFinalP2Node() != -1) {
+			GameNode finalP2 = this.tree.getNodeByIndex(request.getFinalP2Node());
+			if(finalP2 != null)
+				LOG.info("Terminal node in last round as P2: {}", finalP2);
+		}
+
+		if(newRound) {
+			round++;
+			if(state != null && (request.getFinalP1Node() != -1 || request.getFinalP2Node() != -1))
+				state.observeRound(request.getFinalP1Node(), request.getFinalP2Node());
+		}
+		StrategyPhaseEvent event = Tracing.AVAILABLE ? startPhase("compute") : null;
+		boolean playing = computeRound(request);
+		if(event != null)
+			event.finish();
+		return playing;
+	}
+
+	/**
+	 * @return the compact form of the game tree, loaded from its snapshot
+	 * if snapshots are enabled (see gametree.GameTreeSnapshotCache) and kept
+	 * until the game ends. Games played through a GameMultiplexer share it.
+	 */
+	protected final CompactGameTree getCompactTree() {
+		if(compact == null)
+			compact = shared != null ? shared.getCompactTree() : GameTreeSnapshotCache.compact(this.tree, 0);
+		return compact;
+	}
+
+	/**
+	 * Returns the state kept for the whole game, creating it on the first
+	 * call with the keys of request. Its opponent model observes every
+	 * round that starts after that.
+	 * @param request the round being played.
+	 * @return the state.
+	 * @throws IllegalArgumentException if the keys of request do not
+	 * match the game.
+	 */
+	protected final SolverState getState(PlayStrategyInterface request) {
+		if(state == null)
+			state = new SolverState(getCompactTree(), request.keyIterator());
+		return state;
+	}
+
+	/**
+	 * Starts the JFR event of a phase of the current round, to be finished
+	 * by the caller. Only call it when trace.Tracing.AVAILABLE is true.
+	 * @param phase the name of the phase.
+	 * @return the event, null if it is not being recorded.
+	 */
+	protected final StrategyPhaseEvent startPhase(String phase) {
+		StrategyPhaseEvent event = StrategyPhaseEvent.start(getClass().getName(), round, phase);
+		if(event != null)
+			event.setNodes(nodeCount());
+		return event;
+	}
+
+	/**
+	 * @return the nodes of the game tree for the events, 0 if counting them
+	 * would index a lazy tree that the strategy has not needed so far.
+	 */
+	private int nodeCount() {
+		return compact != null ? compact.size() : this.tree.knownSize();
+	}
+
+	/**
+	 * Called once the game tree is known, before the first round. Does
+	 * nothing by default.
+	 */
+	protected void startGame() {
+	}
+
+	/**
+	 * Fills in the probability of every key of request.
+	 * @param request the round to play.
+	 * @return false if the strategy cannot play this game and leaves it.
+	 * @throws InterruptedException if the thread is interrupted.
+	 */
+	protected abstract boolean computeRound(PlayStrategyInterface request) throws InterruptedException;
+
+	/**
+	 * Called when the game is over, to release whatever the strategy holds.
+	 * Does nothing by default.
+	 */
+	public void endGame() {
+	}
+}
@@ -0,0 +1,74 @@
+package play;
+
+import gametree.SequenceForm;
+import gametree.SequenceFormSolver;
+import gametree.StrategyLayout;
+import log.Log;
+
+/**********************************************************************************
+ * This strategy plays the maxmin strategy of each player, the one that
+ * guarantees him the largest expected payoff whatever the opponent does, computed
+ * on the sequence form of the game (see gametree.SequenceFormSolver). Iterations
+ * run on a worker thread until shortly before the round expires, or until the
+ * strategy is within EPSILON of the guaranteed payoff, and the solver is kept in
+ * the SolverState of the game, so later rounds only deliver the result (see
+ * AnytimeStrategy).
+ *
+ * Games without perfect recall have no sequence form; this strategy then plays
+ * the uniform strategy.
+ *
+ **********************************************************************************/
+public class SequenceFormStrategy extends AnytimeStrategy {
+
+	private static final Log LOG = Log.get(SequenceFormStrategy.class);
+
+	/**
+	 * Largest duality gap at which the solver stops iterating.
+	 */
+	private static final double EPSILON = 1e-3;
+
+	/**
+	 * The solver of a game, solved from the start with the uniform strategy
+	 * if the game has no sequence form.
+	 */
+	private static final class Solver extends AnytimeSolver {
+		private final SequenceFormSolver solver;
+
+		Solver(StrategyLayout layout) {
+			super(layout, EPSILON);
+			SequenceFormSolver s = null;
+			try {
+				s = new SequenceFormSolver(new SequenceForm(layout));
+			} catch (IllegalArgumentException e) {
+				LOG.warn("No sequence form, playing uniformly: {}", e.getMessage());
+				solved(layout.uniform());
+			}
+			this.solver = s;
+		}
+
+		@Override
+		protected void iterate() {
+			this.solver.iterate();
+		}
+
+		@Override
+		protected void average(double[] out) {
+			this.solver.getStrategy(out);
+		}
+
+		@Override
+		protected double errorBound(double[] average) {
+			return this.solver.gap();
+		}
+
+		@Override
+		public long getIterations() {
+			return this.solver == null ? 0 : this.solver.getIterations();
+		}
+	}
+
+	@Override
+	protected AnytimeSolver createSolver(SolverState state) {
+		return new Solver(state.getLayout());
+	}
+}
@@ -0,0 +1,127 @@
+package play;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import gametree.BestResponseOracle;
+import gametree.CompactGameTree;
+import gametree.StrategyLayout;
+
+/**
+ * What a RoundStrategy computes about a game that stays valid from one
+ * round to the next: the key order of the game, a model of the opponent
+ * and any solver the strategy keeps (regret tables, value arrays and the
+ * like).
+ *
+ * The game tree does not change during a game, so a solver stored here
+ * continues in every round from where the previous round left it instead
+ * of starting over; only the opponent model changes, and it is updated by
+ * RoundStrategy with the terminal nodes of each round (see
+ * PlayStrategyInterface.getFinalP1Node()) before the round is computed.
+ * The best response to that model is recomputed only in rounds that bring
+ * new observations.
+ *
+ * RoundStrategy.getState() creates the state on the first round that
+ * asks for it and drops it when the game ends. A state is meant to be
+ * used by the thread of its strategy and by the computations it runs,
+ * one at a time, as AnytimeScheduler does.
+ */
+public final class SolverState {
+
+	/**
+	 * Creates a solver the first time it is asked for.
+	 */
+	public interface Factory<T> {
+		/**
+		 * @param state the state that will keep the solver.
+		 * @return the solver.
+		 */
+		T create(SolverState state);
+	}
+
+	private final StrategyLayout layout;
+	private final StrategyKeys keys;
+	private final OpponentModel model;
+	private final Map<Class<?>, Object> solvers;
+	private BestResponseOracle oracle = null;
+	private double[] estimate = null;
+	private double[] response = null;
+	//Rounds of the model the response was computed with
+	private long responseRounds = -1;
+
+	/**
+	 * @param tree the tree of the game.
+	 * @param keys the keys of the game, in the order of the requests.
+	 * @throws IllegalArgumentException if the keys do not match the tree.
+	 */
+	public SolverState(CompactGameTree tree, Iterator<String> keys) {
+		this.layout = new StrategyLayout(tree, keys);
+		this.keys = new StrategyKeys(this.layout);
+		this.model = new OpponentModel(this.layout);
+		this.solvers = new HashMap<Class<?>, Object>();
+	}
+
+	public StrategyLayout getLayout() {
+		return this.layout;
+	}
+
+	public StrategyKeys getKeys() {
+		return this.keys;
+	}
+
+	/**
+	 * @return the model of the opponent, fed with every round played since
+	 * the state was created.
+	 */
+	public OpponentModel getOpponentModel() {
+		return this.model;
+	}
+
+	/**
+	 * Returns the solver of a type kept by this state, creating it the
+	 * first time.
+	 * @param type the class of the solver, which identifies it.
+	 * @param factory creates the solver if there is none yet.
+	 * @return the solver.
+	 */
+	public <T> T get(Class<T> type, Factory<T> factory) {
+		T solver = type.cast(this.solvers.get(type));
+		if(solver == null) {
+			solver = factory.create(this);
+			this.solvers.put(type, solver);
+		}
+		return solver;
+	}
+
+	/**
+	 * Records the terminal nodes of a round in the opponent model.
+	 * @param finalP1 the index of the terminal node reached as player 1,
+	 * -1 if there is none.
+	 * @param finalP2 the same, as player 2.
+	 */
+	void observeRound(int finalP1, int finalP2) {
+		this.model.observeRound(finalP1, finalP2);
+	}
+
+	/**
+	 * Returns the pure best response, in both seats, to the strategy the
+	 * opponent model estimates, computing it only if the model observed a
+	 * round since the last call.
+	 * @return the best response in StrategyLayout order. The array is
+	 * shared and must not be modified.
+	 */
+	public double[] bestResponse() {
+		if(this.oracle == null) {
+			this.oracle = new BestResponseOracle(this.layout);
+			this.estimate = new double[this.layout.keyCount()];
+			this.response = new double[this.layout.keyCount()];
+		}
+		if(this.responseRounds != this.model.getRounds()) {
+			this.model.estimate(this.estimate);
+			this.oracle.bestResponse(this.estimate, this.response);
+			this.responseRounds = this.model.getRounds();
+		}
+		return this.response;
+	}
+}
@@ -0,0 +1,187 @@
+package play;
+
+import java.util.Iterator;
+import java.util.List;
+
+import gametree.StrategyLayout;
+import log.Log;
+
+/**
+ * Moves a whole strategy between a PlayStrategy and a double[] in one
+ * call.
+ *
+ * The key order and the groups are those of a StrategyLayout, or are
+ * computed the same way from the validation set alone by a strategy that
+ * never needs the tree; they are read once per game. Position i of a strategy array then holds the probability of
+ * the i-th key, and the keys of group g are the positions groupOffset(g)
+ * to groupOffset(g + 1) - 1. Every group is checked to add up to one on
+ * the array, before its keys are written; a group that does not is
+ * repaired (see write()) rather than sent to the engine as it is.
+ *
+ * PlayStrategy belongs to the game engine and only offers put() per key,
+ * so writing still costs one put() per key; the probabilities 0 and 1,
+ * which make up most of a pure strategy, are written without boxing.
+ */
+public final class StrategyKeys {
+
+	private static final Log LOG = Log.get(StrategyKeys.class);
+
+	/**
+	 * Largest difference from one accepted for the sum of a group.
+	 */
+	public static final double TOLERANCE = 1e-9;
+
+	private static final Double ZERO = Double.valueOf(0);
+	private static final Double ONE = Double.valueOf(1);
+
+	private final String[] keys;
+	private final int[] groupOffset;
+
+	/**
+	 * Reads the key order of a game without building its StrategyLayout
+	 * (see StrategyLayout.groupOffsets()).
+	 * @param validationSet the number of moves of each group, as returned by
+	 * GameTreeInterface.getValidationSet().
+	 * @param keys the keys in the order of PlayStrategy.keyIterator().
+	 * @throws IllegalArgumentException if the number of keys does not match
+	 * the validation set.
+	 */
+	public StrategyKeys(List<Integer> validationSet, Iterator<String> keys) {
+		this.keys = StrategyLayout.keys(keys);
+		this.groupOffset = StrategyLayout.groupOffsets(validationSet, this.keys.length);
+	}
+
+	/**
+	 * @param layout the layout of the game, whose key order and groups are
+	 * reused.
+	 */
+	public StrategyKeys(StrategyLayout layout) {
+		this.keys = new String[layout.keyCount()];
+		for(int i = 0; i < this.keys.length; i++)
+			this.keys[i] = layout.key(i);
+		this.groupOffset = new int[layout.groupCount() + 1];
+		for(int g = 0; g <= layout.groupCount(); g++)
+			this.groupOffset[g] = layout.groupOffset(g);
+	}
+
+	/**
+	 * @return the number of keys, i.e. the length of a strategy array.
+	 */
+	public int keyCount() {
+		return this.keys.length;
+	}
+
+	public String key(int position) {
+		return this.keys[position];
+	}
+
+	public int groupCount() {
+		return this.groupOffset.length - 1;
+	}
+
+	/**
+	 * @return the position of the first key of group g. groupOffset(groupCount())
+	 * equals keyCount().
+	 */
+	public int groupOffset(int g) {
+		return this.groupOffset[g];
+	}
+
+	public int groupSize(int g) {
+		return this.groupOffset[g + 1] - this.groupOffset[g];
+	}
+
+	/**
+	 * @param strategy a strategy array.
+	 * @return the first group that has a negative or non finite probability
+	 * or does not add up to one (within TOLERANCE), -1 if there is none.
+	 */
+	public int invalidGroup(double[] strategy) {
+		if(strategy.length != this.keys.length)
+			throw new IllegalArgumentException("Strategy of " + strategy.length + " probabilities for " + this.keys.length + " keys.");
+		for(int g = 0; g < this.groupOffset.length - 1; g++)
+			if(!isDistribution(strategy, this.groupOffset[g], this.groupOffset[g + 1]))
+				return g;
+		return -1;
+	}
+
+	private static boolean isDistribution(double[] strategy, int from, int end) {
+		int i = from;
+		//Independent sums over an unrolled loop, so that the additions
+		//do not wait on each other
+		double s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+		double min = 0;
+		for(; i + 3 < end; i += 4) {
+			double a = strategy[i], b = strategy[i + 1], c = strategy[i + 2], d = strategy[i + 3];
+			s0 += a;
+			s1 += b;
+			s2 += c;
+			s3 += d;
+			min = Math.min(min, Math.min(Math.min(a, b), Math.min(c, d)));
+		}
+		for(; i < end; i++) {
+			s0 += strategy[i];
+			min = Math.min(min, strategy[i]);
+		}
+		double sum = (s0 + s1) + (s2 + s3);
+		//A NaN or infinite entry makes sum fail the test as well
+		return min >= 0 && Math.abs(sum - 1) <= TOLERANCE;
+	}
+
+	/**
+	 * Writes strategy into request. A group that is not a probability
+	 * distribution (see invalidGroup()) is logged and written repaired:
+	 * its negative and non finite probabilities read as 0 and the others
+	 * are scaled to add up to one, or, if none is left above 0, every move
+	 * of the group gets the same probability. strategy itself is left
+	 * unchanged.
+	 * @param strategy a strategy array.
+	 * @param request the request to fill.
+	 */
+	public void write(double[] strategy, PlayStrategyInterface request) {
+		if(strategy.length != this.keys.length)
+			throw new IllegalArgumentException("Strategy of " + strategy.length + " probabilities for " + this.keys.length + " keys.");
+		for(int g = 0; g < this.groupOffset.length - 1; g++) {
+			int from = this.groupOffset[g];
+			int end = this.groupOffset[g + 1];
+			if(isDistribution(strategy, from, end)) {
+				for(int i = from; i < end; i++) {
+					double p = strategy[i];
+					request.put(this.keys[i], p == 0 ? ZERO : p == 1 ? ONE : Double.valueOf(p));
+				}
+				continue;
+			}
+			double sum = 0;
+			for(int i = from; i < end; i++)
+				if(usable(strategy[i]))
+					sum += strategy[i];
+			if(sum > 0 && !Double.isInfinite(sum)) {
+				LOG.warn("Probabilities of group {} (first key {}) do not form a distribution, renormalized.", g, this.keys[from]);
+				for(int i = from; i < end; i++)
+					request.put(this.keys[i], usable(strategy[i]) ? Double.valueOf(strategy[i] / sum) : ZERO);
+			} else {
+				LOG.warn("Probabilities of group {} (first key {}) do not form a distribution, played uniformly.", g, this.keys[from]);
+				Double uniform = Double.valueOf(1.0 / (end - from));
+				for(int i = from; i < end; i++)
+					request.put(this.keys[i], uniform);
+			}
+		}
+	}
+
+	private static boolean usable(double p) {
+		return p > 0 && !Double.isInfinite(p);
+	}
+
+	/**
+	 * Reads the probabilities currently held by request.
+	 * @param request a request.
+	 * @param strategy where the probabilities are written; keys without a
+	 * value read as 0.
+	 */
+	public void read(PlayStrategy request, double[] strategy) {
+		for(int i = 0; i < this.keys.length; i++) {
+			Object p = request.get(this.keys[i]);
+			strategy[i] = p == null ? 0 : ((Double) p).doubleValue();
+		}
+	}
+}
@@ -0,0 +1,174 @@
+package play;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Draws strategies uniformly at random: the probabilities of every group
+ * of the validation set are a uniform point of the simplex, obtained by
+ * normalizing independent exponential variables.
+ *
+ * The groups are cut into chunks of about CHUNK keys, and every call
+ * gives each chunk its own generator, split in chunk order from a
+ * SplittableRandom. The result therefore only depends on the seed and on
+ * the number of previous calls, and sample(strategy) and
+ * sample(strategy, pool) give exactly the same strategy; the second one
+ * fills the chunks in parallel, for very large games.
+ *
+ * A sampler is not thread-safe.
+ */
+public final class StrategySampler {
+
+	/**
+	 * Name of the system property that, when set, gives the seed of the
+	 * samplers made by forGame() so that runs can be reproduced.
+	 */
+	public static final String SEED_PROPERTY = "strategy.seed";
+
+	/**
+	 * Number of keys drawn with one generator; a chunk ends before the
+	 * first group that would take it past this size, and a group larger
+	 * than it makes a chunk of its own.
+	 */
+	static final int CHUNK = 1 << 12;
+
+	private final StrategyKeys keys;
+	private final SplittableRandom random;
+	//Group where each chunk starts; chunkStart[chunkCount] is groupCount
+	private final int[] chunkStart;
+
+	/**
+	 * @param keys the layout of the strategies to draw.
+	 * @param seed the seed of the generator.
+	 */
+	public StrategySampler(StrategyKeys keys, long seed) {
+		this(keys, new SplittableRandom(seed));
+	}
+
+	/**
+	 * Creates a sampler with an unpredictable seed.
+	 * @param keys the layout of the strategies to draw.
+	 */
+	public StrategySampler(StrategyKeys keys) {
+		this(keys, new SplittableRandom());
+	}
+
+	private StrategySampler(StrategyKeys keys, SplittableRandom random) {
+		this.keys = keys;
+		this.random = random;
+		int chunks = 0;
+		int[] start = new int[keys.groupCount() + 1];
+		for(int g = 0; g < keys.groupCount(); ) {
+			start[chunks++] = g;
+			int end = keys.groupOffset(g) + CHUNK;
+			do {
+				g++;
+			} while(g < keys.groupCount() && keys.groupOffset(g + 1) <= end);
+		}
+		start[chunks] = keys.groupCount();
+		this.chunkStart = Arrays.copyOf(start, chunks + 1);
+	}
+
+	/**
+	 * @param keys the layout of the strategies to draw.
+	 * @return a sampler seeded with the system property SEED_PROPERTY, or
+	 * with an unpredictable seed if it is not set.
+	 */
+	public static StrategySampler forGame(StrategyKeys keys) {
+		Long seed = Long.getLong(SEED_PROPERTY);
+		return seed == null ? new StrategySampler(keys) : new StrategySampler(keys, seed.longValue());
+	}
+
+	public StrategyKeys getKeys() {
+		return this.keys;
+	}
+
+	/**
+	 * Fills strategy with a random distribution for every group.
+	 * @param strategy where the strategy is written, in key order.
+	 */
+	public void sample(double[] strategy) {
+		SplittableRandom round = this.random.split();
+		for(int c = 0; c < this.chunkStart.length - 1; c++)
+			fill(this.chunkStart[c], this.chunkStart[c + 1], round.split(), strategy);
+	}
+
+	/**
+	 * Same as sample(strategy), with the chunks filled by pool.
+	 * @param strategy where the strategy is written, in key order.
+	 * @param pool the pool that runs the chunks.
+	 */
+	public void sample(double[] strategy, ForkJoinPool pool) {
+		SplittableRandom round = this.random.split();
+		SplittableRandom[] generators = new SplittableRandom[this.chunkStart.length - 1];
+		for(int c = 0; c < generators.length; c++)
+			generators[c] = round.split();
+		if(generators.length > 0)
+			pool.invoke(new Task(0, generators.length, generators, strategy));
+	}
+
+	/**
+	 * Fills the keys of one group with a random distribution, leaving the
+	 * others untouched.
+	 * @param g a group.
+	 * @param strategy where the group is written, in key order.
+	 */
+	public void sampleGroup(int g, double[] strategy) {
+		fill(g, g + 1, this.random, strategy);
+	}
+
+	private void fill(int firstGroup, int endGroup, SplittableRandom r, double[] strategy) {
+		for(int g = firstGroup; g < endGroup; g++) {
+			int first = this.keys.groupOffset(g);
+			int end = this.keys.groupOffset(g + 1);
+			double sum = 0;
+			for(int k = first; k < end; k++) {
+				//1 - u lies in (0, 1], so the logarithm is finite
+				strategy[k] = -Math.log(1 - r.nextDouble());
+				sum += strategy[k];
+			}
+			if(sum == 0) { //Every draw was 0, which is as likely as any other point
+				for(int k = first; k < end; k++)
+					strategy[k] = 1.0 / (end - first);
+				continue;
+			}
+			double scale = 1 / sum;
+			double partial = 0;
+			for(int k = first; k < end - 1; k++) {
+				strategy[k] *= scale;
+				partial += strategy[k];
+			}
+			strategy[end - 1] = Math.max(0, 1 - partial);
+		}
+	}
+
+	private final class Task extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final int from;
+		private final int to;
+		private final SplittableRandom[] generators;
+		private final double[] strategy;
+
+		Task(int from, int to, SplittableRandom[] generators, double[] strategy) {
+			this.from = from;
+			this.to = to;
+			this.generators = generators;
+			this.strategy = strategy;
+		}
+
+		@Override
+		protected void compute() {
+			if(this.to - this.from == 1) {
+				fill(chunkStart[this.from], chunkStart[this.from + 1], this.generators[this.from], this.strategy);
+				return;
+			}
+			int middle = (this.from + this.to) >>> 1;
+			invokeAll(new Task(this.from, middle, this.generators, this.strategy),
+					new Task(middle, this.to, this.generators, this.strategy));
+		}
+	}
+}
@@ -0,0 +1,361 @@
+package play.local;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import gametree.CompactGameTree;
+import log.Log;
+import play.GameMultiplexer;
+import play.RoundStrategy;
+import play.StrategyKeys;
+
+/**
+ * Stand-in for the game engine that plays matches between two strategies
+ * in-process, without the server, to measure how they behave under the
+ * round deadlines.
+ *
+ * In every round both strategies receive a request (a LocalPlayStrategy)
+ * whose timeToExpire() counts down to the deadline of the round, and
+ * compute it on their own thread. A strategy that delivers after the
+ * deadline, or delivers an incomplete or invalid strategy, plays the round
+ * with the uniform strategy instead, and the round is counted against it.
+ * The game is then played twice, each strategy once as player 1, drawing
+ * the moves from the delivered probabilities and the nature weights, and
+ * the terminal nodes reached are handed back in the requests of the next
+ * round. A strategy that is still running one round length after its
+ * deadline is interrupted and the match ends.
+ *
+ * Both strategies play through a play.GameMultiplexer, so they share the
+ * GameTree of the game and compute on slots of its scheduler; matches
+ * given the same multiplexer (see setMultiplexer()) share them with each
+ * other as well. The deadline of a round counts from the moment its game
+ * is granted a slot; the time spent waiting for it is reported apart, as
+ * queueing time (see MatchReport).
+ *
+ * Only strategies that extend play.RoundStrategy can be driven this way.
+ */
+public final class LocalEngine {
+
+	/** Default milliseconds given to the strategies in every round. */
+	public static final long DEFAULT_ROUND_MILLIS = 1000;
+
+	/** Default maximum number of rounds of a game. */
+	public static final int DEFAULT_ROUNDS = 100;
+
+	/** Default probability to play another round. */
+	public static final double DEFAULT_CONTINUATION = 1;
+
+	private static final Log LOG = Log.get(LocalEngine.class);
+
+	private static final int LEFT = -1;
+
+	private final LocalGame game;
+	private final long roundMillis;
+	private final int maximumIterations;
+	private final double continuation;
+	private final long seed;
+	private PrintStream roundLog;
+	private GameMultiplexer multiplexer;
+
+	/**
+	 * @param game the game to play.
+	 * @param roundMillis the milliseconds given to the strategies in every
+	 * round.
+	 * @param maximumIterations the maximum number of rounds.
+	 * @param continuation the probability to play another round.
+	 * @param seed the seed of the random choices of the matches.
+	 */
+	public LocalEngine(LocalGame game, long roundMillis, int maximumIterations, double continuation, long seed) {
+		this.game = game;
+		this.roundMillis = roundMillis;
+		this.maximumIterations = maximumIterations;
+		this.continuation = continuation;
+		this.seed = seed;
+		this.roundLog = null;
+		this.multiplexer = null;
+	}
+
+	/**
+	 * @param out where a line per round is printed, null for none.
+	 */
+	public void setRoundLog(PrintStream out) {
+		this.roundLog = out;
+	}
+
+	/**
+	 * @param multiplexer the multiplexer the matches are played through,
+	 * null for one of their own with a slot per strategy.
+	 */
+	public void setMultiplexer(GameMultiplexer multiplexer) {
+		this.multiplexer = multiplexer;
+	}
+
+	/**
+	 * Plays a match. The strategies must be fresh instances; they are
+	 * attached to the GameTree of the game and ended with the match.
+	 * @param first a strategy.
+	 * @param second its opponent.
+	 * @return the report of the match.
+	 * @throws InterruptedException if the calling thread is interrupted.
+	 */
+	public MatchReport play(RoundStrategy first, RoundStrategy second) throws InterruptedException {
+		RoundStrategy[] strategies = { first, second };
+		MatchReport report = new MatchReport(first.getClass().getName(), second.getClass().getName());
+		GameMultiplexer multiplexer = this.multiplexer != null ? this.multiplexer : new GameMultiplexer(2);
+		GameMultiplexer.Game[] games = new GameMultiplexer.Game[2];
+		CompactGameTree tree = this.game.getTree();
+		StrategyKeys keys = this.game.getStrategyKeys();
+		double[] uniform = this.game.getLayout().uniform();
+		SplittableRandom random = new SplittableRandom(this.seed);
+		int[][] finals = { { -1, -1 }, { -1, -1 } };
+		int[][] scores = new int[2][4];
+		LocalPlayStrategy[] requests = new LocalPlayStrategy[2];
+		List<Future<Long>> futures = new ArrayList<Future<Long>>(2);
+		double[][] played = new double[2][];
+		long[] latency = new long[2];
+		long[] queued = new long[2];
+		boolean[] late = new boolean[2];
+		boolean[] invalid = new boolean[2];
+
+		try {
+			for(int i = 0; i < 2; i++)
+				games[i] = multiplexer.open(this.game.getFingerprint(), this.game.getSource(), strategies[i]);
+
+			for(int round = 0; round < this.maximumIterations; round++) {
+				if(round > 0 && random.nextDouble() >= this.continuation)
+					break;
+
+				long submitted = System.nanoTime();
+				futures.clear();
+				for(int i = 0; i < 2; i++) {
+					requests[i] = new LocalPlayStrategy(this.game, this.roundMillis, this.maximumIterations, this.continuation,
+							round == 0, finals[i][0], finals[i][1], scores[i]);
+					futures.add(games[i].submit(computation(strategies[i], requests[i])));
+				}
+
+				boolean over = false;
+				for(int i = 0; i < 2; i++) {
+					long end;
+					try {
+						end = await(futures.get(i), requests[i]);
+					} catch (TimeoutException e) {
+						futures.get(i).cancel(true);
+						end = System.nanoTime();
+						report.getPlayer(i).left(round);
+						over = true;
+					} catch (ExecutionException e) {
+						LOG.error(strategies[i].getClass().getName() + " failed.", e.getCause());
+						end = LEFT;
+					}
+					if(end == LEFT || requests[i].hasQuit()) {
+						report.getPlayer(i).left(round);
+						over = true;
+						end = System.nanoTime();
+					}
+					//A round that never got a slot spent all its time queueing
+					long granted = requests[i].getGranted() != -1 ? requests[i].getGranted() : end;
+					queued[i] = granted - submitted;
+					latency[i] = end - granted;
+					late[i] = end > requests[i].getDeadline() || requests[i].getGranted() == -1;
+					double[] s = requests[i].getStrategy();
+					invalid[i] = !late[i] && keys.invalidGroup(s) != -1; //NaN keys fail as well
+					played[i] = late[i] || invalid[i] ? uniform : s;
+				}
+
+				int asP1 = this.game.play(played[0], played[1], random);
+				int asP2 = this.game.play(played[1], played[0], random);
+				finals[0][0] = tree.nodeIndex(asP1);
+				finals[0][1] = tree.nodeIndex(asP2);
+				finals[1][0] = tree.nodeIndex(asP2);
+				finals[1][1] = tree.nodeIndex(asP1);
+				scores[0] = new int[] { tree.payoffP1(asP1), tree.payoffP2(asP1), tree.payoffP2(asP2), tree.payoffP1(asP2) };
+				scores[1] = new int[] { tree.payoffP1(asP2), tree.payoffP2(asP2), tree.payoffP2(asP1), tree.payoffP1(asP1) };
+				for(int i = 0; i < 2; i++)
+					report.getPlayer(i).record(latency[i], queued[i], late[i], invalid[i], scores[i][0] + scores[i][2]);
+				report.roundPlayed();
+
+				if(this.roundLog != null)
+					this.roundLog.println(String.format("Round %d: %s %.2f ms%s%s, %s %.2f ms%s%s", round,
+							report.getPlayer(0).getName(), latency[0] / 1e6, queueing(queued[0]), outcome(late[0], invalid[0]),
+							report.getPlayer(1).getName(), latency[1] / 1e6, queueing(queued[1]), outcome(late[1], invalid[1])));
+				if(over)
+					break;
+			}
+		} finally {
+			for(int i = 0; i < 2; i++) {
+				if(games[i] != null)
+					games[i].close();
+				else
+					strategies[i].endGame();
+			}
+		}
+		return report;
+	}
+
+	/**
+	 * Waits for a round: as long as it waits for a slot, then until one
+	 * round length after its deadline, which a late strategy gets to
+	 * finish.
+	 * @return the result of the computation of the round.
+	 * @throws TimeoutException if the strategy did not finish in time.
+	 */
+	private long await(Future<Long> future, LocalPlayStrategy request)
+			throws InterruptedException, ExecutionException, TimeoutException {
+		long roundNanos = this.roundMillis * 1000000L;
+		while(true) {
+			long granted = request.getGranted();
+			long timeout = granted == -1 ? roundNanos : granted + 2 * roundNanos - System.nanoTime();
+			try {
+				return future.get(timeout, TimeUnit.NANOSECONDS);
+			} catch (TimeoutException e) {
+				if(granted != -1)
+					throw e;
+			}
+		}
+	}
+
+	/**
+	 * The computation of a round on the thread of its game, which only
+	 * runs once the game holds a slot: that is when the clock of the round
+	 * starts.
+	 */
+	private static Callable<Long> computation(final RoundStrategy strategy, final LocalPlayStrategy request) {
+		return new Callable<Long>() {
+			@Override
+			public Long call() throws Exception {
+				request.start(System.nanoTime());
+				boolean playing = strategy.playRound(request, true);
+				return playing ? System.nanoTime() : LEFT;
+			}
+		};
+	}
+
+	private static String queueing(long queued) {
+		return queued >= 1000000L ? String.format(" (+%.2f ms queued)", queued / 1e6) : "";
+	}
+
+	private static String outcome(boolean late, boolean invalid) {
+		return late ? " (late)" : invalid ? " (invalid)" : "";
+	}
+
+	/**
+	 * Lists the strategies named in a Strategy.conf file that can be played
+	 * locally, reporting on System.err the ones that cannot.
+	 * @param conf the file.
+	 * @return the classes, in the order of the file.
+	 * @throws IOException if the file cannot be read.
+	 */
+	public static List<Class<? extends RoundStrategy>> strategies(String conf) throws IOException {
+		List<Class<? extends RoundStrategy>> classes = new ArrayList<Class<? extends RoundStrategy>>();
+		try(BufferedReader r = Files.newBufferedReader(Paths.get(conf), StandardCharsets.UTF_8)) {
+			String line;
+			while((line = r.readLine()) != null) {
+				line = line.trim();
+				if(line.isEmpty())
+					continue;
+				try {
+					Class<?> c = Class.forName(line);
+					if(RoundStrategy.class.isAssignableFrom(c))
+						classes.add(c.asSubclass(RoundStrategy.class));
+					else
+						System.err.println("Skipping " + line + ": it does not extend " + RoundStrategy.class.getName() + ".");
+				} catch (ClassNotFoundException e) {
+					System.err.println("Skipping " + line + ": class not found.");
+				}
+			}
+		}
+		return classes;
+	}
+
+	/**
+	 * Creates a fresh instance of a strategy.
+	 * @param c the class of the strategy.
+	 * @return the instance.
+	 * @throws IllegalArgumentException if c cannot be instantiated.
+	 */
+	public static RoundStrategy instantiate(Class<? extends RoundStrategy> c) {
+		try {
+			return c.getDeclaredConstructor().newInstance();
+		} catch (ReflectiveOperationException e) {
+			throw new IllegalArgumentException("Cannot create " + c.getName() + ": " + e, e);
+		}
+	}
+
+	/**
+	 * Plays a match between two strategies, by default the first two (or
+	 * the only one, against itself) of Strategy.conf that can be played
+	 * locally.
+	 * <pre>
+	 * LocalEngine [-game depth,branching,natureRatio | -snapshot file]
+	 *             [-rounds n] [-continue p] [-time ms] [-seed n] [-quiet]
+	 *             [strategy [strategy]]
+	 * </pre>
+	 */
+	public static void main(String[] args) throws Exception {
+		int depth = 6;
+		int branching = 3;
+		double natureRatio = 0.2;
+		String snapshot = null;
+		int rounds = DEFAULT_ROUNDS;
+		double continuation = DEFAULT_CONTINUATION;
+		long time = DEFAULT_ROUND_MILLIS;
+		long seed = 42;
+		boolean quiet = false;
+		List<String> names = new ArrayList<String>();
+		for(int i = 0; i < args.length; i++) {
+			if(args[i].equals("-game")) {
+				String[] g = args[++i].split(",");
+				depth = Integer.parseInt(g[0]);
+				branching = Integer.parseInt(g[1]);
+				natureRatio = Double.parseDouble(g[2]);
+			} else if(args[i].equals("-snapshot")) {
+				snapshot = args[++i];
+			} else if(args[i].equals("-rounds")) {
+				rounds = Integer.parseInt(args[++i]);
+			} else if(args[i].equals("-continue")) {
+				continuation = Double.parseDouble(args[++i]);
+			} else if(args[i].equals("-time")) {
+				time = Long.parseLong(args[++i]);
+			} else if(args[i].equals("-seed")) {
+				seed = Long.parseLong(args[++i]);
+			} else if(args[i].equals("-quiet")) {
+				quiet = true;
+			} else {
+				names.add(args[i]);
+			}
+		}
+
+		List<Class<? extends RoundStrategy>> classes = new ArrayList<Class<? extends RoundStrategy>>();
+		if(names.isEmpty()) {
+			classes = strategies("Strategy.conf");
+		} else {
+			for(String name: names)
+				classes.add(Class.forName(name).asSubclass(RoundStrategy.class));
+		}
+		if(classes.isEmpty()) {
+			System.err.println("No strategy to play.");
+			return;
+		}
+
+		LocalGame game = snapshot != null ? LocalGame.load(Paths.get(snapshot))
+				: new LocalGame(new SyntheticGame(depth, branching, natureRatio, seed));
+		LocalEngine engine = new LocalEngine(game, time, rounds, continuation, seed);
+		if(!quiet)
+			engine.setRoundLog(System.out);
+		MatchReport report = engine.play(instantiate(classes.get(0)), instantiate(classes.get(classes.size() > 1 ? 1 : 0)));
+		Log.flush(); //So that the report comes after the messages of the strategies
+		report.print(System.out);
+	}
+}
@@ -0,0 +1,191 @@
+package play.local;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+import gametree.CompactGameTree;
+import gametree.GameTree;
+import gametree.GameTreeFingerprint;
+import gametree.GameTreeSnapshot;
+import gametree.StrategyLayout;
+import play.StrategyKeys;
+import tree.GameTreeClass;
+
+/**
+ * A game played by the LocalEngine: the engine's tree handed to the
+ * strategies, its compact form used to play the rounds, and the strategy
+ * keys.
+ *
+ * The keys are derived from the tree as the server lists them: the
+ * labels of the moves of every information set, the information sets in
+ * the order a depth-first walk of the tree first reaches them. Player
+ * nodes whose moves were already listed belong to an information set
+ * seen before.
+ */
+public final class LocalGame {
+
+	private final GameTreeClass source;
+	private final CompactGameTree tree;
+	private final List<String> keys;
+	private final Map<String, Integer> positions;
+	private final StrategyLayout layout;
+	private final StrategyKeys strategyKeys;
+	private volatile long fingerprint;
+	private volatile boolean fingerprinted;
+
+	/**
+	 * @param source the game.
+	 * @throws IllegalArgumentException if the information sets of the tree
+	 * do not match its validation set.
+	 */
+	public LocalGame(GameTreeClass source) {
+		this(source, CompactGameTree.fromGameTreeClass(source));
+	}
+
+	private LocalGame(GameTreeClass source, CompactGameTree tree) {
+		this.source = source;
+		this.tree = tree;
+		List<Integer> groups = new ArrayList<Integer>();
+		this.keys = keysOf(tree, groups);
+		if(!groups.equals(tree.getValidationSet()))
+			throw new IllegalArgumentException("The information sets of the game " + groups
+					+ " do not match its validation set " + tree.getValidationSet() + ".");
+		this.positions = new HashMap<String, Integer>();
+		for(int i = 0; i < this.keys.size(); i++)
+			this.positions.put(this.keys.get(i), i);
+		this.layout = new StrategyLayout(tree, this.keys.iterator());
+		this.strategyKeys = new StrategyKeys(this.layout);
+		this.fingerprinted = false;
+	}
+
+	/**
+	 * @param file a snapshot written by GameTreeSnapshot.write().
+	 * @return the game stored in file.
+	 * @throws IOException if the snapshot cannot be read.
+	 */
+	public static LocalGame load(Path file) throws IOException {
+		CompactGameTree tree = GameTreeSnapshot.load(file);
+		return new LocalGame(new SnapshotGame(tree), tree);
+	}
+
+	private static List<String> keysOf(CompactGameTree tree, List<Integer> groups) {
+		List<String> keys = new ArrayList<String>();
+		Set<String> seen = new HashSet<String>();
+		int[] stack = new int[64];
+		int top = 0;
+		stack[top++] = tree.root();
+		while(top > 0) {
+			int n = stack[--top];
+			int count = tree.childCount(n);
+			if((tree.isPlayer1(n) || tree.isPlayer2(n)) && count > 0
+					&& !seen.contains(tree.label(tree.labelId(tree.firstChild(n))))) {
+				groups.add(count);
+				for(int k = 0; k < count; k++) {
+					String key = tree.label(tree.labelId(tree.child(n, k)));
+					seen.add(key);
+					keys.add(key);
+				}
+			}
+			if(top + count > stack.length)
+				stack = Arrays.copyOf(stack, Math.max(stack.length << 1, top + count));
+			for(int k = count - 1; k >= 0; k--)
+				stack[top++] = tree.child(n, k);
+		}
+		return keys;
+	}
+
+	/**
+	 * @return a new GameTree of the game, for one strategy.
+	 */
+	public GameTree newGameTree() {
+		return GameTree.fromGameTreeClass(this.source);
+	}
+
+	/**
+	 * @return the game as the engine hands it to the strategies.
+	 */
+	public GameTreeClass getSource() {
+		return this.source;
+	}
+
+	/**
+	 * @return the GameTreeFingerprint of the game, computed on first use.
+	 */
+	public long getFingerprint() {
+		if(!this.fingerprinted) {
+			this.fingerprint = GameTreeFingerprint.of(this.tree);
+			this.fingerprinted = true;
+		}
+		return this.fingerprint;
+	}
+
+	public CompactGameTree getTree() {
+		return this.tree;
+	}
+
+	/**
+	 * @return the keys, in the order of PlayStrategy.keyIterator().
+	 */
+	public List<String> getKeys() {
+		return this.keys;
+	}
+
+	/**
+	 * @return the position of key, -1 if it is not a key of this game.
+	 */
+	public int position(String key) {
+		Integer p = this.positions.get(key);
+		return p == null ? -1 : p.intValue();
+	}
+
+	public StrategyLayout getLayout() {
+		return this.layout;
+	}
+
+	public StrategyKeys getStrategyKeys() {
+		return this.strategyKeys;
+	}
+
+	/**
+	 * Plays the game once.
+	 * @param p1 the strategy of player 1, in key order.
+	 * @param p2 the strategy of player 2, in key order.
+	 * @param random the source of the random choices.
+	 * @return the id (in getTree()) of the terminal node reached.
+	 */
+	public int play(double[] p1, double[] p2, SplittableRandom random) {
+		int n = this.tree.root();
+		while(this.tree.childCount(n) > 0) {
+			double[] mover = this.tree.isPlayer1(n) ? p1 : this.tree.isPlayer2(n) ? p2 : null;
+			int first = this.tree.firstChild(n);
+			int end = first + this.tree.childCount(n);
+			double total = 0;
+			for(int c = first; c < end; c++)
+				total += probability(c, mover);
+			double u = random.nextDouble() * total;
+			int chosen = end - 1;
+			for(int c = first; c < end - 1; c++) {
+				u -= probability(c, mover);
+				if(u < 0) {
+					chosen = c;
+					break;
+				}
+			}
+			n = chosen;
+		}
+		return n;
+	}
+
+	private double probability(int node, double[] mover) {
+		int key = this.layout.edgeKey(node);
+		return key == StrategyLayout.NO_KEY || mover == null ? this.layout.edgeProbability(node) : mover[key];
+	}
+}
@@ -0,0 +1,174 @@
+package play.local;
+
+import java.util.Arrays;
+import java.util.Iterator;
+
+import gametree.GameTree;
+import play.PlayStrategyInterface;
+
+/**
+ * The request of one round handed by the LocalEngine to a strategy, in
+ * place of the engine's PlayStrategy. The probabilities put by the
+ * strategy are kept in key order, NaN standing for a key that was not
+ * set.
+ *
+ * The clock of the round starts when its game is granted a slot of the
+ * GameMultiplexer (see start()), not when the round is submitted: the
+ * time spent waiting for the slot is not charged to the strategy.
+ */
+public final class LocalPlayStrategy implements PlayStrategyInterface {
+
+	private final LocalGame game;
+	private final long roundNanos;
+	private volatile long granted;
+	private volatile long deadline;
+	private final int maximumIterations;
+	private final double continuation;
+	private final boolean firstRound;
+	private final int finalP1;
+	private final int finalP2;
+	private final int[] scores;
+	private final double[] strategy;
+	private volatile boolean quit;
+
+	/**
+	 * @param game the game being played.
+	 * @param roundMillis the milliseconds the strategy has from start().
+	 * @param maximumIterations the maximum number of rounds of the game.
+	 * @param continuation the probability to play another round.
+	 * @param firstRound true for the first round of the game.
+	 * @param finalP1 the index of the terminal node of the previous round as
+	 * player 1, -1 if there is none.
+	 * @param finalP2 the same, as player 2.
+	 * @param scores the scores of the previous round: own and opponent's as
+	 * player 1, own and opponent's as player 2.
+	 */
+	LocalPlayStrategy(LocalGame game, long roundMillis, int maximumIterations, double continuation, boolean firstRound,
+			int finalP1, int finalP2, int[] scores) {
+		this.game = game;
+		this.roundNanos = roundMillis * 1000000L;
+		this.granted = -1;
+		this.deadline = Long.MAX_VALUE;
+		this.maximumIterations = maximumIterations;
+		this.continuation = continuation;
+		this.firstRound = firstRound;
+		this.finalP1 = finalP1;
+		this.finalP2 = finalP2;
+		this.scores = scores;
+		this.strategy = new double[game.getKeys().size()];
+		Arrays.fill(this.strategy, Double.NaN);
+		this.quit = false;
+	}
+
+	/**
+	 * Starts the clock of the round, once its game holds a slot.
+	 * @param now the System.nanoTime() at which the slot was granted.
+	 */
+	void start(long now) {
+		this.deadline = now + this.roundNanos;
+		this.granted = now;
+	}
+
+	/**
+	 * @return the System.nanoTime() at which the clock started, -1 if the
+	 * round is still waiting for a slot.
+	 */
+	long getGranted() {
+		return this.granted;
+	}
+
+	/**
+	 * @return the System.nanoTime() by which the strategy is due,
+	 * Long.MAX_VALUE until the clock starts.
+	 */
+	long getDeadline() {
+		return this.deadline;
+	}
+
+	@Override
+	public long timeToExpire() {
+		return (this.deadline - System.nanoTime()) / 1000000L;
+	}
+
+	@Override
+	public double probabilityForNextIteration() {
+		return this.continuation;
+	}
+
+	@Override
+	public int getMaximumNumberOfIterations() {
+		return this.maximumIterations;
+	}
+
+	@Override
+	public boolean isFirstRound() {
+		return this.firstRound;
+	}
+
+	@Override
+	public void quitGame() {
+		this.quit = true;
+	}
+
+	boolean hasQuit() {
+		return this.quit;
+	}
+
+	/**
+	 * @throws IllegalArgumentException if key is not a key of the game or
+	 * value is not a probability.
+	 */
+	@Override
+	public Double put(String key, Double value) {
+		int p = this.game.position(key);
+		if(p == -1)
+			throw new IllegalArgumentException("Unknown information set " + key + ".");
+		if(value == null || !(value.doubleValue() >= 0 && value.doubleValue() <= 1))
+			throw new IllegalArgumentException("Invalid probability " + value + " for " + key + ".");
+		double previous = this.strategy[p];
+		this.strategy[p] = value.doubleValue();
+		return Double.isNaN(previous) ? null : Double.valueOf(previous);
+	}
+
+	@Override
+	public Iterator<String> keyIterator() {
+		return this.game.getKeys().iterator();
+	}
+
+	@Override
+	public int getFinalP1Node() {
+		return this.finalP1;
+	}
+
+	@Override
+	public int getFinalP2Node() {
+		return this.finalP2;
+	}
+
+	@Override
+	public int getLastRoundSelfScoreAsP1(GameTree t) {
+		return this.scores[0];
+	}
+
+	@Override
+	public int getLastRoundOpponentScoreAsP1(GameTree t) {
+		return this.scores[1];
+	}
+
+	@Override
+	public int getLastRoundSelfScoreAsP2(GameTree t) {
+		return this.scores[2];
+	}
+
+	@Override
+	public int getLastRoundOpponentScoreAsP2(GameTree t) {
+		return this.scores[3];
+	}
+
+	/**
+	 * @return the probabilities put so far, in key order (NaN if not set).
+	 */
+	double[] getStrategy() {
+		return this.strategy;
+	}
+}
@@ -0,0 +1,174 @@
+package play.local;
+
+import java.io.PrintStream;
+import java.util.Arrays;
+
+/**
+ * What happened in a match played by the LocalEngine: for each player,
+ * the time it took to deliver each round from the moment it got a slot,
+ * the time each round waited for the slot, the rounds it delivered late
+ * or invalid, and its score.
+ */
+public final class MatchReport {
+
+	/**
+	 * The record of one player.
+	 */
+	public static final class Player {
+
+		private final String name;
+		private long[] latencies;
+		private long[] queueing;
+		private int rounds;
+		private int late;
+		private int invalid;
+		private long score;
+		private int leftInRound;
+
+		Player(String name) {
+			this.name = name;
+			this.latencies = new long[16];
+			this.queueing = new long[16];
+			this.rounds = 0;
+			this.leftInRound = -1;
+		}
+
+		void record(long latency, long queued, boolean late, boolean invalid, int score) {
+			if(this.rounds == this.latencies.length) {
+				this.latencies = Arrays.copyOf(this.latencies, this.rounds << 1);
+				this.queueing = Arrays.copyOf(this.queueing, this.rounds << 1);
+			}
+			this.queueing[this.rounds] = queued;
+			this.latencies[this.rounds++] = latency;
+			if(late) this.late++;
+			if(invalid) this.invalid++;
+			this.score += score;
+		}
+
+		void left(int round) {
+			this.leftInRound = round;
+		}
+
+		public String getName() {
+			return this.name;
+		}
+
+		public int getRounds() {
+			return this.rounds;
+		}
+
+		/**
+		 * @return the number of rounds delivered after the deadline, or not
+		 * at all.
+		 */
+		public int getLate() {
+			return this.late;
+		}
+
+		/**
+		 * @return the number of rounds delivered in time with a strategy that
+		 * was incomplete or not a distribution.
+		 */
+		public int getInvalid() {
+			return this.invalid;
+		}
+
+		/**
+		 * @return the sum of the payoffs, as player 1 and as player 2.
+		 */
+		public long getScore() {
+			return this.score;
+		}
+
+		/**
+		 * @return the round in which the player left the game, -1 if it did
+		 * not.
+		 */
+		public int getLeftInRound() {
+			return this.leftInRound;
+		}
+
+		/**
+		 * @param round a round.
+		 * @return the nanoseconds the player took to deliver that round,
+		 * from the moment its game got a slot.
+		 */
+		public long getLatency(int round) {
+			return this.latencies[round];
+		}
+
+		/**
+		 * @param round a round.
+		 * @return the nanoseconds that round waited for a slot before its
+		 * clock started.
+		 */
+		public long getQueueing(int round) {
+			return this.queueing[round];
+		}
+
+		/**
+		 * @param q a fraction between 0 and 1.
+		 * @return the latency, in milliseconds, below which that fraction of
+		 * the rounds was delivered; 0 if there were no rounds.
+		 */
+		public double latencyPercentile(double q) {
+			return percentile(this.latencies, this.rounds, q);
+		}
+
+		/**
+		 * @param q a fraction between 0 and 1.
+		 * @return the queueing time, in milliseconds, below which that
+		 * fraction of the rounds got their slot; 0 if there were no rounds.
+		 */
+		public double queueingPercentile(double q) {
+			return percentile(this.queueing, this.rounds, q);
+		}
+
+		private static double percentile(long[] nanos, int n, double q) {
+			if(n == 0)
+				return 0;
+			long[] sorted = Arrays.copyOf(nanos, n);
+			Arrays.sort(sorted);
+			int i = (int) Math.ceil(q * n) - 1;
+			return sorted[Math.max(0, Math.min(n - 1, i))] / 1e6;
+		}
+	}
+
+	private final Player[] players;
+	private int rounds;
+
+	MatchReport(String first, String second) {
+		this.players = new Player[] { new Player(first), new Player(second) };
+		this.rounds = 0;
+	}
+
+	void roundPlayed() {
+		this.rounds++;
+	}
+
+	/**
+	 * @param i 0 for the first player, 1 for the second.
+	 */
+	public Player getPlayer(int i) {
+		return this.players[i];
+	}
+
+	public int getRounds() {
+		return this.rounds;
+	}
+
+	public void print(PrintStream out) {
+		out.println("Rounds played: " + this.rounds);
+		out.println(String.format("%-28s %8s %8s %10s %10s %10s %10s %12s %12s %6s %8s",
+				"Strategy", "Score", "Rounds", "p50 (ms)", "p95 (ms)", "p99 (ms)", "max (ms)", "queue p95",
+				"queue max", "Late", "Invalid"));
+		for(Player p: this.players) {
+			out.println(String.format("%-28s %8d %8d %10.2f %10.2f %10.2f %10.2f %12.2f %12.2f %6d %8d",
+					p.name, p.score, p.rounds, p.latencyPercentile(0.5), p.latencyPercentile(0.95),
+					p.latencyPercentile(0.99), p.latencyPercentile(1), p.queueingPercentile(0.95),
+					p.queueingPercentile(1), p.late, p.invalid));
+			if(p.leftInRound != -1)
+				out.println("  " + p.name + " left the game in round " + p.leftInRound + ".");
+		}
+	}
+}
@@ -0,0 +1,105 @@
+package play.local;
+
+import java.util.Collections;
+import java.util.List;
+
+import gametree.CompactGameTree;
+import tree.GameTreeClass;
+import tree.Node;
+
+/**
+ * Presents a CompactGameTree (for instance one loaded with
+ * GameTreeSnapshot.load()) as the engine's tree, so that GameTree and the
+ * strategies can read it as a game received from the server. The nodes
+ * are views created on demand.
+ */
+public final class SnapshotGame extends GameTreeClass {
+
+	private final CompactGameTree tree;
+	private final List<List<Integer>> possibilities;
+
+	public SnapshotGame(CompactGameTree tree) {
+		this.tree = tree;
+		this.possibilities = Collections.singletonList(tree.getValidationSet());
+	}
+
+	public CompactGameTree getTree() {
+		return this.tree;
+	}
+
+	@Override
+	public Node getCurrent() {
+		return new View(this.tree, this.tree.root());
+	}
+
+	@Override
+	public List<List<Integer>> getPosibilities() {
+		return this.possibilities;
+	}
+
+	private static final class View extends Node {
+
+		private final CompactGameTree tree;
+		private final int id;
+
+		View(CompactGameTree tree, int id) {
+			this.tree = tree;
+			this.id = id;
+		}
+
+		@Override
+		public Node[] getChildren() {
+			Node[] children = new Node[this.tree.childCount(this.id)];
+			for(int k = 0; k < children.length; k++)
+				children[k] = new View(this.tree, this.tree.child(this.id, k));
+			return children;
+		}
+
+		@Override
+		public double[] getChildrenWeight() {
+			double[] weight = new double[this.tree.childCount(this.id)];
+			for(int k = 0; k < weight.length; k++)
+				weight[k] = this.tree.weight(this.tree.child(this.id, k));
+			return weight;
+		}
+
+		/*
+		 * The engine keeps the labels of the edges to the children in the
+		 * parent, and the payoffs of a terminal node in the same place.
+		 */
+		@Override
+		public String[] getOutcome() {
+			int count = this.tree.childCount(this.id);
+			if(count == 0)
+				return new String[] { Integer.toString(this.tree.payoffP1(this.id)),
+						Integer.toString(this.tree.payoffP2(this.id)) };
+			String[] outcome = new String[count];
+			for(int k = 0; k < count; k++)
+				outcome[k] = this.tree.label(this.tree.labelId(this.tree.child(this.id, k)));
+			return outcome;
+		}
+
+		@Override
+		public String getLabel() {
+			if(this.tree.isRoot(this.id))
+				return this.tree.label(this.tree.labelId(this.id));
+			return this.tree.label(this.tree.outcomeId(this.id));
+		}
+
+		@Override
+		public int getValue() {
+			return this.tree.nodeIndex(this.id);
+		}
+
+		@Override
+		public String getType() {
+			switch(this.tree.kind(this.id)) {
+			case CompactGameTree.KIND_TERMINAL: return "t";
+			case CompactGameTree.KIND_NATURE: return "c";
+			case CompactGameTree.KIND_PLAYER1: return "P1";
+			case CompactGameTree.KIND_PLAYER2: return "P2";
+			default: return "";
+			}
+		}
+	}
+}
@@ -0,0 +1,158 @@
+package play.local;
+
+import java.io.PrintStream;
+import java.util.List;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import play.RoundStrategy;
+
+/**
+ * Results of a Tournament, added up while its matches run. Every counter
+ * is a LongAdder (or a LongAccumulator for maxima), so matches finishing
+ * at the same time never wait on each other.
+ */
+public final class Standings {
+
+	private final String[] names;
+	private final LongAdder[] score;
+	private final LongAdder[] games;
+	private final LongAdder[] wins;
+	private final LongAdder[] draws;
+	private final LongAdder[] rounds;
+	private final LongAdder[] late;
+	private final LongAdder[] invalid;
+	private final LongAdder[] left;
+	private final LongAdder[] latency;
+	private final LongAccumulator[] maxLatency;
+	private final LongAdder[] queueing;
+	//Score of the row strategy against the column strategy
+	private final LongAdder[][] against;
+	private final LongAdder failed;
+
+	Standings(List<Class<? extends RoundStrategy>> strategies) {
+		int n = strategies.size();
+		this.names = new String[n];
+		for(int i = 0; i < n; i++)
+			this.names[i] = strategies.get(i).getName();
+		this.score = adders(n);
+		this.games = adders(n);
+		this.wins = adders(n);
+		this.draws = adders(n);
+		this.rounds = adders(n);
+		this.late = adders(n);
+		this.invalid = adders(n);
+		this.left = adders(n);
+		this.latency = adders(n);
+		this.maxLatency = new LongAccumulator[n];
+		this.queueing = adders(n);
+		this.against = new LongAdder[n][];
+		for(int i = 0; i < n; i++) {
+			this.maxLatency[i] = new LongAccumulator(Math::max, 0);
+			this.against[i] = adders(n);
+		}
+		this.failed = new LongAdder();
+	}
+
+	private static LongAdder[] adders(int n) {
+		LongAdder[] a = new LongAdder[n];
+		for(int i = 0; i < n; i++)
+			a[i] = new LongAdder();
+		return a;
+	}
+
+	/**
+	 * Adds the outcome of a game between strategies i and j.
+	 */
+	void add(int i, int j, MatchReport report) {
+		int[] s = { i, j };
+		long first = report.getPlayer(0).getScore();
+		long second = report.getPlayer(1).getScore();
+		for(int p = 0; p < 2; p++) {
+			MatchReport.Player player = report.getPlayer(p);
+			int k = s[p];
+			long own = p == 0 ? first : second;
+			long other = p == 0 ? second : first;
+			this.score[k].add(own);
+			this.against[k][s[1 - p]].add(own);
+			this.games[k].increment();
+			if(own > other) this.wins[k].increment();
+			else if(own == other) this.draws[k].increment();
+			this.rounds[k].add(player.getRounds());
+			this.late[k].add(player.getLate());
+			this.invalid[k].add(player.getInvalid());
+			if(player.getLeftInRound() != -1) this.left[k].increment();
+			for(int r = 0; r < player.getRounds(); r++) {
+				this.latency[k].add(player.getLatency(r));
+				this.maxLatency[k].accumulate(player.getLatency(r));
+				this.queueing[k].add(player.getQueueing(r));
+			}
+		}
+	}
+
+	void failed() {
+		this.failed.increment();
+	}
+
+	public int size() {
+		return this.names.length;
+	}
+
+	public String getName(int i) {
+		return this.names[i];
+	}
+
+	public long getScore(int i) {
+		return this.score[i].sum();
+	}
+
+	public long getGames(int i) {
+		return this.games[i].sum();
+	}
+
+	public long getWins(int i) {
+		return this.wins[i].sum();
+	}
+
+	/**
+	 * @return the total score of strategy i in its games against strategy j.
+	 */
+	public long getScoreAgainst(int i, int j) {
+		return this.against[i][j].sum();
+	}
+
+	/**
+	 * @return the number of games that could not be played.
+	 */
+	public long getFailed() {
+		return this.failed.sum();
+	}
+
+	public void print(PrintStream out) {
+		out.println(String.format("%-28s %6s %6s %6s %10s %8s %10s %10s %12s %6s %8s %5s",
+				"Strategy", "Games", "Wins", "Draws", "Score", "Rounds", "mean (ms)", "max (ms)", "queued (ms)",
+				"Late", "Invalid", "Left"));
+		for(int i = 0; i < this.names.length; i++) {
+			long r = this.rounds[i].sum();
+			out.println(String.format("%-28s %6d %6d %6d %10d %8d %10.2f %10.2f %12.2f %6d %8d %5d",
+					this.names[i], this.games[i].sum(), this.wins[i].sum(), this.draws[i].sum(), this.score[i].sum(), r,
+					r == 0 ? 0 : this.latency[i].sum() / 1e6 / r, this.maxLatency[i].get() / 1e6,
+					r == 0 ? 0 : this.queueing[i].sum() / 1e6 / r,
+					this.late[i].sum(), this.invalid[i].sum(), this.left[i].sum()));
+		}
+		out.println();
+		out.println("Score of each strategy (rows) against each opponent (columns):");
+		StringBuilder header = new StringBuilder(String.format("%-28s", ""));
+		for(int j = 0; j < this.names.length; j++)
+			header.append(String.format(" %10s", "#" + j));
+		out.println(header);
+		for(int i = 0; i < this.names.length; i++) {
+			StringBuilder row = new StringBuilder(String.format("%-28s", "#" + i + " " + this.names[i]));
+			for(int j = 0; j < this.names.length; j++)
+				row.append(String.format(" %10d", this.against[i][j].sum()));
+			out.println(row);
+		}
+		if(this.failed.sum() > 0)
+			out.println(this.failed.sum() + " games could not be played.");
+	}
+}
@@ -0,0 +1,165 @@
+package play.local;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import tree.GameTreeClass;
+import tree.Node;
+
+/**
+ * Random game trees with the shape of the ones sent by the game engine,
+ * for the benchmarks and the local engine.
+ *
+ * Every inner node has the same number of children and every leaf is at
+ * the same depth. Each inner node is a nature node with probability
+ * natureRatio and a player node otherwise, players alternating with the
+ * depth. The moves of every player node form a group of their own in the
+ * validation set, and getKeys() gives the keys in the order the engine
+ * would list them.
+ *
+ * The engine classes are only extended through their public getters, so
+ * GameTree and CompactGameTree read these trees exactly as the ones
+ * received from the server.
+ */
+public final class SyntheticGame extends GameTreeClass {
+
+	private final SyntheticNode root;
+	private final List<List<Integer>> possibilities;
+	private final List<String> keys;
+	private final int size;
+
+	/**
+	 * @param depth the depth of the leaves (the root is at depth 0).
+	 * @param branching the number of children of every inner node.
+	 * @param natureRatio the probability that an inner node is a nature node.
+	 * @param seed the seed of the generator.
+	 */
+	public SyntheticGame(int depth, int branching, double natureRatio, long seed) {
+		SplittableRandom random = new SplittableRandom(seed);
+		List<Integer> groups = new ArrayList<Integer>();
+		this.keys = new ArrayList<String>();
+		int[] counter = { 1 };
+		this.root = build(0, depth, branching, natureRatio, random, groups, counter);
+		this.size = counter[0] - 1;
+		this.possibilities = Collections.singletonList(groups);
+	}
+
+	/**
+	 * @param nodes the approximate number of nodes wanted.
+	 * @param branching the number of children of every inner node.
+	 * @return the smallest depth whose complete tree has at least that many
+	 * nodes.
+	 */
+	public static int depthFor(long nodes, int branching) {
+		int depth = 0;
+		long total = 1;
+		long level = 1;
+		while(total < nodes) {
+			level *= branching;
+			total += level;
+			depth++;
+		}
+		return depth;
+	}
+
+	private SyntheticNode build(int d, int depth, int branching, double natureRatio, SplittableRandom random,
+			List<Integer> groups, int[] counter) {
+		int value = counter[0]++;
+		if(d == depth)
+			return new SyntheticNode("t", value, "z",
+					new String[] { Integer.toString(random.nextInt(10)), Integer.toString(random.nextInt(10)) },
+					new SyntheticNode[0], new double[0]);
+		boolean nature = random.nextDouble() < natureRatio;
+		String type = nature ? "c" : (d % 2 == 0 ? "P1" : "P2");
+		String[] outcome = new String[branching];
+		double[] weight = new double[branching];
+		SyntheticNode[] children = new SyntheticNode[branching];
+		if(!nature)
+			groups.add(branching);
+		for(int k = 0; k < branching; k++) {
+			outcome[k] = "m" + value + "_" + k;
+			weight[k] = nature ? 1.0 / branching : 0;
+			if(!nature)
+				this.keys.add(outcome[k]);
+		}
+		for(int k = 0; k < branching; k++)
+			children[k] = build(d + 1, depth, branching, natureRatio, random, groups, counter);
+		return new SyntheticNode(type, value, "n" + value, outcome, children, weight);
+	}
+
+	@Override
+	public Node getCurrent() {
+		return this.root;
+	}
+
+	@Override
+	public List<List<Integer>> getPosibilities() {
+		return this.possibilities;
+	}
+
+	/**
+	 * @return the strategy keys, in the order of PlayStrategy.keyIterator().
+	 */
+	public Iterator<String> getKeys() {
+		return this.keys.iterator();
+	}
+
+	/**
+	 * @return the number of nodes; their indexes are 1 to size().
+	 */
+	public int size() {
+		return this.size;
+	}
+
+	private static final class SyntheticNode extends Node {
+
+		private final String type;
+		private final int value;
+		private final String label;
+		private final String[] outcome;
+		private final SyntheticNode[] children;
+		private final double[] weight;
+
+		SyntheticNode(String type, int value, String label, String[] outcome, SyntheticNode[] children, double[] weight) {
+			this.type = type;
+			this.value = value;
+			this.label = label;
+			this.outcome = outcome;
+			this.children = children;
+			this.weight = weight;
+		}
+
+		@Override
+		public Node[] getChildren() {
+			return this.children;
+		}
+
+		@Override
+		public double[] getChildrenWeight() {
+			return this.weight;
+		}
+
+		@Override
+		public String[] getOutcome() {
+			return this.outcome;
+		}
+
+		@Override
+		public String getLabel() {
+			return this.label;
+		}
+
+		@Override
+		public int getValue() {
+			return this.value;
+		}
+
+		@Override
+		public String getType() {
+			return this.type;
+		}
+	}
+}
@@ -0,0 +1,209 @@
+package play.local;
+
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import log.Log;
+import play.GameMultiplexer;
+import play.RoundStrategy;
+
+/**
+ * Round-robin tournament between strategies played with the LocalEngine:
+ * every pair of strategies plays a number of games (matches of several
+ * rounds, ended as the server ends them by the maximum number of
+ * iterations and the probability for the next iteration), each strategy
+ * as player 1 and as player 2 in every round.
+ *
+ * The games run concurrently on a ForkJoinPool, each with fresh instances
+ * of both strategies, and their results are added to the Standings as
+ * they finish. Game g of every pairing is played with the same seed, so
+ * all pairings see the same sequence of random choices. All the games are
+ * played through one GameMultiplexer: the strategies share a single
+ * GameTree of the game, and the rounds of all the games share its slots
+ * fairly.
+ */
+public final class Tournament {
+
+	private static final Log LOG = Log.get(Tournament.class);
+
+	/** Default number of games of every pairing. */
+	public static final int DEFAULT_GAMES = 10;
+
+	private final LocalGame game;
+	private final List<Class<? extends RoundStrategy>> strategies;
+	private final int games;
+	private final long roundMillis;
+	private final int maximumIterations;
+	private final double continuation;
+	private final long[] seeds;
+
+	/**
+	 * @param game the game to play.
+	 * @param strategies the strategies; a single one plays against itself.
+	 * @param games the number of games of every pairing.
+	 * @param roundMillis the milliseconds given to the strategies in every
+	 * round.
+	 * @param maximumIterations the maximum number of rounds of a game.
+	 * @param continuation the probability to play another round.
+	 * @param seed the seed of the random choices of the games.
+	 */
+	public Tournament(LocalGame game, List<Class<? extends RoundStrategy>> strategies, int games, long roundMillis,
+			int maximumIterations, double continuation, long seed) {
+		if(strategies.isEmpty())
+			throw new IllegalArgumentException("No strategy to play.");
+		this.game = game;
+		this.strategies = new ArrayList<Class<? extends RoundStrategy>>(strategies);
+		this.games = games;
+		this.roundMillis = roundMillis;
+		this.maximumIterations = maximumIterations;
+		this.continuation = continuation;
+		this.seeds = new long[games];
+		SplittableRandom random = new SplittableRandom(seed);
+		for(int g = 0; g < games; g++)
+			this.seeds[g] = random.nextLong();
+	}
+
+	/**
+	 * Plays every game of the tournament, computing as many rounds at a
+	 * time as there are processors.
+	 * @param pool the pool the games run on.
+	 * @return the standings.
+	 * @throws InterruptedException if the calling thread is interrupted.
+	 */
+	public Standings play(ForkJoinPool pool) throws InterruptedException {
+		return play(pool, new GameMultiplexer(Runtime.getRuntime().availableProcessors()));
+	}
+
+	/**
+	 * Plays every game of the tournament and waits for them to finish.
+	 * A game that fails is logged as an error and counted in
+	 * Standings.getFailed().
+	 * @param pool the pool the games run on. Every game also runs its two
+	 * strategies on threads of its own.
+	 * @param multiplexer the multiplexer the strategies play through.
+	 * @return the standings.
+	 * @throws InterruptedException if the calling thread is interrupted.
+	 */
+	public Standings play(ForkJoinPool pool, GameMultiplexer multiplexer) throws InterruptedException {
+		final Standings standings = new Standings(this.strategies);
+		List<Callable<Void>> matches = new ArrayList<Callable<Void>>();
+		int n = this.strategies.size();
+		for(int i = 0; i < n; i++)
+			for(int j = n == 1 ? i : i + 1; j < n; j++)
+				for(int g = 0; g < this.games; g++)
+					matches.add(match(standings, multiplexer, i, j, this.seeds[g]));
+
+		for(Future<Void> f: pool.invokeAll(matches)) {
+			try {
+				f.get();
+			} catch (ExecutionException e) {
+				if(e.getCause() instanceof InterruptedException)
+					throw (InterruptedException) e.getCause();
+				standings.failed();
+				LOG.error("A game failed.", e.getCause());
+			}
+		}
+		return standings;
+	}
+
+	private Callable<Void> match(final Standings standings, final GameMultiplexer multiplexer, final int i, final int j,
+			final long seed) {
+		return new Callable<Void>() {
+			@Override
+			public Void call() throws Exception {
+				LocalEngine engine = new LocalEngine(game, roundMillis, maximumIterations, continuation, seed);
+				engine.setMultiplexer(multiplexer);
+				MatchReport report = engine.play(LocalEngine.instantiate(strategies.get(i)),
+						LocalEngine.instantiate(strategies.get(j)));
+				standings.add(i, j, report);
+				return null;
+			}
+		};
+	}
+
+	/**
+	 * Plays a tournament between the strategies given, by default all the
+	 * strategies of Strategy.conf that can be played locally.
+	 * <pre>
+	 * Tournament [-game depth,branching,natureRatio | -snapshot file]
+	 *            [-games n] [-parallel n] [-slots n] [-rounds n]
+	 *            [-continue p] [-time ms] [-seed n] [strategy ...]
+	 * </pre>
+	 * By default half as many games as there are processors are played at
+	 * a time, since every game runs two strategies, and as many rounds as
+	 * there are processors are computed at a time (-slots).
+	 */
+	public static void main(String[] args) throws Exception {
+		int depth = 6;
+		int branching = 3;
+		double natureRatio = 0.2;
+		String snapshot = null;
+		int games = DEFAULT_GAMES;
+		int parallel = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+		int slots = Runtime.getRuntime().availableProcessors();
+		int rounds = LocalEngine.DEFAULT_ROUNDS;
+		double continuation = LocalEngine.DEFAULT_CONTINUATION;
+		long time = LocalEngine.DEFAULT_ROUND_MILLIS;
+		long seed = 42;
+		List<String> names = new ArrayList<String>();
+		for(int i = 0; i < args.length; i++) {
+			if(args[i].equals("-game")) {
+				String[] g = args[++i].split(",");
+				depth = Integer.parseInt(g[0]);
+				branching = Integer.parseInt(g[1]);
+				natureRatio = Double.parseDouble(g[2]);
+			} else if(args[i].equals("-snapshot")) {
+				snapshot = args[++i];
+			} else if(args[i].equals("-games")) {
+				games = Integer.parseInt(args[++i]);
+			} else if(args[i].equals("-parallel")) {
+				parallel = Integer.parseInt(args[++i]);
+			} else if(args[i].equals("-slots")) {
+				slots = Integer.parseInt(args[++i]);
+			} else if(args[i].equals("-rounds")) {
+				rounds = Integer.parseInt(args[++i]);
+			} else if(args[i].equals("-continue")) {
+				continuation = Double.parseDouble(args[++i]);
+			} else if(args[i].equals("-time")) {
+				time = Long.parseLong(args[++i]);
+			} else if(args[i].equals("-seed")) {
+				seed = Long.parseLong(args[++i]);
+			} else {
+				names.add(args[i]);
+			}
+		}
+
+		List<Class<? extends RoundStrategy>> classes = new ArrayList<Class<? extends RoundStrategy>>();
+		if(names.isEmpty()) {
+			classes = LocalEngine.strategies("Strategy.conf");
+		} else {
+			for(String name: names)
+				classes.add(Class.forName(name).asSubclass(RoundStrategy.class));
+		}
+		if(classes.isEmpty()) {
+			System.err.println("No strategy to play.");
+			return;
+		}
+
+		LocalGame game = snapshot != null ? LocalGame.load(Paths.get(snapshot))
+				: new LocalGame(new SyntheticGame(depth, branching, natureRatio, seed));
+		Tournament tournament = new Tournament(game, classes, games, time, rounds, continuation, seed);
+		ForkJoinPool pool = new ForkJoinPool(parallel);
+		try {
+			long start = System.nanoTime();
+			Standings standings = tournament.play(pool, new GameMultiplexer(slots));
+			Log.flush(); //So that the standings come after the messages of the strategies
+			System.out.println(String.format("Tournament of %d games per pairing played in %.1f s.", games,
+					(System.nanoTime() - start) / 1e9));
+			standings.print(System.out);
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+}
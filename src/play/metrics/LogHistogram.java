@@ -0,0 +1,118 @@
+package play.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histogram of non-negative long values (typically nanoseconds) in
+ * logarithmic buckets: every power of two is split in four buckets, so a
+ * value is known within 25% whatever its magnitude, in a fixed array of
+ * BUCKETS counters.
+ *
+ * Recording a value is a few arithmetic operations and an atomic
+ * increment, and can be done from any thread while others read the
+ * histogram; the values read are then only approximately consistent with
+ * each other.
+ */
+public final class LogHistogram {
+
+	/** Number of buckets, enough for any non-negative long. */
+	public static final int BUCKETS = 248;
+
+	private final AtomicLongArray counts;
+	private final AtomicLong count;
+	private final AtomicLong sum;
+	private final AtomicLong max;
+
+	public LogHistogram() {
+		this.counts = new AtomicLongArray(BUCKETS);
+		this.count = new AtomicLong();
+		this.sum = new AtomicLong();
+		this.max = new AtomicLong();
+	}
+
+	/**
+	 * @param value a value; negative values are recorded as 0.
+	 */
+	public void record(long value) {
+		if(value < 0)
+			value = 0;
+		this.counts.getAndIncrement(bucket(value));
+		this.count.getAndIncrement();
+		this.sum.getAndAdd(value);
+		long m;
+		while(value > (m = this.max.get()) && !this.max.compareAndSet(m, value)) {
+		}
+	}
+
+	static int bucket(long value) {
+		if(value < 4)
+			return (int) value;
+		int e = 63 - Long.numberOfLeadingZeros(value);
+		return ((e - 1) << 2) + (int) ((value >>> (e - 2)) & 3);
+	}
+
+	/**
+	 * @return the largest value that falls in bucket b.
+	 */
+	static long upperBound(int b) {
+		if(b < 4)
+			return b;
+		int e = (b >> 2) + 1;
+		long lower = (long) (4 + (b & 3)) << (e - 2);
+		return lower + (1L << (e - 2)) - 1;
+	}
+
+	public long getCount() {
+		return this.count.get();
+	}
+
+	public long getSum() {
+		return this.sum.get();
+	}
+
+	public long getMax() {
+		return this.max.get();
+	}
+
+	/**
+	 * @return the mean of the values, 0 if there are none.
+	 */
+	public double getMean() {
+		long n = this.count.get();
+		return n == 0 ? 0 : (double) this.sum.get() / n;
+	}
+
+	/**
+	 * @param q a fraction between 0 and 1.
+	 * @return an upper bound, within 25%, of the value below which that
+	 * fraction of the values lies; 0 if there are no values.
+	 */
+	public long getPercentile(double q) {
+		long n = 0;
+		long[] c = new long[BUCKETS];
+		for(int b = 0; b < BUCKETS; b++)
+			n += c[b] = this.counts.get(b);
+		if(n == 0)
+			return 0;
+		long rank = Math.max(1, (long) Math.ceil(q * n));
+		long seen = 0;
+		for(int b = 0; b < BUCKETS; b++) {
+			seen += c[b];
+			if(seen >= rank)
+				return Math.min(upperBound(b), this.max.get());
+		}
+		return this.max.get();
+	}
+
+	/**
+	 * Forgets every value recorded.
+	 */
+	public void reset() {
+		for(int b = 0; b < BUCKETS; b++)
+			this.counts.set(b, 0);
+		this.count.set(0);
+		this.sum.set(0);
+		this.max.set(0);
+	}
+}
@@ -0,0 +1,145 @@
+package play.metrics;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import log.Log;
+
+/**
+ * Reports the registered RoundMetrics as configured by system properties:
+ * <ul>
+ * <li>FILE_PROPERTY: a file where a line per strategy is appended every
+ * PERIOD_PROPERTY seconds (10 by default) and when the metrics are
+ * unregistered;</li>
+ * <li>JMX_PROPERTY: if "true", every RoundMetrics is also registered in
+ * the platform MBean server as play:type=RoundMetrics,name=...,id=....</li>
+ * </ul>
+ * Without them, metrics are still recorded, but not reported.
+ */
+public final class MetricsReporter {
+
+	private static final Log LOG = Log.get(MetricsReporter.class);
+
+	/** Name of the system property with the file of the snapshots. */
+	public static final String FILE_PROPERTY = "strategy.metrics.file";
+
+	/** Name of the system property with the seconds between snapshots. */
+	public static final String PERIOD_PROPERTY = "strategy.metrics.period";
+
+	/** Name of the system property that enables JMX when "true". */
+	public static final String JMX_PROPERTY = "strategy.metrics.jmx";
+
+	private static final MetricsReporter INSTANCE = new MetricsReporter(System.getProperty(FILE_PROPERTY),
+			Long.getLong(PERIOD_PROPERTY, 10), Boolean.getBoolean(JMX_PROPERTY));
+
+	private final Path file;
+	private final long period;
+	private final boolean jmx;
+	private final Map<RoundMetrics, ObjectName> registered;
+	private final AtomicInteger ids;
+	private ScheduledExecutorService timer;
+
+	private MetricsReporter(String file, long period, boolean jmx) {
+		this.file = file == null ? null : Paths.get(file);
+		this.period = Math.max(1, period);
+		this.jmx = jmx;
+		this.registered = new IdentityHashMap<RoundMetrics, ObjectName>();
+		this.ids = new AtomicInteger();
+		this.timer = null;
+	}
+
+	static MetricsReporter get() {
+		return INSTANCE;
+	}
+
+	synchronized void add(RoundMetrics m) {
+		ObjectName name = null;
+		if(this.jmx) {
+			try {
+				name = new ObjectName("play:type=RoundMetrics,name=" + ObjectName.quote(m.getStrategy())
+						+ ",id=" + this.ids.incrementAndGet());
+				ManagementFactory.getPlatformMBeanServer().registerMBean(m, name);
+			} catch (JMException e) {
+				LOG.error("Cannot register the metrics of {} in JMX.", m.getStrategy(), e);
+				name = null;
+			}
+		}
+		this.registered.put(m, name);
+		if(this.file != null && this.timer == null) {
+			this.timer = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+				@Override
+				public Thread newThread(Runnable r) {
+					Thread t = new Thread(r, "metrics-reporter");
+					t.setDaemon(true);
+					return t;
+				}
+			});
+			this.timer.scheduleAtFixedRate(new Runnable() {
+				@Override
+				public void run() {
+					report();
+				}
+			}, this.period, this.period, TimeUnit.SECONDS);
+		}
+	}
+
+	synchronized void remove(RoundMetrics m) {
+		if(!this.registered.containsKey(m))
+			return;
+		ObjectName name = this.registered.remove(m);
+		if(name != null) {
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			try {
+				server.unregisterMBean(name);
+			} catch (JMException e) {
+				LOG.error("Cannot unregister {}.", name, e);
+			}
+		}
+		List<RoundMetrics> last = new ArrayList<RoundMetrics>(1);
+		last.add(m);
+		write(last);
+	}
+
+	private void report() {
+		List<RoundMetrics> metrics;
+		synchronized(this) {
+			metrics = new ArrayList<RoundMetrics>(this.registered.keySet());
+		}
+		write(metrics);
+	}
+
+	private void write(List<RoundMetrics> metrics) {
+		if(this.file == null || metrics.isEmpty())
+			return;
+		String now = String.format("%tFT%<tT", new Date());
+		List<String> lines = new ArrayList<String>(metrics.size());
+		for(RoundMetrics m: metrics)
+			lines.add(now + " " + m);
+		try {
+			synchronized(this.file) {
+				Files.write(this.file, lines, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+			}
+		} catch (IOException e) {
+			LOG.error("Cannot write the metrics to {}.", this.file, e);
+		}
+	}
+}
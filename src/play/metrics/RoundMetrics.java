@@ -0,0 +1,179 @@
+package play.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * How a strategy copes with the round deadlines: for every round, the
+ * time it takes from receiving the request to delivering the strategy,
+ * the time left (PlayStrategy.timeToExpire()) when the request arrives
+ * and when the strategy is delivered, the deliveries retried after an
+ * InvalidStrategyException and the deliveries made after the deadline.
+ *
+ * Recording a round costs a few atomic increments, so metrics can be left
+ * on. Metrics made by register() are reported periodically, see
+ * MetricsReporter.
+ */
+public final class RoundMetrics implements RoundMetricsMBean {
+
+	private final String strategy;
+	//Nanoseconds
+	private final LogHistogram computeTime;
+	//Milliseconds, as returned by timeToExpire()
+	private final LogHistogram timeToExpireAtArrival;
+	private final LogHistogram timeToExpireAtSubmission;
+	private final LongAdder rounds;
+	private final LongAdder retries;
+	private final LongAdder misses;
+
+	/**
+	 * Creates metrics that are not reported.
+	 * @param strategy the name of the strategy measured.
+	 */
+	public RoundMetrics(String strategy) {
+		this.strategy = strategy;
+		this.computeTime = new LogHistogram();
+		this.timeToExpireAtArrival = new LogHistogram();
+		this.timeToExpireAtSubmission = new LogHistogram();
+		this.rounds = new LongAdder();
+		this.retries = new LongAdder();
+		this.misses = new LongAdder();
+	}
+
+	/**
+	 * Creates metrics reported by MetricsReporter until unregister() is
+	 * called.
+	 * @param strategy the name of the strategy measured.
+	 */
+	public static RoundMetrics register(String strategy) {
+		RoundMetrics m = new RoundMetrics(strategy);
+		MetricsReporter.get().add(m);
+		return m;
+	}
+
+	/**
+	 * Stops reporting these metrics, reporting them one last time.
+	 */
+	public void unregister() {
+		MetricsReporter.get().remove(this);
+	}
+
+	/**
+	 * Records the arrival of a request.
+	 * @param timeToExpire the milliseconds left to deliver it.
+	 * @return the time of arrival, to be passed to submitted().
+	 */
+	public long arrived(long timeToExpire) {
+		this.timeToExpireAtArrival.record(timeToExpire);
+		this.rounds.increment();
+		return System.nanoTime();
+	}
+
+	/**
+	 * Records the delivery of a strategy; a request delivered again after
+	 * a retry is recorded again.
+	 * @param arrival the value returned by arrived() for its request.
+	 * @param timeToExpire the milliseconds left when it is delivered.
+	 */
+	public void submitted(long arrival, long timeToExpire) {
+		this.computeTime.record(System.nanoTime() - arrival);
+		this.timeToExpireAtSubmission.record(timeToExpire);
+		if(timeToExpire <= 0)
+			this.misses.increment();
+	}
+
+	/**
+	 * Records a delivery rejected with an InvalidStrategyException.
+	 */
+	public void retried() {
+		this.retries.increment();
+	}
+
+	public LogHistogram getComputeTime() {
+		return this.computeTime;
+	}
+
+	public LogHistogram getTimeToExpireAtArrival() {
+		return this.timeToExpireAtArrival;
+	}
+
+	public LogHistogram getTimeToExpireAtSubmission() {
+		return this.timeToExpireAtSubmission;
+	}
+
+	@Override
+	public String getStrategy() {
+		return this.strategy;
+	}
+
+	@Override
+	public long getRounds() {
+		return this.rounds.sum();
+	}
+
+	@Override
+	public long getRetries() {
+		return this.retries.sum();
+	}
+
+	@Override
+	public long getDeadlineMisses() {
+		return this.misses.sum();
+	}
+
+	@Override
+	public double getComputeTimeMean() {
+		return this.computeTime.getMean() / 1e6;
+	}
+
+	@Override
+	public double getComputeTimeP50() {
+		return this.computeTime.getPercentile(0.5) / 1e6;
+	}
+
+	@Override
+	public double getComputeTimeP99() {
+		return this.computeTime.getPercentile(0.99) / 1e6;
+	}
+
+	@Override
+	public double getComputeTimeMax() {
+		return this.computeTime.getMax() / 1e6;
+	}
+
+	@Override
+	public double getTimeToExpireAtArrivalP50() {
+		return this.timeToExpireAtArrival.getPercentile(0.5);
+	}
+
+	@Override
+	public double getTimeToExpireAtSubmissionP1() {
+		return this.timeToExpireAtSubmission.getPercentile(0.01);
+	}
+
+	@Override
+	public double getTimeToExpireAtSubmissionP50() {
+		return this.timeToExpireAtSubmission.getPercentile(0.5);
+	}
+
+	@Override
+	public void reset() {
+		this.computeTime.reset();
+		this.timeToExpireAtArrival.reset();
+		this.timeToExpireAtSubmission.reset();
+		this.rounds.reset();
+		this.retries.reset();
+		this.misses.reset();
+	}
+
+	/**
+	 * @return the metrics on one line, times in milliseconds.
+	 */
+	@Override
+	public String toString() {
+		return String.format("%s rounds=%d retries=%d misses=%d compute(mean/p50/p99/max)=%.2f/%.2f/%.2f/%.2f"
+				+ " timeToExpire(arrival p50)=%.0f timeToExpire(submission p1/p50)=%.0f/%.0f",
+				this.strategy, getRounds(), getRetries(), getDeadlineMisses(), getComputeTimeMean(),
+				getComputeTimeP50(), getComputeTimeP99(), getComputeTimeMax(), getTimeToExpireAtArrivalP50(),
+				getTimeToExpireAtSubmissionP1(), getTimeToExpireAtSubmissionP50());
+	}
+}
@@ -0,0 +1,31 @@
+package play.metrics;
+
+/**
+ * JMX view of the RoundMetrics of a strategy. Times are in milliseconds.
+ */
+public interface RoundMetricsMBean {
+
+	String getStrategy();
+
+	long getRounds();
+
+	long getRetries();
+
+	long getDeadlineMisses();
+
+	double getComputeTimeMean();
+
+	double getComputeTimeP50();
+
+	double getComputeTimeP99();
+
+	double getComputeTimeMax();
+
+	double getTimeToExpireAtArrivalP50();
+
+	double getTimeToExpireAtSubmissionP1();
+
+	double getTimeToExpireAtSubmissionP50();
+
+	void reset();
+}
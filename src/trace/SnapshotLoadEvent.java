@@ -0,0 +1,60 @@
+package trace;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * The load of a game tree from a snapshot file.
+ */
+@Name("gametree.SnapshotLoad")
+@Label("Game Tree Snapshot Load")
+@Category({ "Game Theory", "Game Tree" })
+@Description("Load of a game tree from a snapshot file")
+@StackTrace(false)
+public final class SnapshotLoadEvent extends Event {
+
+	@Label("File")
+	String file;
+
+	@Label("Size")
+	@DataAmount
+	long size;
+
+	@Label("Nodes")
+	@Description("Nodes of the tree loaded, 0 if it could not be loaded")
+	int nodes;
+
+	private SnapshotLoadEvent() {
+	}
+
+	/**
+	 * @param file the snapshot file.
+	 * @return the event, null if it is not being recorded.
+	 */
+	public static SnapshotLoadEvent start(String file) {
+		SnapshotLoadEvent e = new SnapshotLoadEvent();
+		if(!e.isEnabled())
+			return null;
+		e.file = file;
+		e.begin();
+		return e;
+	}
+
+	/**
+	 * @param size the size of the file.
+	 * @param nodes the number of nodes loaded, 0 if loading failed.
+	 */
+	public void finish(long size, int nodes) {
+		end();
+		if(shouldCommit()) {
+			this.size = size;
+			this.nodes = nodes;
+			commit();
+		}
+	}
+}
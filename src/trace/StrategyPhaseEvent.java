@@ -0,0 +1,80 @@
+package trace;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A phase of the computation of a round by a strategy: the whole round
+ * ("compute") and whatever phases the strategy reports on its own.
+ */
+@Name("play.StrategyPhase")
+@Label("Strategy Phase")
+@Category({ "Game Theory", "Strategy" })
+@Description("Phase of the computation of a round by a strategy")
+@StackTrace(false)
+public final class StrategyPhaseEvent extends Event {
+
+	@Label("Strategy")
+	String strategy;
+
+	@Label("Game Nodes")
+	@Description("Nodes of the game tree, 0 if unknown")
+	int nodes;
+
+	@Label("Round")
+	int round;
+
+	@Label("Phase")
+	String phase;
+
+	@Label("Work")
+	@Description("Amount of work done in the phase, e.g. solver iterations; -1 if not reported")
+	long work;
+
+	private StrategyPhaseEvent() {
+	}
+
+	/**
+	 * Nothing is computed for the fields of an event that is not being
+	 * recorded: the caller sets the expensive ones with setNodes() once
+	 * start() returned an event.
+	 * @param strategy the class of the strategy.
+	 * @param round the round (1 for the first one).
+	 * @param phase the name of the phase.
+	 * @return the event, null if it is not being recorded.
+	 */
+	public static StrategyPhaseEvent start(String strategy, int round, String phase) {
+		StrategyPhaseEvent e = new StrategyPhaseEvent();
+		if(!e.isEnabled())
+			return null;
+		e.strategy = strategy;
+		e.round = round;
+		e.phase = phase;
+		e.work = -1;
+		e.begin();
+		return e;
+	}
+
+	/**
+	 * @param nodes the nodes of the game tree, 0 if unknown.
+	 */
+	public void setNodes(int nodes) {
+		this.nodes = nodes;
+	}
+
+	public void finish() {
+		commit();
+	}
+
+	/**
+	 * @param work the amount of work done in the phase.
+	 */
+	public void finish(long work) {
+		this.work = work;
+		commit();
+	}
+}
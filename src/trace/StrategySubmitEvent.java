@@ -0,0 +1,77 @@
+package trace;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * The delivery of the strategy of a round to the game engine.
+ */
+@Name("play.StrategySubmit")
+@Label("Strategy Submission")
+@Category({ "Game Theory", "Strategy" })
+@Description("Delivery of the strategy of a round to the game engine")
+@StackTrace(false)
+public final class StrategySubmitEvent extends Event {
+
+	@Label("Strategy")
+	String strategy;
+
+	@Label("Game Nodes")
+	@Description("Nodes of the game tree, 0 if unknown")
+	int nodes;
+
+	@Label("Round")
+	int round;
+
+	@Label("Time To Expire")
+	@Description("Time left to the deadline of the round when the strategy was delivered")
+	@Timespan(Timespan.MILLISECONDS)
+	long timeToExpire;
+
+	@Label("Accepted")
+	@Description("false if the engine rejected the strategy as invalid")
+	boolean accepted;
+
+	private StrategySubmitEvent() {
+	}
+
+	/**
+	 * Nothing is computed for the fields of an event that is not being
+	 * recorded: the caller sets the expensive ones with setNodes() once
+	 * start() returned an event.
+	 * @param strategy the class of the strategy.
+	 * @param round the round (1 for the first one).
+	 * @param timeToExpire the milliseconds left to the deadline.
+	 * @return the event, null if it is not being recorded.
+	 */
+	public static StrategySubmitEvent start(String strategy, int round, long timeToExpire) {
+		StrategySubmitEvent e = new StrategySubmitEvent();
+		if(!e.isEnabled())
+			return null;
+		e.strategy = strategy;
+		e.round = round;
+		e.timeToExpire = timeToExpire;
+		e.begin();
+		return e;
+	}
+
+	/**
+	 * @param nodes the nodes of the game tree, 0 if unknown.
+	 */
+	public void setNodes(int nodes) {
+		this.nodes = nodes;
+	}
+
+	/**
+	 * @param accepted false if the engine rejected the strategy.
+	 */
+	public void finish(boolean accepted) {
+		this.accepted = accepted;
+		commit();
+	}
+}
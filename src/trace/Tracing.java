@@ -0,0 +1,47 @@
+package trace;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * Java Flight Recorder events of the client. Recording them is left to
+ * the standard tools: start the JVM with -XX:StartFlightRecording (or use
+ * jcmd JFR.start) and open the recording in JDK Mission Control, where the
+ * events are under "Game Theory".
+ *
+ * Events are only created when the JVM has the jdk.jfr API (JDK 11, or
+ * JDK 8 from update 262), so every use is guarded by AVAILABLE. While no
+ * recording is running, the start() methods of the events return null
+ * after a single check and the JIT removes the rest.
+ */
+public final class Tracing {
+
+	/** true if the JVM can record JFR events. */
+	public static final boolean AVAILABLE = available();
+
+	private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+	private Tracing() {
+	}
+
+	private static boolean available() {
+		try {
+			Class.forName("jdk.jfr.Event", false, Tracing.class.getClassLoader());
+			return true;
+		} catch (ClassNotFoundException e) {
+			return false;
+		} catch (LinkageError e) {
+			return false;
+		}
+	}
+
+	/**
+	 * @return the bytes allocated so far by the current thread, -1 if the
+	 * JVM does not tell.
+	 */
+	static long allocatedBytes() {
+		if(THREADS instanceof com.sun.management.ThreadMXBean)
+			return ((com.sun.management.ThreadMXBean) THREADS).getThreadAllocatedBytes(Thread.currentThread().getId());
+		return -1;
+	}
+}
@@ -0,0 +1,63 @@
+package trace;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * The construction of a game tree from the engine's tree or from another
+ * game tree.
+ */
+@Name("gametree.TreeBuild")
+@Label("Game Tree Build")
+@Category({ "Game Theory", "Game Tree" })
+@Description("Construction of a game tree")
+@StackTrace(false)
+public final class TreeBuildEvent extends Event {
+
+	@Label("Representation")
+	@Description("Class of the tree built, and whether it is lazy")
+	String representation;
+
+	@Label("Nodes")
+	int nodes;
+
+	@Label("Allocated")
+	@Description("Bytes allocated by the building thread, -1 if unknown")
+	@DataAmount
+	long allocated;
+
+	private TreeBuildEvent() {
+	}
+
+	/**
+	 * @param representation the kind of tree being built.
+	 * @return the event, null if it is not being recorded.
+	 */
+	public static TreeBuildEvent start(String representation) {
+		TreeBuildEvent e = new TreeBuildEvent();
+		if(!e.isEnabled())
+			return null;
+		e.representation = representation;
+		e.allocated = Tracing.allocatedBytes();
+		e.begin();
+		return e;
+	}
+
+	/**
+	 * @param nodes the number of nodes of the tree built.
+	 */
+	public void finish(int nodes) {
+		end();
+		if(shouldCommit()) {
+			this.nodes = nodes;
+			long now = Tracing.allocatedBytes();
+			this.allocated = now == -1 || this.allocated == -1 ? -1 : now - this.allocated;
+			commit();
+		}
+	}
+}
@@ -0,0 +1,56 @@
+package trace;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * A walk over (a subtree of) a compact game tree, as done by the solvers.
+ * Solvers walk the tree several times per iteration, so by default only
+ * walks of at least a millisecond are recorded.
+ */
+@Name("gametree.TreeWalk")
+@Label("Game Tree Walk")
+@Category({ "Game Theory", "Game Tree" })
+@Description("Walk over the nodes of a compact game tree")
+@StackTrace(false)
+@Threshold("1 ms")
+public final class TreeWalkEvent extends Event {
+
+	@Label("Nodes")
+	int nodes;
+
+	@Label("Top Down")
+	boolean topDown;
+
+	@Label("Parallelism")
+	int parallelism;
+
+	private TreeWalkEvent() {
+	}
+
+	/**
+	 * @param nodes the number of nodes walked.
+	 * @param topDown true for a top-down walk, false for a bottom-up one.
+	 * @param parallelism the number of threads walking, 1 if sequential.
+	 * @return the event, null if it is not being recorded.
+	 */
+	public static TreeWalkEvent start(int nodes, boolean topDown, int parallelism) {
+		TreeWalkEvent e = new TreeWalkEvent();
+		if(!e.isEnabled())
+			return null;
+		e.nodes = nodes;
+		e.topDown = topDown;
+		e.parallelism = parallelism;
+		e.begin();
+		return e;
+	}
+
+	public void finish() {
+		commit();
+	}
+}
@@ -0,0 +1,13 @@
+#!/bin/bash
+# Compiles the client and the unit tests and runs the tests. JUnit 4 and
+# hamcrest-core must be in test/lib. Arguments name the test classes to
+# run, e.g.
+#   test/runTests.sh gametree.SequenceFormSolverTest
+# and every *Test class under test/src is run by default.
+cd "$(dirname "$0")/.."
+rm -rf test/classes && mkdir -p test/classes
+javac -source 1.8 -target 1.8 -cp "lib/*:test/lib/*" -d test/classes $(find src test/src -name '*.java') || exit 1
+if [ $# -eq 0 ]; then
+	set -- $(cd test/src && find . -name '*Test.java' | sed 's|^\./||; s|\.java$||; s|/|.|g' | sort)
+fi
+java -cp "test/classes:lib/*:test/lib/*" org.junit.runner.JUnitCore "$@"
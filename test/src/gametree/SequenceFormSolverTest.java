@@ -0,0 +1,58 @@
+package gametree;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import play.local.SyntheticGame;
+
+public class SequenceFormSolverTest {
+
+	private static final double EPSILON = 1e-3;
+
+	private static SequenceFormSolver solve(StrategyLayout layout) {
+		SequenceFormSolver solver = new SequenceFormSolver(new SequenceForm(layout));
+		assertTrue("gap not reached", solver.solve(EPSILON, 10000));
+		return solver;
+	}
+
+	/**
+	 * The average strategy of each player guarantees at most his maxmin
+	 * value and at least gap() below it.
+	 */
+	private static void assertGuarantees(SequenceFormSolver solver, CompactGameTree t) {
+		for(int p = SequenceForm.P1; p <= SequenceForm.P2; p++) {
+			double maxmin = TestGames.maxmin(t, p);
+			double guaranteed = solver.guaranteedPayoff(p);
+			assertTrue("player " + p + " guarantees " + guaranteed + " above its maxmin " + maxmin,
+					guaranteed <= maxmin + 1e-9);
+			assertTrue("player " + p + " guarantees " + guaranteed + " for a maxmin of " + maxmin,
+					guaranteed >= maxmin - solver.gap() - 1e-9);
+		}
+	}
+
+	@Test
+	public void zeroSumGuaranteesMatchMinimax() {
+		for(long seed = 0; seed < 5; seed++) {
+			StrategyLayout layout = TestGames.zeroSumLayout(new SyntheticGame(6, 2, 0.2, seed));
+			SequenceFormSolver solver = solve(layout);
+			assertTrue(solver.getForm().isZeroSum());
+			assertGuarantees(solver, layout.getTree());
+			//Both players play the one problem, whose value they share
+			assertEquals(0, solver.guaranteedPayoff(SequenceForm.P1) + solver.guaranteedPayoff(SequenceForm.P2),
+					solver.gap() + 1e-9);
+		}
+	}
+
+	@Test
+	public void generalSumGuaranteesMatchMinimax() {
+		for(long seed = 0; seed < 5; seed++) {
+			StrategyLayout layout = TestGames.layout(new SyntheticGame(6, 2, 0.2, seed));
+			SequenceFormSolver solver = solve(layout);
+			assertFalse(solver.getForm().isZeroSum());
+			assertGuarantees(solver, layout.getTree());
+		}
+	}
+}
@@ -0,0 +1,111 @@
+package gametree;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Test;
+
+import play.local.SyntheticGame;
+
+public class SupportEnumerationTest {
+
+	private static final double TOLERANCE = 1e-7;
+
+	/**
+	 * Checks that the strategies found are probabilities and that no pure
+	 * strategy of the whole form, dominated or not, pays more against them.
+	 */
+	private static void assertEquilibrium(NormalForm form, SupportEnumeration e) {
+		double[] x = e.getStrategy(NormalForm.P1);
+		double[] y = e.getStrategy(NormalForm.P2);
+		double sx = 0, sy = 0;
+		for(double p: x) {
+			assertTrue(p >= 0);
+			sx += p;
+		}
+		for(double p: y) {
+			assertTrue(p >= 0);
+			sy += p;
+		}
+		assertEquals(1, sx, TOLERANCE);
+		assertEquals(1, sy, TOLERANCE);
+		double u = 0, v = 0;
+		for(int r = 0; r < form.rows(); r++)
+			for(int c = 0; c < form.columns(); c++) {
+				u += x[r] * y[c] * form.payoffP1(r, c);
+				v += x[r] * y[c] * form.payoffP2(r, c);
+			}
+		assertEquals(u, e.getPayoff(NormalForm.P1), TOLERANCE);
+		assertEquals(v, e.getPayoff(NormalForm.P2), TOLERANCE);
+		for(int r = 0; r < form.rows(); r++) {
+			double s = 0;
+			for(int c = 0; c < form.columns(); c++)
+				s += y[c] * form.payoffP1(r, c);
+			assertTrue("row " + r + " pays " + s + " against " + u, s <= u + TOLERANCE);
+		}
+		for(int c = 0; c < form.columns(); c++) {
+			double s = 0;
+			for(int r = 0; r < form.rows(); r++)
+				s += x[r] * form.payoffP2(r, c);
+			assertTrue("column " + c + " pays " + s + " against " + v, s <= v + TOLERANCE);
+		}
+	}
+
+	@Test
+	public void findsAnEquilibriumOfEveryReducedGame() {
+		for(long seed = 0; seed < 40; seed++) {
+			NormalForm form = NormalForm.expand(TestGames.layout(new SyntheticGame(4, 2, 0.2, seed)));
+			SupportEnumeration e = SupportEnumeration.find(DominanceEliminator.eliminate(form));
+			assertNotNull("no equilibrium for seed " + seed, e);
+			assertEquilibrium(form, e);
+		}
+	}
+
+	@Test
+	public void findsExtremeEquilibriaWithUnequalSupports() {
+		//Row 0 ties for P2 against both columns, so the form is degenerate;
+		//its extreme equilibria include row 0 against an even mix of columns
+		NormalForm form = NormalForm.expand(TestGames.matrix(
+				new int[][] { { 3, 1 }, { 4, 0 }, { 0, 4 }, { 4, 0 } },
+				new int[][] { { 2, 2 }, { 2, 1 }, { 4, 1 }, { 4, 3 } }));
+		int[] rows = { 0, 1, 2, 3 };
+		int[] columns = { 0, 1 };
+		SupportEnumeration e = SupportEnumeration.extreme(form, rows, columns, 2, ForkJoinPool.commonPool());
+		assertNotNull(e);
+		assertEquilibrium(form, e);
+		assertEquals(1, e.getSupportSize(NormalForm.P1));
+		assertEquals(2, e.getSupportSize(NormalForm.P2));
+		assertEquilibrium(form, SupportEnumeration.find(form, rows, columns, 2, ForkJoinPool.commonPool()));
+	}
+
+	@Test
+	public void extremeEquilibriaOfRandomGames() {
+		Random random = new Random(1);
+		for(int g = 0; g < 200; g++) {
+			int m = 1 + random.nextInt(4);
+			int n = 1 + random.nextInt(4);
+			int[][] p1 = new int[m][n];
+			int[][] p2 = new int[m][n];
+			//Few distinct payoffs, so that many of the games are degenerate
+			for(int r = 0; r < m; r++)
+				for(int c = 0; c < n; c++) {
+					p1[r][c] = random.nextInt(3);
+					p2[r][c] = random.nextInt(3);
+				}
+			NormalForm form = NormalForm.expand(TestGames.matrix(p1, p2));
+			int[] rows = new int[m];
+			int[] columns = new int[n];
+			for(int r = 0; r < m; r++)
+				rows[r] = r;
+			for(int c = 0; c < n; c++)
+				columns[c] = c;
+			SupportEnumeration e = SupportEnumeration.extreme(form, rows, columns, Math.min(m, n), ForkJoinPool.commonPool());
+			assertNotNull(e);
+			assertEquilibrium(form, e);
+		}
+	}
+}
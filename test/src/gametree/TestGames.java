@@ -0,0 +1,221 @@
+package gametree;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import play.local.SyntheticGame;
+import tree.GameTreeClass;
+import tree.Node;
+
+/**
+ * Games and reference values shared by the tests of the solvers.
+ */
+final class TestGames {
+
+	private TestGames() {
+	}
+
+	/**
+	 * @return the layout of game, with its keys in the engine's order.
+	 */
+	static StrategyLayout layout(SyntheticGame game) {
+		return new StrategyLayout(CompactGameTree.fromGameTreeClass(game), game.getKeys());
+	}
+
+	/**
+	 * @return the layout of the zero-sum game where P1 gets the payoff of
+	 * P1 in game and P2 minus that payoff.
+	 */
+	static StrategyLayout zeroSumLayout(SyntheticGame game) {
+		return new StrategyLayout(CompactGameTree.fromGameTreeClass(new ZeroSum(game)), game.getKeys());
+	}
+
+	/**
+	 * The layout of a bimatrix game as a game tree: P1 chooses a row, then
+	 * P2 a column without seeing it. The keys of P1 are r0, r1, ... and
+	 * those of P2 c0, c1, ..., so the rows and columns of its NormalForm
+	 * are those of the matrices.
+	 * @param p1 the payoffs of P1, a row per row.
+	 * @param p2 the payoffs of P2, a row per row.
+	 */
+	static StrategyLayout matrix(int[][] p1, int[][] p2) {
+		int rows = p1.length;
+		int columns = p1[0].length;
+		int value = 2;
+		Node[] choices = new Node[rows];
+		for(int r = 0; r < rows; r++) {
+			Node[] cells = new Node[columns];
+			for(int c = 0; c < columns; c++)
+				cells[c] = new Cell("t", value++, new String[] { Integer.toString(p1[r][c]), Integer.toString(p2[r][c]) },
+						new Node[0]);
+			choices[r] = new Cell("P2", value++, moves("c", columns), cells);
+		}
+		final Node root = new Cell("P1", 1, moves("r", rows), choices);
+		final List<List<Integer>> groups = Collections.singletonList(Arrays.asList(rows, columns));
+		GameTreeClass game = new GameTreeClass() {
+			@Override
+			public Node getCurrent() {
+				return root;
+			}
+
+			@Override
+			public List<List<Integer>> getPosibilities() {
+				return groups;
+			}
+		};
+		List<String> keys = new ArrayList<String>(Arrays.asList(moves("r", rows)));
+		keys.addAll(Arrays.asList(moves("c", columns)));
+		return new StrategyLayout(CompactGameTree.fromGameTreeClass(game), keys.iterator());
+	}
+
+	private static String[] moves(String prefix, int count) {
+		String[] m = new String[count];
+		for(int i = 0; i < count; i++)
+			m[i] = prefix + i;
+		return m;
+	}
+
+	/**
+	 * The maxmin value of player by backward induction, which the
+	 * synthetic games allow since every decision node is a group of its
+	 * own (perfect information).
+	 * @param player SequenceForm.P1 or SequenceForm.P2.
+	 */
+	static double maxmin(CompactGameTree t, int player) {
+		return maxmin(t, t.root(), player);
+	}
+
+	private static double maxmin(CompactGameTree t, int n, int player) {
+		if(t.isTerminal(n))
+			return player == SequenceForm.P1 ? t.payoffP1(n) : t.payoffP2(n);
+		int first = t.firstChild(n);
+		int end = first + t.childCount(n);
+		if(t.isNature(n)) {
+			double v = 0;
+			for(int c = first; c < end; c++)
+				v += t.weight(c) * maxmin(t, c, player);
+			return v;
+		}
+		boolean own = player == SequenceForm.P1 ? t.isPlayer1(n) : t.isPlayer2(n);
+		double v = own ? Double.NEGATIVE_INFINITY : Double.POSITIVE_INFINITY;
+		for(int c = first; c < end; c++)
+			v = own ? Math.max(v, maxmin(t, c, player)) : Math.min(v, maxmin(t, c, player));
+		return v;
+	}
+
+	/**
+	 * A game read through, with the payoff of P2 replaced by minus the
+	 * payoff of P1.
+	 */
+	private static final class ZeroSum extends GameTreeClass {
+
+		private final GameTreeClass game;
+
+		ZeroSum(GameTreeClass game) {
+			this.game = game;
+		}
+
+		@Override
+		public Node getCurrent() {
+			return new View(this.game.getCurrent());
+		}
+
+		@Override
+		public List<List<Integer>> getPosibilities() {
+			return this.game.getPosibilities();
+		}
+	}
+
+	private static final class Cell extends Node {
+
+		private final String type;
+		private final int value;
+		private final String[] outcome;
+		private final Node[] children;
+
+		Cell(String type, int value, String[] outcome, Node[] children) {
+			this.type = type;
+			this.value = value;
+			this.outcome = outcome;
+			this.children = children;
+		}
+
+		@Override
+		public Node[] getChildren() {
+			return this.children;
+		}
+
+		@Override
+		public double[] getChildrenWeight() {
+			return new double[this.children.length];
+		}
+
+		@Override
+		public String[] getOutcome() {
+			return this.outcome;
+		}
+
+		@Override
+		public String getLabel() {
+			return "n" + this.value;
+		}
+
+		@Override
+		public int getValue() {
+			return this.value;
+		}
+
+		@Override
+		public String getType() {
+			return this.type;
+		}
+	}
+
+	private static final class View extends Node {
+
+		private final Node node;
+
+		View(Node node) {
+			this.node = node;
+		}
+
+		@Override
+		public Node[] getChildren() {
+			Node[] children = this.node.getChildren();
+			Node[] c = new Node[children.length];
+			for(int i = 0; i < c.length; i++)
+				c[i] = new View(children[i]);
+			return c;
+		}
+
+		@Override
+		public double[] getChildrenWeight() {
+			return this.node.getChildrenWeight();
+		}
+
+		@Override
+		public String[] getOutcome() {
+			String[] o = this.node.getOutcome();
+			if(this.node.getChildren().length > 0)
+				return o;
+			return new String[] { o[0], Integer.toString(-Integer.parseInt(o[0])) };
+		}
+
+		@Override
+		public String getLabel() {
+			return this.node.getLabel();
+		}
+
+		@Override
+		public int getValue() {
+			return this.node.getValue();
+		}
+
+		@Override
+		public String getType() {
+			return this.node.getType();
+		}
+	}
+}